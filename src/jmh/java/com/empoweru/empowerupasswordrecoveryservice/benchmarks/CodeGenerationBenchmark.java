@@ -0,0 +1,61 @@
+package com.empoweru.empowerupasswordrecoveryservice.benchmarks;
+
+import com.empoweru.empowerupasswordrecoveryservice.cache.RecoveryCodeCache;
+import com.empoweru.empowerupasswordrecoveryservice.codes.SecureCodeGenerator;
+import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.RecoverCodeRepository;
+import com.empoweru.empowerupasswordrecoveryservice.services.CodeGeneratorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CodeGeneratorService#generate(String, Locale)} against the in-memory store:
+ * drawing the code, the upsert, the outbox entry and caching the new code.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodeGenerationBenchmark {
+
+    private static final int EMAILS = 1024;
+
+    private CodeGeneratorService codeGeneratorService;
+    private String[] emails;
+    private Locale locale;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        InMemoryStore store = new InMemoryStore();
+        RecoverCodeRepository recoverCodeRepository = store.recoverCodeRepository();
+        RecoveryCodeCache cache = new RecoveryCodeCache(recoverCodeRepository::findByEmail, 10_000, Clock.systemUTC());
+        codeGeneratorService = new CodeGeneratorService(recoverCodeRepository, store.emailOutboxRepository(), cache,
+                new SecureCodeGenerator(6, "0123456789"));
+        emails = new String[EMAILS];
+        for (int i = 0; i < EMAILS; i++) {
+            emails[i] = "user" + i + "@empoweru.test";
+        }
+        locale = Locale.forLanguageTag("pt-BR");
+    }
+
+    @Benchmark
+    public RecoveryCode generate() {
+        next = (next + 1) & (EMAILS - 1);
+        return codeGeneratorService.generate(emails[next], locale);
+    }
+}
@@ -0,0 +1,143 @@
+package com.empoweru.empowerupasswordrecoveryservice.benchmarks;
+
+import com.empoweru.empowerupasswordrecoveryservice.codes.CodeGenerator;
+import com.empoweru.empowerupasswordrecoveryservice.codes.PrefilledCodeGenerator;
+import com.empoweru.empowerupasswordrecoveryservice.codes.SecureCodeGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures drawing a recovery code with many threads at once. {@link #next(Engine)} draws codes back to back from:
+ * <ul>
+ *     <li>{@code shared-random}: the former generator, one {@link Random} shared by every thread.</li>
+ *     <li>{@code secure-random}: a {@link SecureCodeGenerator}, one DRBG per thread.</li>
+ *     <li>{@code prefilled}: a {@link PrefilledCodeGenerator} ring in front of the {@code secure-random} generator.
+ *     With every thread drawing back to back the refill thread soon falls behind, so this mostly measures
+ *     the inline draws of an empty ring.</li>
+ * </ul>
+ * {@link #takeFromFilledRing(FilledRing)} measures what a request pays when the ring keeps up, which it does at
+ * request rates: the time for each thread to take {@value #BATCH} codes from a ring filled before each iteration.
+ * <p>
+ * Run through {@link #main(String[])} to sweep the thread counts in {@code contention.threads}, by default
+ * 1 to 64, into one JSON report at {@code contention.report}. Arguments are passed on to JMH, for example
+ * {@code -prof gc}.
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodeGeneratorContentionBenchmark {
+
+    private static final int BATCH = 4096;
+    private static final int RING_CAPACITY = 1 << 18; // A full batch for each of 64 threads.
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+
+        @Param({"shared-random", "secure-random", "prefilled"})
+        public String engine;
+
+        CodeGenerator generator;
+
+        @Setup
+        public void setUp() {
+            generator = switch (engine) {
+                case "shared-random" -> {
+                    Random random = new Random();
+                    yield () -> String.valueOf(random.nextInt(100000, 999999));
+                }
+                case "secure-random" -> new SecureCodeGenerator(6, "0123456789");
+                case "prefilled" -> new PrefilledCodeGenerator(new SecureCodeGenerator(6, "0123456789"), 1024);
+                default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+            };
+        }
+
+        @TearDown
+        public void tearDown() {
+            if (generator instanceof PrefilledCodeGenerator prefilled) {
+                prefilled.close();
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class FilledRing {
+
+        PrefilledCodeGenerator generator;
+
+        @Setup
+        public void setUp() {
+            generator = new PrefilledCodeGenerator(new SecureCodeGenerator(6, "0123456789"), RING_CAPACITY);
+        }
+
+        @Setup(Level.Iteration)
+        public void awaitFull() throws InterruptedException {
+            while (generator.getAvailable() < RING_CAPACITY) {
+                Thread.sleep(10);
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            generator.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String next(Engine engine) {
+        return engine.generator.next();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, batchSize = BATCH)
+    @Measurement(iterations = 20, batchSize = BATCH)
+    public String takeFromFilledRing(FilledRing ring) {
+        return ring.generator.next();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = Arrays.stream(System.getProperty("contention.threads", "1,2,4,8,16,32,64").split(","))
+                .mapToInt(value -> Integer.parseInt(value.trim()))
+                .toArray();
+        String report = System.getProperty("contention.report", "target/code-generator-contention.json");
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        List<RunResult> results = new ArrayList<>();
+        for (int threads : threadCounts) {
+            results.addAll(new Runner(new OptionsBuilder()
+                    .parent(commandLine)
+                    .include(CodeGeneratorContentionBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run());
+        }
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, report).writeOut(results);
+        ResultFormatFactory.getInstance(ResultFormatType.TEXT, System.out).writeOut(results);
+        System.out.println("Contention results are saved to " + report);
+    }
+}
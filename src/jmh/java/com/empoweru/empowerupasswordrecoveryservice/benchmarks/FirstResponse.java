@@ -0,0 +1,39 @@
+package com.empoweru.empowerupasswordrecoveryservice.benchmarks;
+
+import com.empoweru.empowerupasswordrecoveryservice.EmpowerUPasswordRecoveryServiceApplication;
+import com.empoweru.empowerupasswordrecoveryservice.RecoveryCodeHandler;
+import com.empoweru.empowerupasswordrecoveryservice.dtos.RequestPasswordRecoveryCodeDTO;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * One cold start, run in a fresh JVM by {@link StartupBenchmark}: boots the application context the way the
+ * Azure Functions adapter does on the first invocation, serves one {@code sendRecoveryCode} call and
+ * reports the timings, measured from JVM start, on standard output.
+ */
+public final class FirstResponse {
+
+    static final String RESULT_PREFIX = "startup-result ";
+
+    public static void main(String[] args) {
+        String email = System.getProperty("startup.email", "startup-benchmark@empoweru.test");
+
+        SpringApplication application = new SpringApplication(EmpowerUPasswordRecoveryServiceApplication.class);
+        // The AOT initializer is looked up by main class.
+        application.setMainApplicationClass(EmpowerUPasswordRecoveryServiceApplication.class);
+        ConfigurableApplicationContext context = application.run(args);
+        long contextReady = System.currentTimeMillis();
+        RecoveryCodeHandler handler = context.getBean(RecoveryCodeHandler.class);
+        HttpResponseMessage response = handler.sendRecoveryCode(
+                new StubHttpRequest<>(new RequestPasswordRecoveryCodeDTO(email), Map.of()), null);
+        long firstResponse = System.currentTimeMillis();
+
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.println(RESULT_PREFIX + (contextReady - jvmStart) + " " + (firstResponse - jvmStart) + " " + response.getStatus());
+        context.close();
+    }
+}
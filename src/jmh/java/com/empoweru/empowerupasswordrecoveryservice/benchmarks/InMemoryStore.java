@@ -0,0 +1,103 @@
+package com.empoweru.empowerupasswordrecoveryservice.benchmarks;
+
+import com.empoweru.empowerupasswordrecoveryservice.models.PasswordResetStatus;
+import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.EmailOutboxRepository;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.RecoverCodeRepository;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.UserRepository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Timestamp;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory stand-in for the database behind the repositories, so the benchmarks measure the service code
+ * rather than Postgres. Each repository is a dynamic proxy implementing only the methods the recovery flows call.
+ */
+final class InMemoryStore {
+
+    private final ConcurrentHashMap<String, String> passwords = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, RecoveryCode> codes = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final LongAdder outboxRows = new LongAdder();
+
+    void addUser(String email) {
+        passwords.put(email, "");
+    }
+
+    long getOutboxRowCount() {
+        return outboxRows.sum();
+    }
+
+    RecoverCodeRepository recoverCodeRepository() {
+        return proxy(RecoverCodeRepository.class, (proxy, method, args) -> switch (method.getName()) {
+            case "upsert" -> upsert((String) args[0], (String) args[1], (Long) args[2]);
+            case "findByEmail" -> Optional.ofNullable(codes.get((String) args[0]));
+            case "verifyAndResetPassword" -> verifyAndResetPassword((String) args[0], (String) args[1], (String) args[2]);
+            default -> unsupported(method.getName());
+        });
+    }
+
+    UserRepository userRepository() {
+        return proxy(UserRepository.class, (proxy, method, args) -> switch (method.getName()) {
+            case "existsByEmail" -> passwords.containsKey((String) args[0]);
+            default -> unsupported(method.getName());
+        });
+    }
+
+    EmailOutboxRepository emailOutboxRepository() {
+        return proxy(EmailOutboxRepository.class, (proxy, method, args) -> {
+            if (method.getName().equals("save")) {
+                outboxRows.increment();
+                return args[0];
+            }
+            return unsupported(method.getName());
+        });
+    }
+
+    private RecoveryCode upsert(String email, String code, long validitySeconds) {
+        Timestamp expiryDate = new Timestamp(System.currentTimeMillis() + validitySeconds * 1000);
+        return codes.compute(email, (key, current) ->
+                new RecoveryCode(current == null ? ids.incrementAndGet() : current.getId(), code, email, expiryDate));
+    }
+
+    private String verifyAndResetPassword(String email, String code, String hashedPassword) {
+        if (!passwords.containsKey(email)) {
+            return PasswordResetStatus.USER_NOT_FOUND.name();
+        }
+        RecoveryCode current = codes.get(email);
+        if (current == null || !current.getCode().equals(code)) {
+            return PasswordResetStatus.INVALID_CODE.name();
+        }
+        if (current.getExpiryDate().getTime() < System.currentTimeMillis()) {
+            return PasswordResetStatus.EXPIRED_CODE.name();
+        }
+        if (!codes.remove(email, current)) {
+            return PasswordResetStatus.INVALID_CODE.name();
+        }
+        passwords.put(email, hashedPassword);
+        return PasswordResetStatus.OK.name();
+    }
+
+    private static Object unsupported(String method) {
+        throw new UnsupportedOperationException(method + " is not supported by the in-memory store");
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + " stand-in";
+                };
+            }
+            return handler.invoke(proxy, method, args);
+        });
+    }
+}
@@ -0,0 +1,406 @@
+package com.empoweru.empowerupasswordrecoveryservice.benchmarks;
+
+import com.empoweru.empowerupasswordrecoveryservice.EmpowerUPasswordRecoveryServiceApplication;
+import com.empoweru.empowerupasswordrecoveryservice.RecoveryCodeHandler;
+import com.empoweru.empowerupasswordrecoveryservice.cache.RecoveryCodeCache;
+import com.empoweru.empowerupasswordrecoveryservice.dtos.RequestPasswordRecoveryCodeDTO;
+import com.empoweru.empowerupasswordrecoveryservice.dtos.VerifyCodeDto;
+import com.empoweru.empowerupasswordrecoveryservice.mail.SmtpStubServer;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.RecoverCodeRepository;
+import com.empoweru.empowerupasswordrecoveryservice.services.RecoveryCodeIssuer;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import com.microsoft.azure.functions.HttpStatus;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop load test of both {@link RecoveryCodeHandler} functions, runnable offline on one machine.
+ * The application is started in-process against an embedded Postgres, with fsync off and its data directory
+ * in {@code /dev/shm} when available, and against {@link SmtpStubServer}, which accepts and discards every email.
+ * Rate limits are lifted, everything else runs as configured, including BCrypt and the email outbox.
+ * <p>
+ * Each of {@code loadtest.concurrency} threads repeatedly picks an operation from {@code loadtest.mix} for
+ * one of its own users, so operations on the same user never overlap:
+ * <ul>
+ *     <li>{@code send}: {@code sendRecoveryCode}, expecting 200.</li>
+ *     <li>{@code valid}: {@code verifyRecoveryCode} with the user's active code, expecting 200.</li>
+ *     <li>{@code invalid}: {@code verifyRecoveryCode} with a wrong code, expecting 400.</li>
+ *     <li>{@code expired}: {@code verifyRecoveryCode} with a code that has expired, expecting 400.</li>
+ * </ul>
+ * Codes for {@code valid} and {@code expired} are set up before the timed call. After {@code loadtest.warmup}
+ * the calls are recorded for {@code loadtest.duration}, and the throughput and p50/p95/p99 latency of each
+ * operation are printed and written as JSON to {@code loadtest.report}. Arguments are passed on to the application.
+ */
+public final class LoadTest {
+
+    private static final String EMAIL_PREFIX = "load-test-";
+    private static final String WRONG_CODE = "wrong-code";
+    private static final String NEW_PASSWORD = "load-test-password";
+
+    private final RecoveryCodeHandler handler;
+    private final RecoveryCodeIssuer issuer;
+    private final RecoverCodeRepository recoverCodeRepository;
+    private final RecoveryCodeCache recoveryCodeCache;
+    private final Map<String, String> headers = Map.of("Accept-Language", "en-US", "X-Forwarded-For", "203.0.113.7");
+
+    private LoadTest(ConfigurableApplicationContext context) {
+        this.handler = context.getBean(RecoveryCodeHandler.class);
+        this.issuer = context.getBean(RecoveryCodeIssuer.class);
+        this.recoverCodeRepository = context.getBean(RecoverCodeRepository.class);
+        this.recoveryCodeCache = context.getBean(RecoveryCodeCache.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+        int users = Math.max(Integer.getInteger("loadtest.users", 1000), concurrency);
+        Duration warmup = DurationStyle.detectAndParse(System.getProperty("loadtest.warmup", "10s"));
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("loadtest.duration", "30s"));
+        Map<Operation, Integer> mix = parseMix(System.getProperty("loadtest.mix", "send:40,valid:20,invalid:30,expired:10"));
+        Path report = Path.of(System.getProperty("loadtest.report", "target/load-test-result.json"));
+
+        EmbeddedPostgres.Builder database = EmbeddedPostgres.builder()
+                .setServerConfig("fsync", "off")
+                .setServerConfig("synchronous_commit", "off")
+                .setServerConfig("full_page_writes", "off")
+                .setServerConfig("max_connections", "200");
+        Path sharedMemory = Path.of("/dev/shm");
+        if (Files.isDirectory(sharedMemory) && Files.isWritable(sharedMemory)) {
+            database.setDataDirectory(Files.createTempDirectory(sharedMemory, "load-test")).setCleanDataDirectory(true);
+        }
+
+        try (EmbeddedPostgres postgres = database.start(); SmtpStubServer smtp = new SmtpStubServer()) {
+            String[] emails = seed(postgres, users);
+
+            List<String> appArgs = new ArrayList<>(List.of(
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=",
+                    "--spring.datasource.hikari.maximum-pool-size=" + Math.min(concurrency + 4, 100),
+                    "--spring.mail.host=localhost",
+                    "--spring.mail.port=" + smtp.getPort(),
+                    "--spring.mail.properties.mail.smtp.auth=false",
+                    "--spring.mail.properties.mail.smtp.starttls.enable=false",
+                    "--EMAIL_USERNAME=load-test",
+                    "--EMAIL_PASSWORD=load-test",
+                    "--metrics.recovery.log-summary=false"));
+            for (String limit : new String[]{"send-code.email", "send-code.client", "verify-code.email", "verify-code.client"}) {
+                appArgs.add("--rate-limit." + limit + ".capacity=" + Integer.MAX_VALUE);
+            }
+            appArgs.addAll(Arrays.asList(args));
+
+            SpringApplication application = new SpringApplication(EmpowerUPasswordRecoveryServiceApplication.class);
+            try (ConfigurableApplicationContext context = application.run(appArgs.toArray(String[]::new))) {
+                LoadTest loadTest = new LoadTest(context);
+                System.out.printf(Locale.ROOT, "Warming up for %s with %d threads and %d users%n", warmup, concurrency, users);
+                loadTest.run(emails, concurrency, mix, warmup);
+                System.out.printf(Locale.ROOT, "Measuring for %s%n", duration);
+                int messagesBefore = smtp.getMessageCount();
+                Result result = loadTest.run(emails, concurrency, mix, duration);
+
+                System.out.println();
+                result.print();
+                System.out.printf(Locale.ROOT, "%nEmails received by the SMTP stub during the run: %d%n", smtp.getMessageCount() - messagesBefore);
+                result.write(report, concurrency);
+                System.out.println("Load test result is saved to " + report.toAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Creates the tables that predate the migrations and inserts the load test users.
+     */
+    private static String[] seed(EmbeddedPostgres postgres, int users) throws Exception {
+        String[] emails = new String[users];
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE users (id UUID PRIMARY KEY, name VARCHAR(100), email VARCHAR(100) UNIQUE, "
+                        + "password VARCHAR(100), gender VARCHAR(1))");
+                statement.execute("CREATE TABLE recovery_code (id BIGSERIAL PRIMARY KEY, code VARCHAR(255), email VARCHAR(255), "
+                        + "expiry_date TIMESTAMP(6))");
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO users (id, name, email, password, gender) VALUES (?, 'Load Test', ?, '', 'O')")) {
+                for (int i = 0; i < users; i++) {
+                    emails[i] = EMAIL_PREFIX + i + "@empoweru.test";
+                    insert.setObject(1, UUID.randomUUID());
+                    insert.setString(2, emails[i]);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+        return emails;
+    }
+
+    private Result run(String[] emails, int concurrency, Map<Operation, Integer> mix, Duration duration) throws InterruptedException {
+        Operation[] weighted = mix.entrySet().stream()
+                .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+                .toArray(Operation[]::new);
+        long deadline = System.nanoTime() + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        List<Worker> workers = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            Worker worker = new Worker(partition(emails, i, concurrency), weighted, deadline, done);
+            workers.add(worker);
+            Thread thread = new Thread(worker, "load-test-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        Result result = new Result(System.nanoTime() - started);
+        workers.forEach(worker -> result.add(worker.latencies, worker.errors));
+        result.sort();
+        return result;
+    }
+
+    private static String[] partition(String[] emails, int index, int count) {
+        List<String> own = new ArrayList<>();
+        for (int i = index; i < emails.length; i += count) {
+            own.add(emails[i]);
+        }
+        return own.toArray(String[]::new);
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no operation with a positive weight: " + mix);
+        }
+        return weights;
+    }
+
+    /**
+     * The calls a load test thread makes, with the status each is expected to return.
+     */
+    private enum Operation {
+        SEND(HttpStatus.OK),
+        VALID(HttpStatus.OK),
+        INVALID(HttpStatus.BAD_REQUEST),
+        EXPIRED(HttpStatus.BAD_REQUEST);
+
+        private final HttpStatus expected;
+
+        Operation(HttpStatus expected) {
+            this.expected = expected;
+        }
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private final String[] emails;
+        private final Operation[] weighted;
+        private final long deadline;
+        private final CountDownLatch done;
+        private final Map<Operation, Latencies> latencies = new EnumMap<>(Operation.class);
+        private final List<String> errors = new ArrayList<>();
+
+        private Worker(String[] emails, Operation[] weighted, long deadline, CountDownLatch done) {
+            this.emails = emails;
+            this.weighted = weighted;
+            this.deadline = deadline;
+            this.done = done;
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new Latencies());
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    Operation operation = weighted[random.nextInt(weighted.length)];
+                    String email = emails[random.nextInt(emails.length)];
+                    call(operation, email);
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private void call(Operation operation, String email) {
+            String code = switch (operation) {
+                case SEND -> null;
+                case VALID -> issuer.issue(email, null).code().getCode();
+                case INVALID -> WRONG_CODE;
+                case EXPIRED -> {
+                    String expiredCode = recoverCodeRepository.upsert(email, "expired", -60).getCode();
+                    recoveryCodeCache.invalidate(email);
+                    yield expiredCode;
+                }
+            };
+
+            long started = System.nanoTime();
+            HttpResponseMessage response;
+            try {
+                response = operation == Operation.SEND
+                        ? handler.sendRecoveryCode(new StubHttpRequest<>(new RequestPasswordRecoveryCodeDTO(email), headers), null)
+                        : handler.verifyRecoveryCode(new StubHttpRequest<>(new VerifyCodeDto(email, code, NEW_PASSWORD), headers), null);
+            } catch (RuntimeException e) {
+                latencies.get(operation).add(System.nanoTime() - started, false);
+                error(operation.label() + ": " + e);
+                return;
+            }
+            boolean expected = response.getStatus() == operation.expected;
+            latencies.get(operation).add(System.nanoTime() - started, expected);
+            if (!expected) {
+                error(operation.label() + ": " + response.getStatus() + " " + response.getBody());
+            }
+        }
+
+        private void error(String message) {
+            if (errors.size() < Result.MAX_ERRORS_SHOWN) {
+                errors.add(message);
+            }
+        }
+    }
+
+    /**
+     * Latencies of one operation on one thread, in nanoseconds, and the number of unexpected responses.
+     */
+    private static final class Latencies {
+
+        private long[] values = new long[1024];
+        private int size;
+        private long errors;
+
+        void add(long nanos, boolean expected) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+            if (!expected) {
+                errors++;
+            }
+        }
+
+        void addAll(Latencies other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+            errors += other.errors;
+        }
+
+        void sort() {
+            Arrays.sort(values, 0, size);
+        }
+
+        /**
+         * @return The latency at the given percentile, in milliseconds; the values must be sorted.
+         */
+        double percentileMillis(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * size) - 1;
+            return values[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+
+    private static final class Result {
+
+        private static final int MAX_ERRORS_SHOWN = 10;
+
+        private final long elapsedNanos;
+        private final Map<Operation, Latencies> latencies = new EnumMap<>(Operation.class);
+        private final Latencies total = new Latencies();
+        private final List<String> errors = new ArrayList<>();
+
+        private Result(long elapsedNanos) {
+            this.elapsedNanos = elapsedNanos;
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new Latencies());
+            }
+        }
+
+        void add(Map<Operation, Latencies> workerLatencies, List<String> workerErrors) {
+            workerLatencies.forEach((operation, values) -> {
+                latencies.get(operation).addAll(values);
+                total.addAll(values);
+            });
+            errors.addAll(workerErrors);
+        }
+
+        void sort() {
+            latencies.values().forEach(Latencies::sort);
+            total.sort();
+        }
+
+        void print() {
+            System.out.printf(Locale.ROOT, "%-9s %9s %7s %12s %10s %10s %10s %10s%n",
+                    "Operation", "Requests", "Errors", "Per second", "p50 (ms)", "p95 (ms)", "p99 (ms)", "max (ms)");
+            latencies.forEach((operation, values) -> print(operation.label(), values));
+            print("total", total);
+            if (total.errors > 0) {
+                System.out.printf(Locale.ROOT, "%n%d unexpected responses, including:%n", total.errors);
+                errors.stream().limit(MAX_ERRORS_SHOWN).forEach(error -> System.out.println("  " + error));
+            }
+        }
+
+        private void print(String label, Latencies values) {
+            System.out.printf(Locale.ROOT, "%-9s %9d %7d %12.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    label, values.size, values.errors, throughput(values),
+                    values.percentileMillis(0.5), values.percentileMillis(0.95),
+                    values.percentileMillis(0.99), values.percentileMillis(1));
+        }
+
+        void write(Path report, int concurrency) throws IOException {
+            Files.createDirectories(report.toAbsolutePath().getParent());
+            List<String> entries = new ArrayList<>();
+            latencies.forEach((operation, values) -> entries.add(json(operation.label(), values, concurrency)));
+            entries.add(json("total", total, concurrency));
+            try (Writer writer = Files.newBufferedWriter(report)) {
+                writer.write("[\n" + String.join(",\n", entries) + "\n]\n");
+            }
+        }
+
+        private String json(String label, Latencies values, int concurrency) {
+            return String.format(Locale.ROOT,
+                    "  {\"operation\": \"%s\", \"concurrency\": %d, \"requests\": %d, \"errors\": %d, \"throughputPerSecond\": %.1f, "
+                            + "\"p50Millis\": %.3f, \"p95Millis\": %.3f, \"p99Millis\": %.3f, \"maxMillis\": %.3f}",
+                    label, concurrency, values.size, values.errors, throughput(values),
+                    values.percentileMillis(0.5), values.percentileMillis(0.95),
+                    values.percentileMillis(0.99), values.percentileMillis(1));
+        }
+
+        private double throughput(Latencies values) {
+            return values.size / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.empoweru.empowerupasswordrecoveryservice.benchmarks;
+
+import com.empoweru.empowerupasswordrecoveryservice.mail.BatchingEmailDispatcher;
+import com.empoweru.empowerupasswordrecoveryservice.mail.EmailTemplateEngine;
+import com.empoweru.empowerupasswordrecoveryservice.mail.OutgoingEmail;
+import com.empoweru.empowerupasswordrecoveryservice.mail.OverflowPolicy;
+import com.empoweru.empowerupasswordrecoveryservice.mail.RetryBackoff;
+import com.empoweru.empowerupasswordrecoveryservice.mail.SmtpCircuitBreaker;
+import com.empoweru.empowerupasswordrecoveryservice.mail.SmtpProvider;
+import com.empoweru.empowerupasswordrecoveryservice.mail.SmtpRouter;
+import com.empoweru.empowerupasswordrecoveryservice.mail.SmtpTransportPool;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the MIME message for a rendered recovery code email, as the dispatcher does before
+ * handing it to the SMTP transport, and encoding it to the bytes that go on the wire.
+ * No connection is opened: the transport pool only connects when a batch is sent.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MimeMessageBenchmark {
+
+    private SmtpTransportPool smtpTransportPool;
+    private BatchingEmailDispatcher dispatcher;
+    private OutgoingEmail htmlOnly;
+    private OutgoingEmail withText;
+
+    @Setup
+    public void setUp() throws IOException {
+        JavaMailSenderImpl javaMailSender = new JavaMailSenderImpl();
+        javaMailSender.setHost("localhost");
+        smtpTransportPool = new SmtpTransportPool(javaMailSender.getSession(), "localhost", 25, "", "",
+                1, Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofSeconds(10), Duration.ofSeconds(1));
+        SmtpRouter smtpRouter = new SmtpRouter(List.of(
+                new SmtpProvider("none", 1, smtpTransportPool, new SmtpCircuitBreaker(1, Duration.ofSeconds(30)), null)));
+        dispatcher = new BatchingEmailDispatcher(javaMailSender, smtpRouter, Runnable::run,
+                50, Duration.ofMillis(200), 16, OverflowPolicy.REJECT,
+                1, new RetryBackoff(Duration.ZERO, Duration.ZERO), Duration.ZERO,
+                (emails, reason) -> { }, new RecoveryMetrics(new SimpleMeterRegistry(), false));
+
+        EmailTemplateEngine engine = EmailTemplateEngine.load(new PathMatchingResourcePatternResolver(), "classpath:templates/email");
+        withText = engine.render("recovery-code", Locale.forLanguageTag("pt-BR"), "user@empoweru.test", Map.of("code", "482913"));
+        htmlOnly = new OutgoingEmail(withText.to(), withText.subject(), withText.htmlContent());
+    }
+
+    @TearDown
+    public void tearDown() {
+        dispatcher.close();
+        smtpTransportPool.close();
+    }
+
+    @Benchmark
+    public MimeMessage htmlOnly() throws MessagingException {
+        return dispatcher.createMimeMessage(htmlOnly);
+    }
+
+    @Benchmark
+    public MimeMessage withTextAlternative() throws MessagingException {
+        return dispatcher.createMimeMessage(withText);
+    }
+
+    /**
+     * Builds the message and encodes it, including the quoted-printable body, as the transport would.
+     */
+    @Benchmark
+    public MimeMessage withTextAlternativeEncoded() throws MessagingException, IOException {
+        MimeMessage message = dispatcher.createMimeMessage(withText);
+        message.writeTo(OutputStream.nullOutputStream());
+        return message;
+    }
+}
@@ -0,0 +1,55 @@
+package com.empoweru.empowerupasswordrecoveryservice.benchmarks;
+
+import com.empoweru.empowerupasswordrecoveryservice.ratelimit.RateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rate limit decisions made by many threads at once, as during an enumeration burst:
+ * each thread limited under its own client key, and every thread limited under the same email.
+ * The buckets run out after their first few requests, so both mostly measure rejections.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private final RateLimiter limiter = new RateLimiter(5, Duration.ofMinutes(1));
+
+    @State(Scope.Thread)
+    public static class Client {
+        String key;
+
+        @Setup
+        public void setUp(ThreadParams threadParams) {
+            key = "10.0.0." + threadParams.getThreadIndex();
+        }
+    }
+
+    @Benchmark
+    public Duration ownKeyPerThread(Client client) {
+        return limiter.tryAcquire(client.key);
+    }
+
+    @Benchmark
+    public Duration sharedKey() {
+        return limiter.tryAcquire("victim@x.com");
+    }
+}
@@ -0,0 +1,200 @@
+package com.empoweru.empowerupasswordrecoveryservice.benchmarks;
+
+import com.empoweru.empowerupasswordrecoveryservice.RecoveryCodeHandler;
+import com.empoweru.empowerupasswordrecoveryservice.cache.RecoveryCodeCache;
+import com.empoweru.empowerupasswordrecoveryservice.codes.SecureCodeGenerator;
+import com.empoweru.empowerupasswordrecoveryservice.dtos.RequestPasswordRecoveryCodeDTO;
+import com.empoweru.empowerupasswordrecoveryservice.dtos.VerifyCodeDto;
+import com.empoweru.empowerupasswordrecoveryservice.mail.EmailTemplateEngine;
+import com.empoweru.empowerupasswordrecoveryservice.mail.OutgoingEmail;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics;
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailType;
+import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.RecoverCodeRepository;
+import com.empoweru.empowerupasswordrecoveryservice.services.CodeGeneratorService;
+import com.empoweru.empowerupasswordrecoveryservice.services.EmailSender;
+import com.empoweru.empowerupasswordrecoveryservice.services.PasswordHashingService;
+import com.empoweru.empowerupasswordrecoveryservice.services.RecoveryCodeIssuer;
+import com.empoweru.empowerupasswordrecoveryservice.services.RecoveryCodePurger;
+import com.empoweru.empowerupasswordrecoveryservice.services.RecoveryCodeService;
+import com.empoweru.empowerupasswordrecoveryservice.services.RequestThrottle;
+import com.empoweru.empowerupasswordrecoveryservice.services.UserExistenceIndex;
+import com.empoweru.empowerupasswordrecoveryservice.services.VerificationLockout;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import com.microsoft.azure.functions.HttpStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the full {@link RecoveryCodeHandler} functions, with the services wired as in the application
+ * but with in-memory repositories and an email sender that only renders the emails.
+ * BCrypt runs at strength 4, so the numbers show the cost of the request path itself; see
+ * {@link PasswordHashingBenchmark} for the cost of hashing at production strengths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecoveryFlowBenchmark {
+
+    private static final int USERS = 1024;
+
+    private RecoveryCodeHandler handler;
+    private RecoverCodeRepository recoverCodeRepository;
+    private PasswordHashingService passwordHashingService;
+    private String[] emails;
+    private Map<String, String> headers;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        InMemoryStore store = new InMemoryStore();
+        emails = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            emails[i] = "user" + i + "@empoweru.test";
+            store.addUser(emails[i]);
+        }
+        headers = Map.of("Accept-Language", "pt-BR,pt;q=0.9", "X-Forwarded-For", "203.0.113.7:52144");
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RecoveryMetrics recoveryMetrics = new RecoveryMetrics(registry, false);
+        Clock clock = Clock.systemUTC();
+        recoverCodeRepository = store.recoverCodeRepository();
+        RecoveryCodeCache cache = new RecoveryCodeCache(recoverCodeRepository::findByEmail, 10_000, clock);
+        CodeGeneratorService generator = new CodeGeneratorService(recoverCodeRepository, store.emailOutboxRepository(), cache,
+                new SecureCodeGenerator(6, "0123456789"));
+        // Coalescing would turn every repeated request into a cache hit, so the reissue window is disabled here.
+        RecoveryCodeIssuer issuer = new RecoveryCodeIssuer(generator, cache, recoveryMetrics, registry, Duration.ZERO, 10_000);
+        passwordHashingService = new PasswordHashingService(new BCryptPasswordEncoder(4), registry, 0, 1024, Duration.ofSeconds(5));
+        DataSource dataSource = InMemoryStore.proxy(DataSource.class, (proxy, method, args) -> null);
+        PlatformTransactionManager transactionManager = InMemoryStore.proxy(PlatformTransactionManager.class, (proxy, method, args) -> null);
+        // Like the rate limits below, the lockout never triggers, so that repeated wrong codes keep measuring the rejection.
+        VerificationLockout verificationLockout = new VerificationLockout(dataSource, transactionManager, clock, registry,
+                Integer.MAX_VALUE, Duration.ofMinutes(15), Duration.ofMinutes(15));
+        RecoveryCodeService recoveryCodeService = new RecoveryCodeService(recoverCodeRepository,
+                passwordHashingService, cache, recoveryMetrics, verificationLockout, clock);
+        UserExistenceIndex userExistenceIndex = new UserExistenceIndex(store.userRepository(), dataSource, transactionManager,
+                0.01, Duration.ofHours(1));
+        RequestThrottle throttle = new RequestThrottle(registry,
+                Integer.MAX_VALUE, Duration.ofMinutes(1), Integer.MAX_VALUE, Duration.ofMinutes(1),
+                Integer.MAX_VALUE, Duration.ofMinutes(1), Integer.MAX_VALUE, Duration.ofMinutes(1));
+        EmailTemplateEngine engine = EmailTemplateEngine.load(new PathMatchingResourcePatternResolver(), "classpath:templates/email");
+
+        handler = new RecoveryCodeHandler(new RenderingEmailSender(issuer, engine), userExistenceIndex, recoveryCodeService,
+                new RecoveryCodePurger(recoverCodeRepository, 500, Duration.ZERO, Duration.ofMinutes(1)), throttle, recoveryMetrics,
+                verificationLockout, (type, email, client, detail) -> {
+                });
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordHashingService.close();
+    }
+
+    @Benchmark
+    public HttpResponseMessage sendRecoveryCode() {
+        return expect(HttpStatus.OK, handler.sendRecoveryCode(
+                new StubHttpRequest<>(new RequestPasswordRecoveryCodeDTO(nextEmail()), headers), null));
+    }
+
+    /**
+     * A wrong code for an email with an active code, rejected from the recovery code cache.
+     */
+    @Benchmark
+    public HttpResponseMessage verifyWrongCode(ActiveCode activeCode) {
+        return expect(HttpStatus.BAD_REQUEST, handler.verifyRecoveryCode(
+                new StubHttpRequest<>(new VerifyCodeDto(activeCode.email, "000000", "new-password"), headers), null));
+    }
+
+    /**
+     * Requests a code and then resets the password with it.
+     */
+    @Benchmark
+    public void sendThenVerify(Blackhole blackhole) {
+        String email = nextEmail();
+        blackhole.consume(expect(HttpStatus.OK, handler.sendRecoveryCode(
+                new StubHttpRequest<>(new RequestPasswordRecoveryCodeDTO(email), headers), null)));
+        String code = recoverCodeRepository.findByEmail(email).map(RecoveryCode::getCode).orElseThrow();
+        blackhole.consume(expect(HttpStatus.OK, handler.verifyRecoveryCode(
+                new StubHttpRequest<>(new VerifyCodeDto(email, code, "new-password"), headers), null)));
+    }
+
+    @State(Scope.Benchmark)
+    public static class ActiveCode {
+        String email;
+
+        @Setup(Level.Iteration)
+        public void issue(RecoveryFlowBenchmark benchmark) {
+            email = benchmark.nextEmail();
+            benchmark.handler.sendRecoveryCode(new StubHttpRequest<>(new RequestPasswordRecoveryCodeDTO(email), benchmark.headers), null);
+        }
+    }
+
+    private String nextEmail() {
+        next = (next + 1) & (USERS - 1);
+        return emails[next];
+    }
+
+    private static HttpResponseMessage expect(HttpStatus status, HttpResponseMessage response) {
+        if (response.getStatus() != status) {
+            throw new IllegalStateException("Expected " + status + " but got " + response.getStatus() + ": " + response.getBody());
+        }
+        return response;
+    }
+
+    /**
+     * Email sender that renders every email like {@code EmailSenderService} but does not send it.
+     */
+    private record RenderingEmailSender(RecoveryCodeIssuer issuer, EmailTemplateEngine engine) implements EmailSender {
+
+        @Override
+        public RecoveryCodeIssuer.Issuance sendRecoveryCode(String email, Locale locale) {
+            RecoveryCodeIssuer.Issuance issuance = issuer.issue(email, locale);
+            compose(EmailType.RECOVERY_CODE.getTemplateId(), email, locale, EmailType.RECOVERY_CODE.templateValues(issuance.code().getCode()));
+            return issuance;
+        }
+
+        @Override
+        public void sendPasswordRecoveredSuccessfully(String email, Locale locale) {
+            compose(EmailType.PASSWORD_RECOVERED.getTemplateId(), email, locale, EmailType.PASSWORD_RECOVERED.templateValues(null));
+        }
+
+        @Override
+        public OutgoingEmail compose(String templateId, String to, Locale locale, Map<String, String> values) {
+            return engine.render(templateId, locale, to, values);
+        }
+
+        @Override
+        public void sendEmailAsync(String to, String subject, String htmlContent) {
+        }
+
+        @Override
+        public void sendEmail(String to, String subject, String htmlContent) {
+        }
+    }
+}
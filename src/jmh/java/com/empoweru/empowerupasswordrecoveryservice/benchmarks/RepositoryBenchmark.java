@@ -0,0 +1,120 @@
+package com.empoweru.empowerupasswordrecoveryservice.benchmarks;
+
+import com.empoweru.empowerupasswordrecoveryservice.EmpowerUPasswordRecoveryServiceApplication;
+import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.RecoverCodeRepository;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Spring Data JPA repositories with the plain JDBC ones of the {@code jdbc} profile, on the calls the
+ * recovery flows make. Each implementation boots the full application context in its own fork, against a real
+ * Postgres database configured through the environment the way the function app is, for example
+ * {@code SPRING_DATASOURCE_URL}, {@code SPRING_DATASOURCE_USERNAME} and {@code SPRING_DATASOURCE_PASSWORD}.
+ * The schema is migrated on startup, and the benchmark users and their codes are removed on tear down.
+ * Run with {@code -prof gc} for the allocation per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+
+    private static final int USERS = 256;
+    private static final String EMAIL_PREFIX = "repository-benchmark-";
+
+    @Param({"jpa", "jdbc"})
+    public String repositories;
+
+    private ConfigurableApplicationContext context;
+    private RecoverCodeRepository recoverCodeRepository;
+    private UserRepository userRepository;
+    private JdbcTemplate jdbcTemplate;
+    private String[] emails;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SpringApplication application = new SpringApplication(EmpowerUPasswordRecoveryServiceApplication.class);
+        // Only used by the mail sender, which is never reached here.
+        application.setDefaultProperties(Map.of("EMAIL_USERNAME", "", "EMAIL_PASSWORD", ""));
+        List<String> args = new ArrayList<>(List.of(
+                "--migrations.run-on-startup=true",
+                "--mail.outbox.poll-interval-millis=3600000",
+                "--users.index.refresh-interval-millis=3600000",
+                "--metrics.recovery.log-summary=false"));
+        if (repositories.equals("jdbc")) {
+            args.add("--spring.profiles.include=jdbc");
+        }
+        context = application.run(args.toArray(String[]::new));
+        recoverCodeRepository = context.getBean(RecoverCodeRepository.class);
+        userRepository = context.getBean(UserRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        emails = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            emails[i] = EMAIL_PREFIX + i + "@empoweru.test";
+            jdbcTemplate.update("INSERT INTO users (id, name, email, password, gender) VALUES (?, 'Benchmark', ?, '', 'O') "
+                    + "ON CONFLICT (email) DO NOTHING", UUID.randomUUID(), emails[i]);
+            recoverCodeRepository.upsert(emails[i], "123456", 3600);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM recovery_code WHERE email LIKE ?", EMAIL_PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM users WHERE email LIKE ?", EMAIL_PREFIX + "%");
+        context.close();
+    }
+
+    @Benchmark
+    public Boolean existsByEmail() {
+        return userRepository.existsByEmail(nextEmail());
+    }
+
+    @Benchmark
+    public Optional<RecoveryCode> findByEmail() {
+        return recoverCodeRepository.findByEmail(nextEmail());
+    }
+
+    @Benchmark
+    public RecoveryCode upsert() {
+        return recoverCodeRepository.upsert(nextEmail(), "123456", 3600);
+    }
+
+    /**
+     * A wrong code, which locks and reads the code row but writes nothing.
+     */
+    @Benchmark
+    public String verifyWrongCode() {
+        return recoverCodeRepository.verifyAndResetPassword(nextEmail(), "000000", "");
+    }
+
+    private String nextEmail() {
+        next = (next + 1) & (USERS - 1);
+        return emails[next];
+    }
+}
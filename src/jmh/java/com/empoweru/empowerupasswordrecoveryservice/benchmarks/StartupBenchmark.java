@@ -0,0 +1,205 @@
+package com.empoweru.empowerupasswordrecoveryservice.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Measures time-to-first-response of a cold instance, by starting {@link FirstResponse} in a fresh JVM per run:
+ * <ul>
+ *     <li>{@code baseline}: a plain JVM, running the migrations on startup.</li>
+ *     <li>{@code jdbc}: the baseline with the {@code jdbc} profile, so the repositories run on plain JDBC
+ *     and Hibernate is not started.</li>
+ *     <li>{@code optimized}: the Spring AOT initializer (when the classes were built with the {@code startup} profile)
+ *     and a class data sharing archive trained by one extra run, with migrations left to deploy time.</li>
+ * </ul>
+ * Each run reports the wall time from launching the JVM to the first response, and the context refresh and
+ * first response times measured from JVM start. Arguments are passed on to the application, so the database is
+ * configured with {@code --spring.datasource.url=...} and friends; the schema is migrated by the baseline runs.
+ * Results are printed and written as JSON to {@code startup.report}.
+ */
+public final class StartupBenchmark {
+
+    private static final String AOT_INITIALIZER =
+            "com.empoweru.empowerupasswordrecoveryservice.EmpowerUPasswordRecoveryServiceApplication__ApplicationContextInitializer";
+
+    public static void main(String[] args) throws Exception {
+        int runs = Integer.getInteger("startup.runs", 5);
+        Path report = Path.of(System.getProperty("startup.report", "target/startup-result.json"));
+        Path workDirectory = report.resolveSibling("startup-benchmark");
+        Path archive = workDirectory.resolve("app.jsa");
+        String classPath = jarClassPath(workDirectory);
+
+        List<String> optimizedJvmArgs = new ArrayList<>();
+        if (isAotProcessed()) {
+            optimizedJvmArgs.add("-Dspring.aot.enabled=true");
+        } else {
+            System.out.println("No AOT initializer on the classpath, build with -P startup to include Spring AOT.");
+        }
+        List<String> appArgs = new ArrayList<>(Arrays.asList(args));
+        List<String> optimizedAppArgs = new ArrayList<>(appArgs);
+        optimizedAppArgs.add("--migrations.run-on-startup=false");
+
+        List<String> jdbcAppArgs = new ArrayList<>(appArgs);
+        jdbcAppArgs.add("--spring.profiles.include=jdbc");
+
+        Map<String, List<Run>> results = new LinkedHashMap<>();
+        List<Run> baseline = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            baseline.add(launch(classPath, List.of(), appArgs));
+        }
+        results.put("baseline", baseline);
+
+        List<Run> jdbc = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            jdbc.add(launch(classPath, List.of(), jdbcAppArgs));
+        }
+        results.put("jdbc", jdbc);
+
+        Files.deleteIfExists(archive);
+        List<String> trainingJvmArgs = new ArrayList<>(optimizedJvmArgs);
+        trainingJvmArgs.add("-XX:ArchiveClassesAtExit=" + archive);
+        launch(classPath, trainingJvmArgs, optimizedAppArgs);
+        optimizedJvmArgs.add("-XX:SharedArchiveFile=" + archive);
+        optimizedJvmArgs.add("-Xshare:auto");
+
+        List<Run> optimized = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            optimized.add(launch(classPath, optimizedJvmArgs, optimizedAppArgs));
+        }
+        results.put("optimized", optimized);
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-10s %5s %14s %14s %14s%n", "Variant", "Runs", "Launch (ms)", "Context (ms)", "First (ms)");
+        results.forEach(StartupBenchmark::print);
+        write(report, results);
+        System.out.println("Startup result is saved to " + report.toAbsolutePath());
+    }
+
+    private static boolean isAotProcessed() {
+        try {
+            Class.forName(AOT_INITIALIZER, false, StartupBenchmark.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Class data sharing only accepts jars on the class path, so the class directories are packed into jars,
+     * and every variant runs from the same class path.
+     */
+    private static String jarClassPath(Path workDirectory) throws IOException {
+        Files.createDirectories(workDirectory);
+        List<String> entries = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            Path path = Path.of(entry);
+            if (!Files.isDirectory(path)) {
+                entries.add(entry);
+                continue;
+            }
+            Path jar = workDirectory.resolve(path.getFileName() + ".jar");
+            try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar)); Stream<Path> files = Files.walk(path)) {
+                // Directory entries are kept, as classpath scanning resolves packages through them.
+                for (Path file : (Iterable<Path>) files.filter(file -> !file.equals(path)).sorted()::iterator) {
+                    String name = path.relativize(file).toString().replace(File.separatorChar, '/');
+                    boolean directory = Files.isDirectory(file);
+                    out.putNextEntry(new JarEntry(directory ? name + "/" : name));
+                    if (!directory) {
+                        Files.copy(file, out);
+                    }
+                    out.closeEntry();
+                }
+            }
+            entries.add(jar.toString());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static Run launch(String classPath, List<String> jvmArgs, List<String> appArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-Dstartup.email=" + System.getProperty("startup.email", "startup-benchmark@empoweru.test"));
+        command.add("-cp");
+        command.add(classPath);
+        command.add(FirstResponse.class.getName());
+        command.addAll(appArgs);
+
+        long launched = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Run run = null;
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (run == null && line.startsWith(FirstResponse.RESULT_PREFIX)) {
+                    long launchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched);
+                    String[] fields = line.substring(FirstResponse.RESULT_PREFIX.length()).split(" ");
+                    run = new Run(launchMillis, Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2]);
+                } else {
+                    output.add(line);
+                }
+            }
+        }
+        if (process.waitFor() != 0 || run == null) {
+            output.forEach(System.err::println);
+            throw new IllegalStateException("Startup run failed with exit code " + process.exitValue());
+        }
+        System.out.println(run);
+        return run;
+    }
+
+    private static void print(String variant, List<Run> runs) {
+        System.out.printf(Locale.ROOT, "%-10s %5d %14d %14d %14d%n", variant, runs.size(),
+                median(runs, Run::launchMillis), median(runs, Run::contextMillis), median(runs, Run::firstResponseMillis));
+    }
+
+    private static void write(Path report, Map<String, List<Run>> results) throws IOException {
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        List<String> variants = new ArrayList<>();
+        results.forEach((variant, runs) -> variants.add(json(variant, runs)));
+        try (Writer writer = Files.newBufferedWriter(report)) {
+            writer.write("[\n" + String.join(",\n", variants) + "\n]\n");
+        }
+    }
+
+    private static String json(String variant, List<Run> runs) {
+        return String.format(Locale.ROOT,
+                "  {\"variant\": \"%s\", \"runs\": %d, \"launchToFirstResponseMillis\": %d, \"contextMillis\": %d, \"firstResponseMillis\": %d}",
+                variant, runs.size(), median(runs, Run::launchMillis), median(runs, Run::contextMillis), median(runs, Run::firstResponseMillis));
+    }
+
+    private static long median(List<Run> runs, ToLongFunction<Run> metric) {
+        long[] values = runs.stream().mapToLong(metric).sorted().toArray();
+        return values[values.length / 2];
+    }
+
+    /**
+     * Timings of one cold start. The launch time is measured by this process, the others from JVM start.
+     */
+    private record Run(long launchMillis, long contextMillis, long firstResponseMillis, String status) {
+
+        @Override
+        public String toString() {
+            return "launch to first response " + launchMillis + " ms, context " + contextMillis
+                    + " ms, first response " + firstResponseMillis + " ms (" + status + ")";
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.empoweru.empowerupasswordrecoveryservice.benchmarks;
+
+import com.microsoft.azure.functions.HttpMethod;
+import com.microsoft.azure.functions.HttpRequestMessage;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import com.microsoft.azure.functions.HttpStatus;
+import com.microsoft.azure.functions.HttpStatusType;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Minimal stand-in for the HTTP request the Azure Functions host passes to the handler.
+ */
+final class StubHttpRequest<T> implements HttpRequestMessage<Optional<T>> {
+
+    private final T body;
+    private final Map<String, String> headers;
+
+    StubHttpRequest(T body, Map<String, String> headers) {
+        this.body = body;
+        this.headers = headers;
+    }
+
+    @Override
+    public URI getUri() {
+        return URI.create("http://localhost/api");
+    }
+
+    @Override
+    public HttpMethod getHttpMethod() {
+        return HttpMethod.POST;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public Map<String, String> getQueryParameters() {
+        return Map.of();
+    }
+
+    @Override
+    public Optional<T> getBody() {
+        return Optional.ofNullable(body);
+    }
+
+    @Override
+    public HttpResponseMessage.Builder createResponseBuilder(HttpStatus status) {
+        return new Response(status);
+    }
+
+    @Override
+    public HttpResponseMessage.Builder createResponseBuilder(HttpStatusType status) {
+        return new Response(status);
+    }
+
+    static final class Response implements HttpResponseMessage, HttpResponseMessage.Builder {
+
+        private HttpStatusType status;
+        private final Map<String, String> headers = new HashMap<>(4);
+        private Object body;
+
+        private Response(HttpStatusType status) {
+            this.status = status;
+        }
+
+        @Override
+        public HttpResponseMessage.Builder status(HttpStatusType status) {
+            this.status = status;
+            return this;
+        }
+
+        @Override
+        public HttpResponseMessage.Builder header(String key, String value) {
+            headers.put(key, value);
+            return this;
+        }
+
+        @Override
+        public HttpResponseMessage.Builder body(Object body) {
+            this.body = body;
+            return this;
+        }
+
+        @Override
+        public HttpResponseMessage build() {
+            return this;
+        }
+
+        @Override
+        public HttpStatusType getStatus() {
+            return status;
+        }
+
+        @Override
+        public String getHeader(String key) {
+            return headers.get(key);
+        }
+
+        @Override
+        public Object getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.empoweru.empowerupasswordrecoveryservice.benchmarks;
+
+import com.empoweru.empowerupasswordrecoveryservice.mail.CompiledTemplate;
+import com.empoweru.empowerupasswordrecoveryservice.mail.EmailTemplateEngine;
+import com.empoweru.empowerupasswordrecoveryservice.mail.OutgoingEmail;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares rendering the recovery code email with the precompiled {@link EmailTemplateEngine}
+ * against the text-block concatenation it replaced. Run with {@code -prof gc} to compare allocation per email.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateRenderingBenchmark {
+
+    private EmailTemplateEngine engine;
+    private CompiledTemplate subject;
+    private CompiledTemplate htmlBody;
+    private Locale locale;
+    private String code;
+
+    @Setup
+    public void setUp() throws IOException {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        engine = EmailTemplateEngine.load(resolver, "classpath:templates/email");
+        subject = CompiledTemplate.compile(read(resolver, "subject.txt").strip(), false);
+        htmlBody = CompiledTemplate.compile(read(resolver, "body.html"), true);
+        locale = Locale.forLanguageTag("pt-BR");
+        code = "482913";
+    }
+
+    @Benchmark
+    public OutgoingEmail concatenation() {
+        String subject = "Your code is: " + code;
+        String htmlContent = """
+                <html>
+                <body>
+                    <h2>Dear User,</h2>
+                    <p>We received a request to reset your password for your <b>EmpowerU</b> account.</p>
+                    <p>Your password reset code is: <b>""" + code + """
+                    </b></p>
+                    <p>If you did not request a password reset, please ignore this email or contact support if you have any concerns.</p>
+                    <br/>
+                    <p>Best regards,<br/>The EmpowerU Team</p>
+                </body>
+                </html>
+                """;
+        return new OutgoingEmail("user@empoweru.test", subject, htmlContent);
+    }
+
+    /**
+     * Renders the same parts as {@link #concatenation()}: the subject and the HTML body.
+     */
+    @Benchmark
+    public OutgoingEmail compiledSubjectAndHtml() {
+        Map<String, String> values = Map.of("code", code);
+        return new OutgoingEmail("user@empoweru.test", subject.render(values), htmlBody.render(values));
+    }
+
+    /**
+     * Renders the subject, the HTML body and the plain-text alternative.
+     */
+    @Benchmark
+    public OutgoingEmail compiledTemplate() {
+        return engine.render("recovery-code", null, "user@empoweru.test", Map.of("code", code));
+    }
+
+    @Benchmark
+    public OutgoingEmail compiledTemplateLocalized() {
+        return engine.render("recovery-code", locale, "user@empoweru.test", Map.of("code", code));
+    }
+
+    private static String read(PathMatchingResourcePatternResolver resolver, String file) throws IOException {
+        return resolver.getResource("classpath:templates/email/recovery-code/" + file).getContentAsString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,86 @@
+package com.empoweru.empowerupasswordrecoveryservice.benchmarks;
+
+import com.empoweru.empowerupasswordrecoveryservice.cache.BloomFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lookup throughput of the {@link BloomFilter} behind the user existence index,
+ * for registered emails and for the random emails of an enumeration burst,
+ * against an exact concurrent set of the same emails.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class UserExistenceLookupBenchmark {
+
+    private static final int PROBES = 4096;
+
+    @Param({"100000", "1000000"})
+    private int users;
+
+    private BloomFilter filter;
+    private Set<String> exact;
+    private String[] registered;
+    private String[] unknown;
+
+    @Setup
+    public void setUp() {
+        filter = BloomFilter.create(users * 2L, 0.01);
+        exact = ConcurrentHashMap.newKeySet(users);
+        for (int i = 0; i < users; i++) {
+            String email = "user" + i + "@empoweru.test";
+            filter.put(email);
+            exact.add(email);
+        }
+        registered = new String[PROBES];
+        unknown = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            registered[i] = "user" + (i * 7919 % users) + "@empoweru.test";
+            unknown[i] = "attacker" + i + "@example.com";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int advance() {
+            next = (next + 1) & (PROBES - 1);
+            return next;
+        }
+    }
+
+    @Benchmark
+    public boolean bloomFilterRegistered(Cursor cursor) {
+        return filter.mightContain(registered[cursor.advance()]);
+    }
+
+    @Benchmark
+    public boolean bloomFilterUnknown(Cursor cursor) {
+        return filter.mightContain(unknown[cursor.advance()]);
+    }
+
+    @Benchmark
+    public boolean exactSetUnknown(Cursor cursor) {
+        return exact.contains(unknown[cursor.advance()]);
+    }
+}
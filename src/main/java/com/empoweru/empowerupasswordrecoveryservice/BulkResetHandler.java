@@ -0,0 +1,99 @@
+package com.empoweru.empowerupasswordrecoveryservice;
+
+import com.empoweru.empowerupasswordrecoveryservice.bulk.BulkResetReport;
+import com.empoweru.empowerupasswordrecoveryservice.bulk.EmailListFormat;
+import com.empoweru.empowerupasswordrecoveryservice.services.BulkResetService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.functions.*;
+import com.microsoft.azure.functions.annotation.AuthorizationLevel;
+import com.microsoft.azure.functions.annotation.FunctionName;
+import com.microsoft.azure.functions.annotation.HttpTrigger;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Handler class for the Azure Function that forces password resets in bulk.
+ * It is kept apart from {@link RecoveryCodeHandler} because it is an administrative operation, callable only with
+ * the function app's admin key.
+ */
+@Component
+@AllArgsConstructor
+public class BulkResetHandler {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final BulkResetService bulkResetService;
+
+    /**
+     * Azure Function that issues a recovery code to every registered email in a list and queues the emails
+     * that deliver them. The list is sent as the request body, as NDJSON or, with a {@code text/csv} content type, CSV.
+     * The optional {@code locale} query parameter sets the language of the emails.
+     *
+     * @param request The HTTP request containing the list of emails.
+     * @param context The execution context of the Azure Function.
+     * @return An HTTP response message with the {@link BulkResetReport} as JSON.
+     */
+    @FunctionName("bulkResetPasswords")
+    public HttpResponseMessage bulkResetPasswords(
+            @HttpTrigger(name = "request", methods = {HttpMethod.POST}, authLevel = AuthorizationLevel.ADMIN) HttpRequestMessage<Optional<String>> request,
+            ExecutionContext context) {
+        String body = request.getBody().orElse("");
+        if (body.isBlank()) {
+            return createResponse(request, "A list of emails is required!", HttpStatus.BAD_REQUEST, "application/text");
+        }
+
+        String locale = request.getQueryParameters().get("locale");
+        BulkResetReport report;
+        try {
+            report = bulkResetService.reset(new StringReader(body), EmailListFormat.fromContentType(header(request, "Content-Type")),
+                    locale == null || locale.isBlank() ? null : Locale.forLanguageTag(locale));
+        } catch (IOException e) {
+            return createResponse(request, "The list of emails could not be read.", HttpStatus.BAD_REQUEST, "application/text");
+        }
+
+        try {
+            return createResponse(request, OBJECT_MAPPER.writeValueAsString(report), HttpStatus.OK, "application/json");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the bulk reset report", e);
+        }
+    }
+
+    /**
+     * Helper method to read a request header, whose name the Functions host does not normalize.
+     *
+     * @param request The original HTTP request.
+     * @param name The header name.
+     * @return The header value, or null if the header is missing.
+     */
+    private String header(HttpRequestMessage<?> request, String name) {
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper method to create an HTTP response message.
+     *
+     * @param request The original HTTP request.
+     * @param body The response body.
+     * @param status The HTTP status code for the response.
+     * @param contentType The content type of the body.
+     * @return An HttpResponseMessage configured with the specified status and body.
+     */
+    private HttpResponseMessage createResponse(HttpRequestMessage<?> request, String body, HttpStatus status, String contentType) {
+        return request.createResponseBuilder(status)
+                .body(body)
+                .header("Content-Type", contentType)
+                .build();
+    }
+}
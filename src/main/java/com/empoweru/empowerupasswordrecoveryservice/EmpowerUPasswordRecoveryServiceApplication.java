@@ -2,8 +2,10 @@ package com.empoweru.empowerupasswordrecoveryservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class EmpowerUPasswordRecoveryServiceApplication {
 
     public static void main(String[] args) {
@@ -1,18 +1,36 @@
 package com.empoweru.empowerupasswordrecoveryservice;
 
+import com.empoweru.empowerupasswordrecoveryservice.audit.AuditEventType;
+import com.empoweru.empowerupasswordrecoveryservice.audit.AuditLog;
 import com.empoweru.empowerupasswordrecoveryservice.dtos.RequestPasswordRecoveryCodeDTO;
 import com.empoweru.empowerupasswordrecoveryservice.dtos.VerifyCodeDto;
-import com.empoweru.empowerupasswordrecoveryservice.repositories.UserRepository;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryRequestEvent;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryStageEvent;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Outcome;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Stage;
+import com.empoweru.empowerupasswordrecoveryservice.models.PasswordResetStatus;
 import com.empoweru.empowerupasswordrecoveryservice.services.EmailSender;
+import com.empoweru.empowerupasswordrecoveryservice.services.RecoveryCodeIssuer;
+import com.empoweru.empowerupasswordrecoveryservice.services.RecoveryCodePurger;
 import com.empoweru.empowerupasswordrecoveryservice.services.RecoveryCodeService;
+import com.empoweru.empowerupasswordrecoveryservice.services.RequestThrottle;
+import com.empoweru.empowerupasswordrecoveryservice.services.UserExistenceIndex;
+import com.empoweru.empowerupasswordrecoveryservice.services.VerificationLockout;
 import com.microsoft.azure.functions.*;
 import com.microsoft.azure.functions.annotation.AuthorizationLevel;
 import com.microsoft.azure.functions.annotation.FunctionName;
 import com.microsoft.azure.functions.annotation.HttpTrigger;
+import com.microsoft.azure.functions.annotation.TimerTrigger;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Handler class for Azure Functions related to recovery code operations.
@@ -23,12 +41,20 @@ import java.util.Optional;
 public class RecoveryCodeHandler {
 
     private final EmailSender emailSender;
-    private final UserRepository userRepository;
+    private final UserExistenceIndex userExistenceIndex;
     private final RecoveryCodeService recoveryCodeService;
+    private final RecoveryCodePurger recoveryCodePurger;
+    private final RequestThrottle requestThrottle;
+    private final RecoveryMetrics recoveryMetrics;
+    private final VerificationLockout verificationLockout;
+    private final AuditLog auditLog;
 
     /**
      * Azure Function for sending a recovery code to a user's email.
      * Validates the provided email and sends a recovery code if the email exists in the system.
+     * Each call is timed by {@link RecoveryMetrics} and tagged with its outcome, and spanned by a
+     * {@link RecoveryRequestEvent} for Flight Recorder. Every issued code is recorded in the {@link AuditLog},
+     * and so is every request coalesced into an earlier one, as a separate event type.
      *
      * @param request The HTTP request containing the user's email.
      * @param context The execution context of the Azure Function.
@@ -38,25 +64,59 @@ public class RecoveryCodeHandler {
     public HttpResponseMessage sendRecoveryCode(
             @HttpTrigger(name = "request", methods = {HttpMethod.POST}, authLevel = AuthorizationLevel.ANONYMOUS) HttpRequestMessage<Optional<RequestPasswordRecoveryCodeDTO>> request,
             ExecutionContext context){
-        RequestPasswordRecoveryCodeDTO requestBody = request.getBody()
-                .orElseThrow(() -> new IllegalArgumentException("Invalid request body"));
+        long started = System.nanoTime();
+        RecoveryRequestEvent event = RecoveryRequestEvent.start(RecoveryMetrics.Function.SEND_CODE);
+        Outcome outcome = Outcome.FAILED;
+        try {
+            RequestPasswordRecoveryCodeDTO requestBody = request.getBody()
+                    .orElseThrow(() -> new IllegalArgumentException("Invalid request body"));
 
-        String email = requestBody.getEmail();
+            String email = requestBody.getEmail();
+            event.setEmail(email);
 
-        if (email == null || email.isEmpty()) {
-            return createResponse(request, "Email is required!", HttpStatus.BAD_REQUEST);
-        }
+            if (email == null || email.isEmpty()) {
+                outcome = Outcome.BAD_REQUEST;
+                return createResponse(request, "Email is required!", HttpStatus.BAD_REQUEST);
+            }
 
-        if (!userRepository.existsByEmail(email)) {
-            return createResponse(request, "Email not found!", HttpStatus.NOT_FOUND);
-        }
+            String client = resolveClientAddress(request);
+            Duration retryAfter = requestThrottle.acquireSendCode(email, client);
+            if (!retryAfter.isZero()) {
+                outcome = Outcome.THROTTLED;
+                return createTooManyRequestsResponse(request, retryAfter);
+            }
+
+            long lookupStarted = System.nanoTime();
+            RecoveryStageEvent lookupEvent = RecoveryStageEvent.start(Stage.USER_LOOKUP, email);
+            boolean exists = userExistenceIndex.exists(email);
+            recoveryMetrics.recordStage(Stage.USER_LOOKUP, exists ? Outcome.OK : Outcome.NOT_FOUND, lookupStarted);
+            lookupEvent.finish(exists ? Outcome.OK : Outcome.NOT_FOUND);
+            if (!exists) {
+                outcome = Outcome.NOT_FOUND;
+                return createResponse(request, "Email not found!", HttpStatus.NOT_FOUND);
+            }
 
-        return createResponse(request, emailSender.sendRecoveryCode(email), HttpStatus.OK);
+            RecoveryCodeIssuer.Issuance issuance = emailSender.sendRecoveryCode(email, resolveLocale(request));
+            if (issuance.isIssued()) {
+                auditLog.record(AuditEventType.CODE_ISSUED, email, client, null);
+            } else {
+                auditLog.record(AuditEventType.CODE_COALESCED, email, client, issuance.coalesced());
+            }
+            outcome = Outcome.OK;
+            return createResponse(request, "A recovery code has been sent to your email!", HttpStatus.OK);
+        } finally {
+            recoveryMetrics.recordRequest(RecoveryMetrics.Function.SEND_CODE, outcome, started);
+            event.finish(outcome);
+        }
     }
 
     /**
      * Azure Function for verifying a recovery code submitted by a user.
      * Validates the recovery code and updates the user's password if the code is valid.
+     * An email locked out after too many wrong codes is answered with 429 until its lockout ends.
+     * Each call is timed by {@link RecoveryMetrics} and tagged with its outcome, and spanned by a
+     * {@link RecoveryRequestEvent} for Flight Recorder. Every verification that reaches the code check,
+     * changing the password or not, is recorded in the {@link AuditLog}.
      *
      * @param request The HTTP request containing the verification data (email, code, new password).
      * @param context The execution context of the Azure Function.
@@ -66,32 +126,144 @@ public class RecoveryCodeHandler {
     public HttpResponseMessage verifyRecoveryCode(
             @HttpTrigger(name = "request", methods = {HttpMethod.POST}, authLevel = AuthorizationLevel.ANONYMOUS) HttpRequestMessage<Optional<VerifyCodeDto>> request,
             ExecutionContext context) {
+        long started = System.nanoTime();
+        RecoveryRequestEvent event = RecoveryRequestEvent.start(RecoveryMetrics.Function.VERIFY_CODE);
+        Outcome outcome = Outcome.FAILED;
+        try {
+            VerifyCodeDto requestBody = request.getBody().orElseThrow(() -> new IllegalArgumentException("Invalid request body"));
+            String email = requestBody.getEmail();
+            event.setEmail(email);
+            String code = requestBody.getCode();
+            String password = requestBody.getPassword();
 
-        VerifyCodeDto requestBody = request.getBody().orElseThrow(() -> new IllegalArgumentException("Invalid request body"));
-        String email = requestBody.getEmail();
-        String code = requestBody.getCode();
-        String password = requestBody.getPassword();
+            if (email.isEmpty() || code.isEmpty() || password.isEmpty()) {
+                outcome = Outcome.BAD_REQUEST;
+                return createResponse(request, "Email, code and password are required!", HttpStatus.BAD_REQUEST);
+            }
 
-        if (email.isEmpty() || code.isEmpty() || password.isEmpty()) {
-            return createResponse(request, "Email, code and password are required!", HttpStatus.BAD_REQUEST);
-        }
+            String client = resolveClientAddress(request);
+            Duration retryAfter = requestThrottle.acquireVerifyCode(email, client);
+            if (!retryAfter.isZero()) {
+                outcome = Outcome.THROTTLED;
+                return createTooManyRequestsResponse(request, retryAfter);
+            }
+
+            long lookupStarted = System.nanoTime();
+            RecoveryStageEvent lookupEvent = RecoveryStageEvent.start(Stage.USER_LOOKUP, email);
+            boolean mightExist = userExistenceIndex.mightExist(email);
+            recoveryMetrics.recordStage(Stage.USER_LOOKUP, mightExist ? Outcome.OK : Outcome.NOT_FOUND, lookupStarted);
+            lookupEvent.finish(mightExist ? Outcome.OK : Outcome.NOT_FOUND);
+            if (!mightExist) {
+                outcome = Outcome.NOT_FOUND;
+                auditLog.record(AuditEventType.CODE_REJECTED, email, client, outcome.getTag());
+                return createResponse(request, "Email not found!", HttpStatus.NOT_FOUND);
+            }
 
-        if (!userRepository.existsByEmail(email)) {
-            return createResponse(request, "Email not found!", HttpStatus.NOT_FOUND);
+            PasswordResetStatus status;
+            try {
+                status = recoveryCodeService.verifyAndResetPassword(email, code, password);
+            } catch (RejectedExecutionException e) {
+                outcome = Outcome.REJECTED;
+                return createResponse(request, "Too many password resets in progress, please try again later.", HttpStatus.SERVICE_UNAVAILABLE);
+            }
+
+            outcome = Outcome.of(status);
+            auditLog.record(status == PasswordResetStatus.OK ? AuditEventType.PASSWORD_CHANGED : AuditEventType.CODE_REJECTED,
+                    email, client, status == PasswordResetStatus.OK ? null : outcome.getTag());
+            return switch (status) {
+                case OK -> {
+                    emailSender.sendPasswordRecoveredSuccessfully(email, resolveLocale(request));
+                    yield createResponse(request, "Password updated successfully!", HttpStatus.OK);
+                }
+                case USER_NOT_FOUND -> createResponse(request, "Email not found!", HttpStatus.NOT_FOUND);
+                case INVALID_CODE -> createResponse(request, "Invalid recovery code!", HttpStatus.BAD_REQUEST);
+                case EXPIRED_CODE -> createResponse(request, "Recovery code has expired!", HttpStatus.BAD_REQUEST);
+                case LOCKED -> createTooManyRequestsResponse(request, verificationLockout.lockedFor(email));
+            };
+        } finally {
+            recoveryMetrics.recordRequest(RecoveryMetrics.Function.VERIFY_CODE, outcome, started);
+            event.finish(outcome);
         }
+    }
 
-        try {
-            if (!recoveryCodeService.isVerificationCodeValid(email, code)) {
-                return createResponse(request, "Invalid recovery code!", HttpStatus.BAD_REQUEST);
+    /**
+     * Azure Function that deletes expired recovery codes on the schedule set by the
+     * {@code RECOVERY_CODE_PURGE_SCHEDULE} app setting.
+     *
+     * @param timerInfo The timer schedule status, as JSON.
+     * @param context The execution context of the Azure Function.
+     */
+    @FunctionName("purgeExpiredRecoveryCodes")
+    public void purgeExpiredRecoveryCodes(
+            @TimerTrigger(name = "timerInfo", schedule = "%RECOVERY_CODE_PURGE_SCHEDULE%") String timerInfo,
+            ExecutionContext context) {
+        RecoveryCodePurger.Result result = recoveryCodePurger.purgeExpired();
+        context.getLogger().info("Purged " + result.deleted() + " expired recovery codes in " + result.batches()
+                + " batches, " + result.elapsed().toMillis() + " ms.");
+    }
+
+    /**
+     * Helper method to pick the locale for emails from the request's Accept-Language header.
+     *
+     * @param request The original HTTP request.
+     * @return The most preferred locale, or null if the header is missing or malformed.
+     */
+    private Locale resolveLocale(HttpRequestMessage<?> request) {
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (header.getKey().equalsIgnoreCase("Accept-Language")) {
+                try {
+                    List<Locale.LanguageRange> ranges = Locale.LanguageRange.parse(header.getValue());
+                    return ranges.isEmpty() ? null : Locale.forLanguageTag(ranges.get(0).getRange());
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
             }
-            recoveryCodeService.updatePassword(email, password);
-            recoveryCodeService.deleteAllByEmail(email);
-            emailSender.sendPasswordRecoveredSuccessfully(email);
+        }
+        return null;
+    }
 
-            return createResponse(request, "Password updated successfully!", HttpStatus.OK);
-        } catch (Exception e) {
-            return createResponse(request, e.getMessage(), HttpStatus.BAD_REQUEST);
+    /**
+     * Helper method to identify the calling client from the last address in the X-Forwarded-For header,
+     * which the Azure Functions front end appends with the caller's address and port. Earlier addresses are
+     * whatever the client sent in the header itself, so they are ignored.
+     *
+     * @param request The original HTTP request.
+     * @return The client's IP address, or null if the header is missing.
+     */
+    private String resolveClientAddress(HttpRequestMessage<?> request) {
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (header.getKey().equalsIgnoreCase("X-Forwarded-For")) {
+                String value = header.getValue();
+                String address = value.substring(value.lastIndexOf(',') + 1).trim();
+                if (address.startsWith("[")) {
+                    int end = address.indexOf(']');
+                    return end > 0 ? address.substring(1, end) : address;
+                }
+                int colon = address.indexOf(':');
+                // A single colon separates an IPv4 address from its port; more than one means a bare IPv6 address.
+                if (colon > 0 && colon == address.lastIndexOf(':')) {
+                    return address.substring(0, colon);
+                }
+                return address.isEmpty() ? null : address;
+            }
         }
+        return null;
+    }
+
+    /**
+     * Helper method to create a 429 response telling the client when to retry.
+     *
+     * @param request The original HTTP request.
+     * @param retryAfter How long the client should wait before retrying.
+     * @return An HttpResponseMessage with status 429 and a Retry-After header.
+     */
+    private HttpResponseMessage createTooManyRequestsResponse(HttpRequestMessage<?> request, Duration retryAfter) {
+        long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        return request.createResponseBuilder(HttpStatus.TOO_MANY_REQUESTS)
+                .body("Too many requests, please try again later.")
+                .header("Content-Type", "application/text")
+                .header("Retry-After", String.valueOf(seconds))
+                .build();
     }
 
     /**
@@ -0,0 +1,13 @@
+package com.empoweru.empowerupasswordrecoveryservice.audit;
+
+/**
+ * One entry of the recovery audit journal.
+ *
+ * @param timestamp When the event happened, in milliseconds since the epoch.
+ * @param type What happened.
+ * @param email The email the event is about.
+ * @param client The client address the request came from, or {@code null} if unknown.
+ * @param detail More about the event, depending on its type, or {@code null}.
+ */
+public record AuditEvent(long timestamp, AuditEventType type, String email, String client, String detail) {
+}
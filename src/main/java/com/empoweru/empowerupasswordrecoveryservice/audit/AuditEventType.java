@@ -0,0 +1,15 @@
+package com.empoweru.empowerupasswordrecoveryservice.audit;
+
+/**
+ * Kind of a recovery audit event. The journal stores the ordinal, so new types must only be appended.
+ */
+public enum AuditEventType {
+    /** A recovery code was issued and its email queued; the detail is {@code bulk} for a forced reset. */
+    CODE_ISSUED,
+    /** A code verification failed; the detail is the outcome, such as {@code invalid}, {@code expired} or {@code locked}. */
+    CODE_REJECTED,
+    /** A code was verified and the password changed. */
+    PASSWORD_CHANGED,
+    /** A code request shared another request's code and sent no email; the detail is {@code in-flight} or {@code recently-issued}. */
+    CODE_COALESCED
+}
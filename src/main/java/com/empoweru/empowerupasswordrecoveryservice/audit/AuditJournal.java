@@ -0,0 +1,231 @@
+package com.empoweru.empowerupasswordrecoveryservice.audit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link AuditLog} that appends events to segment files in a directory.
+ * <p>
+ * {@link #record} only offers the event to a bounded queue, and drops it if the queue is full, so the recovery
+ * functions never wait for the disk. A single writer thread drains the queue in batches of up to {@code batchSize},
+ * encodes each batch into one direct buffer with {@link AuditRecordFormat} and appends it with one
+ * {@link FileChannel#write} call, or one per segment if it crosses into a new one, forcing it to disk if {@code force}
+ * is set. Events therefore reach the disk
+ * in batches as large as the load makes them, without waiting for a batch to fill.
+ * <p>
+ * A segment is closed and the next one started once the next batch would take it past {@code segmentSize}.
+ * Segments are named {@code audit-<sequence>.journal}, with the sequence zero-padded so that they sort in order,
+ * and are never written again once closed: every start opens a new segment after the last one found.
+ * A batch that fails to write is counted as failed and its segment abandoned, so that a later batch never
+ * follows a partly written one.
+ */
+public class AuditJournal implements AuditLog, AutoCloseable {
+
+    static final String SEGMENT_PREFIX = "audit-";
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final AuditEvent STOP = new AuditEvent(0, AuditEventType.CODE_ISSUED, "", null, null);
+
+    private final Path directory;
+    private final long segmentSize;
+    private final int batchSize;
+    private final boolean force;
+    private final Clock clock;
+    private final BlockingQueue<AuditEvent> queue;
+    private final ByteBuffer buffer;
+    private final Thread writer;
+    private final Logger logger = Logger.getLogger(AuditJournal.class.getName());
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean closed;
+    private long sequence;
+    private FileChannel segment;
+    private long segmentPosition;
+
+    /**
+     * @param directory The directory the segments are written to, created if missing.
+     * @param segmentSize The size, in bytes, after which a segment is closed.
+     * @param queueCapacity The number of events that can wait to be written before new ones are dropped.
+     * @param batchSize The maximum number of events written with one call.
+     * @param force Whether every batch is forced to disk before the next one is written.
+     * @param clock The clock the events are stamped with.
+     * @throws IOException if the directory cannot be created or listed.
+     */
+    public AuditJournal(Path directory, long segmentSize, int queueCapacity, int batchSize, boolean force, Clock clock) throws IOException {
+        if (segmentSize < AuditRecordFormat.HEADER_SIZE + AuditRecordFormat.MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Segment size must fit at least one record");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.batchSize = batchSize;
+        this.force = force;
+        this.clock = clock;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.buffer = ByteBuffer.allocateDirect(batchSize * AuditRecordFormat.MAX_RECORD_SIZE);
+
+        List<Path> segments = AuditJournalReader.segments(directory);
+        this.sequence = segments.isEmpty() ? 0 : sequenceOf(segments.get(segments.size() - 1));
+
+        this.writer = new Thread(this::run, "audit-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void record(AuditEventType type, String email, String client, String detail) {
+        if (closed || !queue.offer(new AuditEvent(clock.millis(), type, email, client, detail))) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Stops taking events, writes the ones already queued and closes the current segment.
+     * An interrupt ends the wait for the writer early and is left set on the calling thread.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (queue.offer(STOP, 10, TimeUnit.SECONDS)) {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The number of events written to a segment.
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * @return The number of events dropped because the queue was full or the journal closed.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return The number of events lost because their batch could not be written.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * @return The number of events waiting to be written.
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private void run() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+            // Removing the marker keeps the events queued before it in the last batch.
+            stopping |= batch.removeIf(event -> event == STOP);
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        closeSegment();
+    }
+
+    private void write(List<AuditEvent> batch) {
+        try {
+            buffer.clear();
+            for (AuditEvent event : batch) {
+                AuditRecordFormat.Encoded record = AuditRecordFormat.encode(event);
+                if (segment == null || segmentPosition + buffer.position() + record.size() > segmentSize) {
+                    flush();
+                    openNextSegment();
+                }
+                record.writeTo(buffer);
+            }
+            flush();
+            if (force) {
+                segment.force(false);
+            }
+            written.add(batch.size());
+        } catch (IOException | UncheckedIOException e) {
+            failed.add(batch.size());
+            logger.log(Level.SEVERE, "Could not write " + batch.size() + " audit events to " + directory, e);
+            closeSegment();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segmentPosition += segment.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void openNextSegment() throws IOException {
+        closeSegment();
+        sequence++;
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentPosition = 0;
+        ByteBuffer header = ByteBuffer.allocate(AuditRecordFormat.HEADER_SIZE);
+        AuditRecordFormat.writeHeader(header);
+        header.flip();
+        while (header.hasRemaining()) {
+            segmentPosition += segment.write(header);
+        }
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.force(true);
+            segment.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not close audit segment " + sequence, e);
+        }
+        segment = null;
+    }
+
+    static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
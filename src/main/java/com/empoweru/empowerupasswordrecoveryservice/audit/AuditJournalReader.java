@@ -0,0 +1,154 @@
+package com.empoweru.empowerupasswordrecoveryservice.audit;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Reads the segments written by {@link AuditJournal}. Each segment is memory-mapped read-only and decoded lazily,
+ * so reading a segment holds no more than the event being processed.
+ * <p>
+ * Run through {@link #main(String[])} to export journal directories or single segments as NDJSON, one event per line:
+ * <pre>
+ * java -cp &lt;classpath&gt; com.empoweru.empowerupasswordrecoveryservice.audit.AuditJournalReader /home/data/audit &gt; audit.ndjson
+ * </pre>
+ */
+public final class AuditJournalReader {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private AuditJournalReader() {
+    }
+
+    /**
+     * Lists the segments in a journal directory.
+     *
+     * @param directory The journal directory.
+     * @return The segments, oldest first.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(AuditJournalReader::isSegment).sorted().toList();
+        }
+    }
+
+    /**
+     * Streams the events of a segment in the order they were written.
+     * The stream ends at the end of the segment, or at a record that is cut short or corrupt.
+     * A segment left empty by a crash right after it was created has no events.
+     *
+     * @param segment The segment to read.
+     * @return The events of the segment.
+     * @throws IOException if the segment cannot be read.
+     * @throws IllegalArgumentException if the file is not an audit journal segment.
+     */
+    public static Stream<AuditEvent> read(Path segment) throws IOException {
+        MappedByteBuffer buffer = map(segment);
+        if (!buffer.hasRemaining()) {
+            return Stream.empty();
+        }
+        AuditRecordFormat.readHeader(buffer);
+        return Stream.generate(() -> AuditRecordFormat.decode(buffer)).takeWhile(Objects::nonNull);
+    }
+
+    /**
+     * Streams the events of every segment in a journal directory, oldest first.
+     *
+     * @param directory The journal directory.
+     * @return The events of the journal.
+     * @throws IOException if the directory cannot be listed.
+     * @throws UncheckedIOException if a segment cannot be read while the stream is consumed.
+     */
+    public static Stream<AuditEvent> readAll(Path directory) throws IOException {
+        return segments(directory).stream().flatMap(segment -> {
+            try {
+                return read(segment);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Writes the events of a segment as NDJSON, with the timestamp as an ISO-8601 instant.
+     *
+     * @param segment The segment to export.
+     * @param output The writer the lines are written to.
+     * @return The number of bytes at the end of the segment that could not be read as events,
+     * zero if the whole segment was read.
+     * @throws IOException if the segment cannot be read or the output cannot be written.
+     */
+    public static long export(Path segment, Writer output) throws IOException {
+        MappedByteBuffer buffer = map(segment);
+        if (!buffer.hasRemaining()) {
+            return 0;
+        }
+        AuditRecordFormat.readHeader(buffer);
+        AuditEvent event;
+        while ((event = AuditRecordFormat.decode(buffer)) != null) {
+            OBJECT_MAPPER.writeValue(output, new ExportedEvent(Instant.ofEpochMilli(event.timestamp()).toString(),
+                    event.type().name(), event.email(), event.client(), event.detail()));
+            output.write('\n');
+        }
+        return buffer.remaining();
+    }
+
+    /**
+     * Exports the given journal directories and segments to standard output as NDJSON.
+     * Segments with unreadable data at the end are reported on standard error.
+     *
+     * @param args The journal directories and segment files to export.
+     * @throws IOException if a segment cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: AuditJournalReader <journal directory or segment>...");
+            System.exit(2);
+        }
+        List<Path> segments = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            segments.addAll(Files.isDirectory(path) ? segments(path) : List.of(path));
+        }
+        Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        for (Path segment : segments) {
+            long unread = export(segment, output);
+            if (unread > 0) {
+                System.err.println(segment + ": " + unread + " bytes at the end could not be read");
+            }
+        }
+        output.flush();
+    }
+
+    private static MappedByteBuffer map(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(AuditJournal.SEGMENT_PREFIX) && name.endsWith(AuditJournal.SEGMENT_SUFFIX);
+    }
+
+    private record ExportedEvent(String timestamp, String type, String email, String client, String detail) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.empoweru.empowerupasswordrecoveryservice.audit;
+
+/**
+ * Receiver of recovery audit events. Recording never blocks the caller and never fails the request it is part of.
+ */
+@FunctionalInterface
+public interface AuditLog {
+
+    /**
+     * Records an event that happened now.
+     *
+     * @param type What happened.
+     * @param email The email the event is about.
+     * @param client The client address the request came from, or {@code null} if unknown.
+     * @param detail More about the event, depending on its type, or {@code null}.
+     */
+    void record(AuditEventType type, String email, String client, String detail);
+}
@@ -0,0 +1,183 @@
+package com.empoweru.empowerupasswordrecoveryservice.audit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary layout of the audit journal segments, all numbers big-endian.
+ * <p>
+ * A segment starts with an 8-byte header: the magic number {@code EUAJ} and the format version.
+ * Each record follows as its payload length (int), the CRC32C of the payload (int) and the payload:
+ * the event type ordinal (byte), the timestamp in epoch milliseconds (long), and the email, client and detail,
+ * each as a UTF-8 length (unsigned short, {@value #NULL_LENGTH} for {@code null}) followed by the bytes.
+ * A typical event takes about 50 bytes. Reading stops at the first record that is cut short or fails its checksum,
+ * which is where a crash mid-write leaves the end of the last segment.
+ */
+public final class AuditRecordFormat {
+
+    public static final int MAGIC = 0x4555414A;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+
+    static final int NULL_LENGTH = 0xFFFF;
+    // Longer strings are cut, which bounds a record; three bytes per char covers any UTF-8 encoded char of a String.
+    static final int MAX_FIELD_CHARS = 320;
+    static final int MAX_RECORD_SIZE = 8 + 1 + 8 + 3 * (2 + 3 * MAX_FIELD_CHARS);
+
+    private static final AuditEventType[] TYPES = AuditEventType.values();
+
+    private AuditRecordFormat() {
+    }
+
+    /**
+     * Writes a segment header.
+     *
+     * @param buffer The buffer to write to, with at least {@value #HEADER_SIZE} bytes remaining.
+     */
+    public static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putInt(VERSION);
+    }
+
+    /**
+     * Reads and checks a segment header.
+     *
+     * @param buffer The segment, positioned at its start.
+     * @throws IllegalArgumentException if the segment does not start with a known header.
+     */
+    public static void readHeader(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not an audit journal segment");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported audit journal version " + version);
+        }
+    }
+
+    /**
+     * Encodes an event's variable fields, so that its size is known before it is written.
+     *
+     * @param event The event to encode.
+     * @return The encoded record, to be written with {@link Encoded#writeTo(ByteBuffer)}.
+     */
+    public static Encoded encode(AuditEvent event) {
+        return new Encoded(event.type(), event.timestamp(), bytes(event.email()), bytes(event.client()), bytes(event.detail()));
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @param buffer The segment, positioned at a record.
+     * @return The event, or {@code null} at the end of the segment or at a record that is cut short or corrupt,
+     * in which case the buffer's position is left unchanged.
+     */
+    public static AuditEvent decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < 8) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length < 1 + 8 + 3 * 2 || length > MAX_RECORD_SIZE - 8 || buffer.remaining() < length) {
+            buffer.position(start);
+            return null;
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(buffer.position(), length));
+        int ordinal = buffer.get(buffer.position()) & 0xFF;
+        if ((int) crc.getValue() != checksum || ordinal >= TYPES.length) {
+            buffer.position(start);
+            return null;
+        }
+
+        buffer.get();
+        long timestamp = buffer.getLong();
+        String email = string(buffer);
+        String client = string(buffer);
+        String detail = string(buffer);
+        buffer.position(start + 8 + length);
+        return new AuditEvent(timestamp, TYPES[ordinal], email, client, detail);
+    }
+
+    private static byte[] bytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        String cut = value.length() > MAX_FIELD_CHARS ? value.substring(0, MAX_FIELD_CHARS) : value;
+        return cut.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A record ready to be written.
+     */
+    public static final class Encoded {
+
+        private final AuditEventType type;
+        private final long timestamp;
+        private final byte[] email;
+        private final byte[] client;
+        private final byte[] detail;
+
+        private Encoded(AuditEventType type, long timestamp, byte[] email, byte[] client, byte[] detail) {
+            this.type = type;
+            this.timestamp = timestamp;
+            this.email = email;
+            this.client = client;
+            this.detail = detail;
+        }
+
+        /**
+         * @return The number of bytes the record takes, including its length and checksum.
+         */
+        public int size() {
+            return 8 + payloadSize();
+        }
+
+        /**
+         * Writes the record.
+         *
+         * @param buffer The buffer to write to, with at least {@link #size()} bytes remaining.
+         */
+        public void writeTo(ByteBuffer buffer) {
+            int start = buffer.position();
+            int payloadSize = payloadSize();
+            buffer.putInt(payloadSize).putInt(0);
+            buffer.put((byte) type.ordinal()).putLong(timestamp);
+            putBytes(buffer, email);
+            putBytes(buffer, client);
+            putBytes(buffer, detail);
+
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(start + 8, payloadSize));
+            buffer.putInt(start + 4, (int) crc.getValue());
+        }
+
+        private int payloadSize() {
+            return 1 + 8 + 3 * 2 + length(email) + length(client) + length(detail);
+        }
+
+        private static int length(byte[] bytes) {
+            return bytes == null ? 0 : bytes.length;
+        }
+
+        private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+            if (bytes == null) {
+                buffer.putShort((short) NULL_LENGTH);
+            } else {
+                buffer.putShort((short) bytes.length).put(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.empoweru.empowerupasswordrecoveryservice.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk password reset, built up chunk by chunk.
+ * Emails of a failed chunk are counted in {@link #getFailed()} and none of them were issued a code.
+ */
+@Getter
+public class BulkResetReport {
+
+    private static final int MAX_INVALID_LINES = 100;
+
+    private long received;
+    private long issued;
+    private long unknown;
+    private long invalid;
+    private long duplicates;
+    private long failed;
+    private int chunks;
+    private final List<Long> invalidLines = new ArrayList<>();
+    private final List<ChunkFailure> failedChunks = new ArrayList<>();
+
+    public void received() {
+        received++;
+    }
+
+    public void invalid(long line) {
+        invalid++;
+        if (invalidLines.size() < MAX_INVALID_LINES) {
+            invalidLines.add(line);
+        }
+    }
+
+    public void duplicate() {
+        duplicates++;
+    }
+
+    public void chunkIssued(int emails, int issuedCodes) {
+        chunks++;
+        issued += issuedCodes;
+        unknown += emails - issuedCodes;
+    }
+
+    public void chunkFailed(ChunkFailure failure) {
+        chunks++;
+        failed += failure.getEmails();
+        failedChunks.add(failure);
+    }
+
+    /**
+     * A chunk whose transaction failed.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ChunkFailure {
+        private final int chunk;
+        private final long firstLine;
+        private final long lastLine;
+        private final int emails;
+        private final String error;
+    }
+}
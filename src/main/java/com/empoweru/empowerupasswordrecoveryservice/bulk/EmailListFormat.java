@@ -0,0 +1,27 @@
+package com.empoweru.empowerupasswordrecoveryservice.bulk;
+
+import java.util.Locale;
+
+/**
+ * The formats an {@link EmailListReader} reads, one email per line.
+ */
+public enum EmailListFormat {
+    /**
+     * Newline-delimited JSON, each line either a string or an object with an {@code email} field.
+     */
+    NDJSON,
+    /**
+     * Comma-separated values with the email in the first column, optionally after an {@code email} header.
+     */
+    CSV;
+
+    /**
+     * Selects the format from a request's {@code Content-Type}, defaulting to {@link #NDJSON}.
+     *
+     * @param contentType The content type, or {@code null} if the request has none.
+     * @return {@link #CSV} for {@code text/csv}, {@link #NDJSON} otherwise.
+     */
+    public static EmailListFormat fromContentType(String contentType) {
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).contains("csv") ? CSV : NDJSON;
+    }
+}
@@ -0,0 +1,118 @@
+package com.empoweru.empowerupasswordrecoveryservice.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a list of emails one line at a time, so a list of any length is never held in memory.
+ * Blank lines are skipped. A line that cannot be parsed, or whose value does not look like an email,
+ * is returned as an entry without an email, so the caller can report it by line number.
+ */
+public class EmailListReader implements Closeable {
+
+    private static final int MAX_EMAIL_LENGTH = 100; // The length of users.email.
+
+    private final BufferedReader reader;
+    private final EmailListFormat format;
+    private final ObjectMapper objectMapper;
+    private long lineNumber;
+    private boolean headerChecked;
+
+    public EmailListReader(Reader reader, EmailListFormat format, ObjectMapper objectMapper) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads the next non-blank line.
+     *
+     * @return The entry for the line, or {@code null} at the end of the list.
+     * @throws IOException if the list cannot be read.
+     */
+    public Entry next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == EmailListFormat.CSV) {
+                String value = firstCsvField(line);
+                if (!headerChecked) {
+                    headerChecked = true;
+                    if (value.strip().equalsIgnoreCase("email")) {
+                        continue;
+                    }
+                }
+                return new Entry(lineNumber, validate(value));
+            }
+            return new Entry(lineNumber, validate(jsonValue(line)));
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String jsonValue(String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            if (node.isObject()) {
+                node = node.get("email");
+            }
+            return node != null && node.isTextual() ? node.textValue() : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static String firstCsvField(String line) {
+        String trimmed = line.strip();
+        if (!trimmed.startsWith("\"")) {
+            int comma = trimmed.indexOf(',');
+            return comma < 0 ? trimmed : trimmed.substring(0, comma);
+        }
+        StringBuilder value = new StringBuilder();
+        for (int i = 1; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c == '"') {
+                if (i + 1 < trimmed.length() && trimmed.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    break;
+                }
+            } else {
+                value.append(c);
+            }
+        }
+        return value.toString();
+    }
+
+    private static String validate(String value) {
+        if (value == null) {
+            return null;
+        }
+        String email = value.strip();
+        int at = email.indexOf('@');
+        return at > 0 && at < email.length() - 1 && email.length() <= MAX_EMAIL_LENGTH ? email : null;
+    }
+
+    /**
+     * One line of the list.
+     *
+     * @param line The line number, starting at 1.
+     * @param email The email on the line, or {@code null} if the line is not a valid entry.
+     */
+    public record Entry(long line, String email) {
+    }
+}
@@ -0,0 +1,203 @@
+package com.empoweru.empowerupasswordrecoveryservice.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe Bloom filter of strings.
+ * {@link #mightContain(String)} never returns {@code false} for a string that was added,
+ * and returns {@code true} for a string that was not added with roughly the configured false-positive rate,
+ * as long as no more than the expected number of strings are added.
+ * Adds and lookups are lock-free and may run concurrently.
+ * <p>
+ * The probes are derived from a 128-bit MurmurHash3 of the string's UTF-8 bytes, seeded at random for each filter,
+ * so strings that collide on every probe cannot be crafted in advance, as they could with {@link String#hashCode()}.
+ */
+public final class BloomFilter {
+
+    private static final VarHandle LITTLE_ENDIAN_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+    private final long seed;
+    private final LongAdder insertions = new LongAdder();
+
+    private record Hash(long h1, long h2) {
+    }
+
+    private BloomFilter(long bitCount, int hashCount, long expectedInsertions, long seed) {
+        this.seed = seed;
+        this.words = new AtomicLongArray(Math.toIntExact((bitCount + 63) / 64));
+        this.bitCount = (long) words.length() * 64;
+        this.hashCount = hashCount;
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * Creates a filter sized for the given number of strings and false-positive rate.
+     *
+     * @param expectedInsertions The number of strings the filter is sized for.
+     * @param falsePositiveRate The target false-positive rate, between 0 and 1 exclusive.
+     * @return An empty filter.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1");
+        }
+        long bitCount = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        return new BloomFilter(bitCount, hashCount, expectedInsertions, new SecureRandom().nextLong());
+    }
+
+    /**
+     * Adds a string to the filter.
+     *
+     * @param value The string to add.
+     */
+    public void put(String value) {
+        Hash hash = hash(value);
+        long hash1 = hash.h1();
+        long hash2 = hash.h2() | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & mask) == 0) {
+                words.accumulateAndGet(word, mask, (current, added) -> current | added);
+            }
+        }
+        insertions.increment();
+    }
+
+    /**
+     * @param value The string to look up.
+     * @return {@code false} if the string was definitely never added, {@code true} if it probably was.
+     */
+    public boolean mightContain(String value) {
+        Hash hash = hash(value);
+        long hash1 = hash.h1();
+        long hash2 = hash.h2() | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the current false-positive rate from the fraction of bits set.
+     *
+     * @return The probability that a string never added is reported as present.
+     */
+    public double estimatedFalsePositiveRate() {
+        long set = 0;
+        for (int i = 0; i < words.length(); i++) {
+            set += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) set / bitCount, hashCount);
+    }
+
+    /**
+     * @return The number of strings the filter was sized for.
+     */
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * @return The number of adds so far, counting repeated adds of the same string.
+     */
+    public long getInsertionCount() {
+        return insertions.sum();
+    }
+
+    /**
+     * @return The size of the filter in bits.
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * @return The number of bits set per string.
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    private Hash hash(String value) {
+        // MurmurHash3 x64 128-bit; its two halves feed the double hashing of the probes.
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        int blocks = data.length / 16;
+        long h1 = seed;
+        long h2 = seed;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = (long) LITTLE_ENDIAN_LONG.get(data, i * 16);
+            long k2 = (long) LITTLE_ENDIAN_LONG.get(data, i * 16 + 8);
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52DCE729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495AB5;
+        }
+
+        int tail = blocks * 16;
+        int remaining = data.length - tail;
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = remaining - 1; i >= 8; i--) {
+            k2 ^= (data[tail + i] & 0xFFL) << ((i - 8) * 8);
+        }
+        for (int i = Math.min(remaining, 8) - 1; i >= 0; i--) {
+            k1 ^= (data[tail + i] & 0xFFL) << (i * 8);
+        }
+        if (remaining > 8) {
+            h2 ^= mixK2(k2);
+        }
+        if (remaining > 0) {
+            h1 ^= mixK1(k1);
+        }
+
+        h1 ^= data.length;
+        h2 ^= data.length;
+        h1 += h2;
+        h2 += h1;
+        h1 = mix(h1);
+        h2 = mix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new Hash(h1, h2);
+    }
+
+    private static long mixK1(long k1) {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long mixK2(long k2) {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
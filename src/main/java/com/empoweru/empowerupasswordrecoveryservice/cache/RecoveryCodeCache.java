@@ -0,0 +1,146 @@
+package com.empoweru.empowerupasswordrecoveryservice.cache;
+
+import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded, read-through cache of the active recovery code for each email.
+ * Each entry expires exactly at its code's expiry date, so an expired code is never served from the cache.
+ * Writes made inside a transaction are applied once it commits, so the cache never holds a code
+ * that was rolled back.
+ */
+public class RecoveryCodeCache {
+
+    private final Cache<String, RecoveryCode> cache;
+    private final Function<String, Optional<RecoveryCode>> loader;
+
+    /**
+     * @param loader Loads the recovery code for an email on a cache miss.
+     * @param maximumSize The maximum number of emails to cache before the least valuable entries are evicted.
+     * @param clock The clock the code expiry dates are measured against.
+     */
+    public RecoveryCodeCache(Function<String, Optional<RecoveryCode>> loader, long maximumSize, Clock clock) {
+        this(loader, maximumSize, clock, Ticker.systemTicker());
+    }
+
+    RecoveryCodeCache(Function<String, Optional<RecoveryCode>> loader, long maximumSize, Clock clock, Ticker ticker) {
+        this.loader = loader;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilExpiryDate(clock))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the recovery code for an email, loading it on a miss.
+     * Concurrent misses for the same email share a single load.
+     *
+     * @param email The email the code was issued to.
+     * @return The recovery code, or empty if the email has none.
+     */
+    public Optional<RecoveryCode> get(String email) {
+        return Optional.ofNullable(cache.get(email, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Returns the recovery code cached for an email, without loading it on a miss.
+     *
+     * @param email The email the code was issued to.
+     * @return The cached recovery code, or empty if none is cached.
+     */
+    public Optional<RecoveryCode> getIfPresent(String email) {
+        return Optional.ofNullable(cache.getIfPresent(email));
+    }
+
+    /**
+     * Discards the recovery code cached for an email and loads it again.
+     * Other instances issue codes without updating this cache, so a cached code that does not match
+     * what the user submitted may be stale and has to be read again before it is trusted.
+     *
+     * @param email The email the code was issued to.
+     * @return The recovery code, or empty if the email has none.
+     */
+    public Optional<RecoveryCode> reload(String email) {
+        cache.invalidate(email);
+        return get(email);
+    }
+
+    /**
+     * Caches a newly issued recovery code, once the current transaction commits.
+     *
+     * @param recoveryCode The saved recovery code.
+     */
+    public void put(RecoveryCode recoveryCode) {
+        afterCommit(() -> cache.put(recoveryCode.getEmail(), recoveryCode));
+    }
+
+    /**
+     * Removes the recovery code cached for an email, immediately and again once the current transaction commits,
+     * so a concurrent miss cannot bring back a code that is being deleted.
+     *
+     * @param email The email whose code was deleted.
+     */
+    public void invalidate(String email) {
+        cache.invalidate(email);
+        afterCommit(() -> cache.invalidate(email));
+    }
+
+    /**
+     * @return Hit, miss, load and eviction counters.
+     */
+    public CacheStats getStatistics() {
+        return cache.stats();
+    }
+
+    /**
+     * @return The underlying cache, for metrics registration.
+     */
+    public Cache<String, RecoveryCode> getNativeCache() {
+        return cache;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record UntilExpiryDate(Clock clock) implements Expiry<String, RecoveryCode> {
+
+        @Override
+        public long expireAfterCreate(String email, RecoveryCode recoveryCode, long currentTime) {
+            long remainingMillis = recoveryCode.getExpiryDate().getTime() - clock.millis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String email, RecoveryCode recoveryCode, long currentTime, long currentDuration) {
+            return expireAfterCreate(email, recoveryCode, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String email, RecoveryCode recoveryCode, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
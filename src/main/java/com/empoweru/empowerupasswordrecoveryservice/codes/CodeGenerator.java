@@ -0,0 +1,14 @@
+package com.empoweru.empowerupasswordrecoveryservice.codes;
+
+/**
+ * Source of random recovery codes. Implementations are safe to call from any number of threads.
+ */
+public interface CodeGenerator {
+
+    /**
+     * Draws a new random code.
+     *
+     * @return The code, of the configured length and alphabet.
+     */
+    String next();
+}
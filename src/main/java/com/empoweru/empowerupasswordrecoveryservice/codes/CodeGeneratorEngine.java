@@ -0,0 +1,15 @@
+package com.empoweru.empowerupasswordrecoveryservice.codes;
+
+/**
+ * How recovery codes are drawn.
+ */
+public enum CodeGeneratorEngine {
+    /**
+     * Each code is drawn on the calling thread by a {@link SecureCodeGenerator}.
+     */
+    SECURE_RANDOM,
+    /**
+     * Codes are taken from a {@link PrefilledCodeGenerator} ring, kept full by a background thread.
+     */
+    PREFILLED
+}
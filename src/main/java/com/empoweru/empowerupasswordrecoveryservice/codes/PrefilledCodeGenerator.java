@@ -0,0 +1,149 @@
+package com.empoweru.empowerupasswordrecoveryservice.codes;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands out codes drawn ahead of time by a background thread, so a request takes a ready-made code with one
+ * compare-and-set and no allocation, and the cost of drawing it is paid off the request path.
+ * <p>
+ * The codes are kept in a bounded lock-free ring: the refill thread is its only producer and callers take from it
+ * concurrently. Each slot carries a sequence number telling whether it holds a code for the current lap or is free
+ * for the next one. The refill thread is woken once the ring drops to half full, and otherwise checks it on a
+ * fixed interval. If the ring is ever empty, the code is drawn on the calling thread instead, so callers never wait.
+ * Every code is handed out at most once.
+ */
+public class PrefilledCodeGenerator implements CodeGenerator, AutoCloseable {
+
+    private static final long IDLE_CHECK_NANOS = Duration.ofMillis(100).toNanos();
+
+    private final CodeGenerator source;
+    private final String[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final int lowWatermark;
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+    private final AtomicBoolean refillRequested = new AtomicBoolean();
+    private final Thread refiller;
+    private volatile boolean running = true;
+    private final Logger logger = Logger.getLogger(PrefilledCodeGenerator.class.getName());
+
+    private final LongAdder prefilledTakes = new LongAdder();
+    private final LongAdder inlineDraws = new LongAdder();
+
+    /**
+     * Creates the ring and starts filling it.
+     *
+     * @param source The generator the codes are drawn from, on the refill thread and when the ring is empty.
+     * @param capacity The number of codes kept ready, rounded up to a power of two.
+     */
+    public PrefilledCodeGenerator(CodeGenerator source, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.source = source;
+        this.slots = new String[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.lowWatermark = size / 2;
+        this.refiller = new Thread(this::refillLoop, "code-refill");
+        this.refiller.setDaemon(true);
+        this.refiller.start();
+    }
+
+    @Override
+    public String next() {
+        while (true) {
+            long position = head.get();
+            int index = (int) (position & mask);
+            long filledAt = sequences.get(index) - (position + 1);
+            if (filledAt == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    String code = slots[index];
+                    // Frees the slot for the refill thread's next lap.
+                    sequences.set(index, position + slots.length);
+                    prefilledTakes.increment();
+                    if (tail - position <= lowWatermark && refillRequested.compareAndSet(false, true)) {
+                        LockSupport.unpark(refiller);
+                    }
+                    return code;
+                }
+            } else if (filledAt < 0) {
+                inlineDraws.increment();
+                if (refillRequested.compareAndSet(false, true)) {
+                    LockSupport.unpark(refiller);
+                }
+                return source.next();
+            }
+            // Another caller took this slot first, try the next one.
+        }
+    }
+
+    /**
+     * Stops the refill thread. Codes left in the ring can still be taken, and then every code is drawn inline.
+     * An interrupt ends the wait for the refill thread early and is left set on the calling thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(refiller);
+        try {
+            refiller.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getAvailable() {
+        return (int) Math.max(0, tail - head.get());
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    public long getPrefilledTakeCount() {
+        return prefilledTakes.sum();
+    }
+
+    public long getInlineDrawCount() {
+        return inlineDraws.sum();
+    }
+
+    private void refillLoop() {
+        while (running) {
+            refillRequested.set(false);
+            try {
+                fill();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Could not refill the recovery code ring", e);
+            }
+            LockSupport.parkNanos(this, IDLE_CHECK_NANOS);
+        }
+    }
+
+    private void fill() {
+        long position = tail;
+        while (running) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position) {
+                return; // The slot still holds a code from the previous lap, so the ring is full.
+            }
+            slots[index] = source.next();
+            // Publishes the code: a caller reads the slot only after seeing this sequence.
+            sequences.set(index, position + 1);
+            tail = ++position;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.empoweru.empowerupasswordrecoveryservice.codes;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Draws codes from a cryptographically strong generator, with one {@link SecureRandom} per thread so that
+ * concurrent callers never wait on each other.
+ * <p>
+ * The generators are DRBG instances, each seeded once from the system entropy source when its thread first
+ * draws a code; the platform default on Linux, {@code NativePRNG}, reads {@code /dev/urandom} behind a lock
+ * shared by every instance. Random bytes are drawn in blocks and mapped to the alphabet by rejection sampling,
+ * so every symbol is equally likely whatever the alphabet size.
+ */
+public class SecureCodeGenerator implements CodeGenerator {
+
+    private static final int BLOCK_SIZE = 256;
+
+    private final int length;
+    private final char[] alphabet;
+    private final int acceptBelow;
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    /**
+     * @param length The number of symbols in a code.
+     * @param alphabet The symbols a code is made of, between 2 and 256 distinct characters.
+     */
+    public SecureCodeGenerator(int length, String alphabet) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("Code length must be positive: " + length);
+        }
+        if (alphabet.length() < 2 || alphabet.length() > 256 || alphabet.chars().distinct().count() != alphabet.length()) {
+            throw new IllegalArgumentException("Code alphabet must have between 2 and 256 distinct characters: " + alphabet);
+        }
+        this.length = length;
+        this.alphabet = alphabet.toCharArray();
+        // The largest multiple of the alphabet size that fits in a byte; bytes above it are drawn again.
+        this.acceptBelow = 256 - 256 % alphabet.length();
+    }
+
+    @Override
+    public String next() {
+        State current = state.get();
+        char[] code = new char[length];
+        for (int i = 0; i < length; i++) {
+            int value;
+            do {
+                value = current.nextByte();
+            } while (value >= acceptBelow);
+            code[i] = alphabet[value % alphabet.length];
+        }
+        return new String(code);
+    }
+
+    private static final class State {
+        private final SecureRandom random;
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private int position = BLOCK_SIZE;
+
+        State() {
+            try {
+                random = SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("DRBG is not available", e);
+            }
+        }
+
+        int nextByte() {
+            if (position == BLOCK_SIZE) {
+                random.nextBytes(block);
+                position = 0;
+            }
+            return block[position++] & 0xFF;
+        }
+    }
+}
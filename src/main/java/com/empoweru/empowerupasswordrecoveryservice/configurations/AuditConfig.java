@@ -0,0 +1,89 @@
+package com.empoweru.empowerupasswordrecoveryservice.configurations;
+
+import com.empoweru.empowerupasswordrecoveryservice.audit.AuditJournal;
+import com.empoweru.empowerupasswordrecoveryservice.audit.AuditLog;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+
+/**
+ * Configuration class for the recovery audit journal.
+ */
+@Configuration
+public class AuditConfig {
+
+    @Value("${audit.journal.enabled}")
+    private boolean enabled;
+
+    @Value("${audit.journal.directory}")
+    private Path directory;
+
+    @Value("${audit.journal.segment-size}")
+    private DataSize segmentSize;
+
+    @Value("${audit.journal.queue-capacity}")
+    private int queueCapacity;
+
+    @Value("${audit.journal.batch-size}")
+    private int batchSize;
+
+    @Value("${audit.journal.force}")
+    private boolean force;
+
+    /**
+     * Creates the {@link AuditJournal} writing to {@code audit.journal.directory}, or an audit log that discards
+     * every event if {@code audit.journal.enabled} is false.
+     * The journal writes the events still queued and closes its segment when the application context closes.
+     *
+     * @param clock The clock the events are stamped with.
+     * @return The audit log.
+     * @throws IOException if the journal directory cannot be created.
+     */
+    @Bean
+    public AuditLog auditLog(Clock clock) throws IOException {
+        if (!enabled) {
+            return (type, email, client, detail) -> {
+            };
+        }
+        return new AuditJournal(directory, segmentSize.toBytes(), queueCapacity, batchSize, force, clock);
+    }
+
+    /**
+     * Exposes the written, dropped and failed events and the queue depth of the journal as metrics.
+     * Registers nothing when the journal is disabled.
+     *
+     * @param auditLog The audit log.
+     * @return A binder registering the journal metrics.
+     */
+    @Bean
+    public MeterBinder auditMetrics(AuditLog auditLog) {
+        return registry -> {
+            if (!(auditLog instanceof AuditJournal journal)) {
+                return;
+            }
+            FunctionCounter.builder("audit.journal.events", journal, AuditJournal::getWrittenCount)
+                    .description("Audit events by what happened to them")
+                    .tag("result", "written")
+                    .register(registry);
+            FunctionCounter.builder("audit.journal.events", journal, AuditJournal::getDroppedCount)
+                    .description("Audit events by what happened to them")
+                    .tag("result", "dropped")
+                    .register(registry);
+            FunctionCounter.builder("audit.journal.events", journal, AuditJournal::getFailedCount)
+                    .description("Audit events by what happened to them")
+                    .tag("result", "failed")
+                    .register(registry);
+            Gauge.builder("audit.journal.queue.depth", journal, AuditJournal::getQueueSize)
+                    .description("Audit events waiting to be written")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package com.empoweru.empowerupasswordrecoveryservice.configurations;
+
+import com.empoweru.empowerupasswordrecoveryservice.cache.RecoveryCodeCache;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.RecoverCodeRepository;
+import com.empoweru.empowerupasswordrecoveryservice.services.UserExistenceIndex;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.util.List;
+
+/**
+ * Configuration class for the in-process caches in front of the database.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Value("${recovery-code.cache.maximum-size}")
+    private long recoveryCodeCacheMaximumSize;
+
+    /**
+     * Creates the read-through cache of active recovery codes, loading misses from the repository.
+     *
+     * @param recoverCodeRepository The repository holding the recovery codes.
+     * @param clock The clock the code expiry dates are measured against.
+     * @return The recovery code cache.
+     */
+    @Bean
+    public RecoveryCodeCache recoveryCodeCache(RecoverCodeRepository recoverCodeRepository, Clock clock) {
+        return new RecoveryCodeCache(recoverCodeRepository::findByEmail, recoveryCodeCacheMaximumSize, clock);
+    }
+
+    /**
+     * Exposes the recovery code cache's size, hits, misses and evictions as metrics.
+     *
+     * @param recoveryCodeCache The recovery code cache.
+     * @return A binder registering the cache metrics.
+     */
+    @Bean
+    public MeterBinder recoveryCodeCacheMetrics(RecoveryCodeCache recoveryCodeCache) {
+        return registry -> new CaffeineCacheMetrics<>(recoveryCodeCache.getNativeCache(), "recovery-codes", List.of())
+                .bindTo(registry);
+    }
+
+    /**
+     * Exposes how user lookups were answered by the existence index, and its estimated false-positive rate, as metrics.
+     *
+     * @param userExistenceIndex The user existence index.
+     * @return A binder registering the index metrics.
+     */
+    @Bean
+    public MeterBinder userExistenceIndexMetrics(UserExistenceIndex userExistenceIndex) {
+        return registry -> {
+            FunctionCounter.builder("users.index.lookups", userExistenceIndex, UserExistenceIndex::getDefiniteMissCount)
+                    .description("User lookups answered by the existence index")
+                    .tag("result", "definite-miss")
+                    .register(registry);
+            FunctionCounter.builder("users.index.lookups", userExistenceIndex, UserExistenceIndex::getConfirmedHitCount)
+                    .description("User lookups answered by the existence index")
+                    .tag("result", "confirmed-hit")
+                    .register(registry);
+            FunctionCounter.builder("users.index.lookups", userExistenceIndex, UserExistenceIndex::getFalsePositiveCount)
+                    .description("User lookups answered by the existence index")
+                    .tag("result", "false-positive")
+                    .register(registry);
+            Gauge.builder("users.index.false-positive-rate", userExistenceIndex, UserExistenceIndex::getEstimatedFalsePositiveRate)
+                    .description("Estimated false-positive rate of the user existence index")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.empoweru.empowerupasswordrecoveryservice.configurations;
+
+import com.empoweru.empowerupasswordrecoveryservice.codes.CodeGenerator;
+import com.empoweru.empowerupasswordrecoveryservice.codes.CodeGeneratorEngine;
+import com.empoweru.empowerupasswordrecoveryservice.codes.PrefilledCodeGenerator;
+import com.empoweru.empowerupasswordrecoveryservice.codes.SecureCodeGenerator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for the generator that draws recovery codes.
+ */
+@Configuration
+public class CodeGeneratorConfig {
+
+    @Value("${recovery-code.generator.engine}")
+    private CodeGeneratorEngine engine;
+
+    @Value("${recovery-code.generator.length}")
+    private int length;
+
+    @Value("${recovery-code.generator.alphabet}")
+    private String alphabet;
+
+    @Value("${recovery-code.generator.buffer-size}")
+    private int bufferSize;
+
+    /**
+     * Creates the code generator selected by {@code recovery-code.generator.engine}.
+     * The prefilled generator's refill thread is stopped when the application context closes.
+     *
+     * @return The recovery code generator.
+     */
+    @Bean
+    public CodeGenerator codeGenerator() {
+        SecureCodeGenerator secureCodeGenerator = new SecureCodeGenerator(length, alphabet);
+        return switch (engine) {
+            case SECURE_RANDOM -> secureCodeGenerator;
+            case PREFILLED -> new PrefilledCodeGenerator(secureCodeGenerator, bufferSize);
+        };
+    }
+
+    /**
+     * Exposes how many codes were taken from the prefilled ring or drawn inline, and how many are ready, as metrics.
+     * Registers nothing for the other engines.
+     *
+     * @param codeGenerator The recovery code generator.
+     * @return A binder registering the generator metrics.
+     */
+    @Bean
+    public MeterBinder codeGeneratorMetrics(CodeGenerator codeGenerator) {
+        return registry -> {
+            if (!(codeGenerator instanceof PrefilledCodeGenerator prefilled)) {
+                return;
+            }
+            FunctionCounter.builder("recovery-code.generator.codes", prefilled, PrefilledCodeGenerator::getPrefilledTakeCount)
+                    .description("Recovery codes handed out by the generator")
+                    .tag("source", "prefilled")
+                    .register(registry);
+            FunctionCounter.builder("recovery-code.generator.codes", prefilled, PrefilledCodeGenerator::getInlineDrawCount)
+                    .description("Recovery codes handed out by the generator")
+                    .tag("source", "inline")
+                    .register(registry);
+            Gauge.builder("recovery-code.generator.available", prefilled, PrefilledCodeGenerator::getAvailable)
+                    .description("Recovery codes drawn ahead and ready to be handed out")
+                    .register(registry);
+        };
+    }
+}
@@ -1,13 +1,40 @@
 package com.empoweru.empowerupasswordrecoveryservice.configurations;
 
-
+import com.empoweru.empowerupasswordrecoveryservice.mail.BatchingEmailDispatcher;
+import com.empoweru.empowerupasswordrecoveryservice.mail.DeadLetterStore;
+import com.empoweru.empowerupasswordrecoveryservice.mail.EmailSendExecutor;
+import com.empoweru.empowerupasswordrecoveryservice.mail.EmailTemplateEngine;
+import com.empoweru.empowerupasswordrecoveryservice.mail.OverflowPolicy;
+import com.empoweru.empowerupasswordrecoveryservice.mail.RetryBackoff;
+import com.empoweru.empowerupasswordrecoveryservice.mail.SmtpCircuitBreaker;
+import com.empoweru.empowerupasswordrecoveryservice.mail.SmtpProvider;
+import com.empoweru.empowerupasswordrecoveryservice.mail.SmtpRouter;
+import com.empoweru.empowerupasswordrecoveryservice.mail.SmtpTransportPool;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics;
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailDeadLetter;
+import com.empoweru.empowerupasswordrecoveryservice.ratelimit.RateLimiter;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.EmailDeadLetterRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.mail.Session;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Configuration class for setting up email functionalities within the application.
@@ -16,33 +43,308 @@ import java.util.Properties;
 @Configuration
 public class EmailConfig {
 
+    @Value("${spring.mail.host}")
+    private String host;
+
+    @Value("${spring.mail.port}")
+    private int port;
+
     @Value("${spring.mail.username}")
     private String username;
 
     @Value("${spring.mail.password}")
     private String password;
 
+    @Value("${spring.mail.properties.mail.smtp.auth}")
+    private boolean smtpAuth;
+
+    @Value("${spring.mail.properties.mail.smtp.starttls.enable}")
+    private boolean smtpStartTls;
+
+    @Value("${spring.mail.properties.mail.smtp.connectiontimeout}")
+    private long smtpConnectionTimeoutMillis;
+
+    @Value("${spring.mail.properties.mail.smtp.timeout}")
+    private long smtpTimeoutMillis;
+
+    @Value("${spring.mail.properties.mail.smtp.writetimeout}")
+    private long smtpWriteTimeoutMillis;
+
+    @Value("${spring.mail.properties.mail.debug:false}")
+    private boolean mailDebug;
+
+    @Value("${mail.pool.max-size}")
+    private int poolMaxSize;
+
+    @Value("${mail.pool.max-idle}")
+    private Duration poolMaxIdle;
+
+    @Value("${mail.pool.max-lifetime}")
+    private Duration poolMaxLifetime;
+
+    @Value("${mail.pool.validation-interval}")
+    private Duration poolValidationInterval;
+
+    @Value("${mail.pool.acquire-timeout}")
+    private Duration poolAcquireTimeout;
+
+    @Value("${mail.batch.max-size}")
+    private int batchMaxSize;
+
+    @Value("${mail.batch.max-linger}")
+    private Duration batchMaxLinger;
+
+    @Value("${mail.batch.queue-capacity}")
+    private int batchQueueCapacity;
+
+    @Value("${mail.batch.overflow-policy}")
+    private OverflowPolicy batchOverflowPolicy;
+
+    @Value("${mail.executor.max-concurrent-sends}")
+    private int executorMaxConcurrentSends;
+
+    @Value("${mail.executor.virtual-threads}")
+    private boolean executorVirtualThreads;
+
+    @Value("${mail.executor.drain-timeout}")
+    private Duration executorDrainTimeout;
+
+    @Value("${mail.retry.max-attempts}")
+    private int retryMaxAttempts;
+
+    @Value("${mail.retry.initial-backoff}")
+    private Duration retryInitialBackoff;
+
+    @Value("${mail.retry.max-backoff}")
+    private Duration retryMaxBackoff;
+
+    @Value("${mail.circuit-breaker.failure-threshold}")
+    private int circuitBreakerFailureThreshold;
+
+    @Value("${mail.circuit-breaker.open-duration}")
+    private Duration circuitBreakerOpenDuration;
+
+    @Value("${mail.routing.max-quota-wait}")
+    private Duration routingMaxQuotaWait;
+
     /**
      * Configures and returns a {@link JavaMailSender} bean to be used for sending emails.
-     * Sets up the mail sender with SMTP settings suitable for Gmail.
+     * Sets up the mail sender with the SMTP server and settings of the active profile.
+     * Connecting, reading and writing all time out, so a hanging server cannot block a sender thread indefinitely;
+     * write timeouts are enforced by one shared scheduler rather than a thread per connection.
      *
+     * @param smtpWriteTimeoutScheduler The scheduler enforcing the write timeouts.
      * @return Configured instance of {@link JavaMailSender}.
      */
     @Bean
-    public JavaMailSender javaMailSender() {
+    public JavaMailSenderImpl javaMailSender(ScheduledExecutorService smtpWriteTimeoutScheduler) {
         JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
-        mailSender.setHost("smtp.gmail.com");
-        mailSender.setPort(587);
+        mailSender.setHost(host);
+        mailSender.setPort(port);
 
         mailSender.setUsername(username);
         mailSender.setPassword(password);
 
-        Properties props = mailSender.getJavaMailProperties();
-        props.put("mail.transport.protocol", "smtp");
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.debug", "true");
+        mailSender.setJavaMailProperties(sessionProperties(smtpAuth, smtpStartTls, smtpWriteTimeoutScheduler));
 
         return mailSender;
     }
+
+    /**
+     * Configures and returns the scheduler that enforces SMTP write timeouts for every connection.
+     *
+     * @return A single daemon thread scheduler.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService smtpWriteTimeoutScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "smtp-write-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Configures and returns a {@link DeadLetterStore} that saves emails into the {@code email_dead_letter} table,
+     * from which the {@code EmailDeadLetterWorker} sends them again.
+     *
+     * @param emailDeadLetterRepository The repository the emails are saved with.
+     * @return Configured instance of {@link DeadLetterStore}.
+     */
+    @Bean
+    public DeadLetterStore deadLetterStore(EmailDeadLetterRepository emailDeadLetterRepository) {
+        return (emails, reason) -> emails.forEach(email -> emailDeadLetterRepository.save(new EmailDeadLetter(email, reason)));
+    }
+
+    /**
+     * Configures and returns the {@link SmtpRouter} that spreads emails over the SMTP providers listed under
+     * {@code mail.providers}. With no providers listed, every email goes to the server configured in
+     * {@link #javaMailSender(ScheduledExecutorService)}.
+     * Each provider gets its own pool of authenticated connections, kept alive between sends, and its own circuit breaker.
+     *
+     * @param javaMailSender The mail sender whose session and credentials are used when no providers are listed.
+     * @param smtpWriteTimeoutScheduler The scheduler enforcing the write timeouts.
+     * @param environment The environment the providers are read from.
+     * @return Configured instance of {@link SmtpRouter}.
+     */
+    @Bean
+    public SmtpRouter smtpRouter(JavaMailSenderImpl javaMailSender, ScheduledExecutorService smtpWriteTimeoutScheduler,
+                                 Environment environment) {
+        List<SmtpProviderProperties> configured = Binder.get(environment)
+                .bind("mail.providers", Bindable.listOf(SmtpProviderProperties.class))
+                .orElse(List.of());
+
+        List<SmtpProvider> providers = new ArrayList<>();
+        if (configured.isEmpty()) {
+            providers.add(smtpProvider("default", 1, javaMailSender.getSession(), javaMailSender.getHost(),
+                    javaMailSender.getPort(), javaMailSender.getUsername(), javaMailSender.getPassword(), null));
+        }
+        for (SmtpProviderProperties provider : configured) {
+            Properties props = sessionProperties(provider.auth(), provider.starttls(), smtpWriteTimeoutScheduler);
+            if (provider.from() != null) {
+                props.put("mail.smtp.from", provider.from());
+            }
+            RateLimiter quota = provider.quota() == null ? null : new RateLimiter(provider.quota(), provider.quotaPeriod());
+            providers.add(smtpProvider(provider.name(), provider.weight(), Session.getInstance(props), provider.host(),
+                    provider.port(), provider.username(), provider.password(), quota));
+        }
+        return new SmtpRouter(providers);
+    }
+
+    /**
+     * Configures and returns the {@link EmailSendExecutor} that runs blocking SMTP sends,
+     * on virtual threads when available, with a cap on concurrent SMTP sessions.
+     * In-flight sends are drained when the application context closes.
+     *
+     * @return Configured instance of {@link EmailSendExecutor}.
+     */
+    @Bean
+    public EmailSendExecutor emailSendExecutor() {
+        return new EmailSendExecutor(executorMaxConcurrentSends, executorVirtualThreads, executorDrainTimeout);
+    }
+
+    /**
+     * Configures and returns a {@link BatchingEmailDispatcher} that groups queued emails into batches
+     * and sends each batch over one pooled SMTP connection, failing over to other providers and retrying failed
+     * connections with a jittered backoff.
+     *
+     * @param javaMailSender The mail sender used to create MIME messages.
+     * @param smtpRouter The router picking the provider each batch is sent through.
+     * @param emailSendExecutor The executor the batches are sent on.
+     * @param deadLetterStore The store for queued emails that could not be sent.
+     * @param recoveryMetrics The metrics the queue wait and SMTP sends are recorded in.
+     * @return Configured instance of {@link BatchingEmailDispatcher}.
+     */
+    @Bean
+    public BatchingEmailDispatcher batchingEmailDispatcher(JavaMailSenderImpl javaMailSender,
+                                                           SmtpRouter smtpRouter,
+                                                           EmailSendExecutor emailSendExecutor,
+                                                           DeadLetterStore deadLetterStore,
+                                                           RecoveryMetrics recoveryMetrics) {
+        return new BatchingEmailDispatcher(
+                javaMailSender,
+                smtpRouter,
+                emailSendExecutor,
+                batchMaxSize,
+                batchMaxLinger,
+                batchQueueCapacity,
+                batchOverflowPolicy,
+                retryMaxAttempts,
+                new RetryBackoff(retryInitialBackoff, retryMaxBackoff),
+                routingMaxQuotaWait,
+                deadLetterStore,
+                recoveryMetrics);
+    }
+
+    /**
+     * Configures and returns the {@link EmailTemplateEngine}, compiling every email template once at startup.
+     *
+     * @param resourcePatternResolver The resolver used to find the template files.
+     * @return Configured instance of {@link EmailTemplateEngine}.
+     * @throws IOException if a template cannot be read.
+     */
+    @Bean
+    public EmailTemplateEngine emailTemplateEngine(ResourcePatternResolver resourcePatternResolver) throws IOException {
+        return EmailTemplateEngine.load(resourcePatternResolver, "classpath:templates/email");
+    }
+
+    /**
+     * Exposes the email queue depth, active sends, rejected and parked emails, and the health of every SMTP provider
+     * as metrics.
+     *
+     * @param dispatcher The dispatcher holding the email queue.
+     * @param executor The executor running the sends.
+     * @param router The router holding the SMTP providers.
+     * @return A binder registering the email metrics.
+     */
+    @Bean
+    public MeterBinder emailMetrics(BatchingEmailDispatcher dispatcher, EmailSendExecutor executor, SmtpRouter router) {
+        return registry -> {
+            Gauge.builder("email.queue.depth", dispatcher, BatchingEmailDispatcher::getQueueSize)
+                    .description("Emails waiting to be batched")
+                    .register(registry);
+            Gauge.builder("email.sends.active", executor, EmailSendExecutor::getActiveSends)
+                    .description("SMTP sends currently in flight")
+                    .register(registry);
+            FunctionCounter.builder("email.queue.rejected", dispatcher, BatchingEmailDispatcher::getRejectedCount)
+                    .description("Emails rejected or dropped because the queue was full")
+                    .register(registry);
+            FunctionCounter.builder("email.dead-letter.parked", dispatcher, BatchingEmailDispatcher::getParkedCount)
+                    .description("Queued emails parked because the SMTP server could not be reached")
+                    .register(registry);
+            for (SmtpProvider provider : router.getProviders()) {
+                SmtpCircuitBreaker circuitBreaker = provider.getCircuitBreaker();
+                Gauge.builder("email.circuit-breaker.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                        .description("SMTP circuit breaker state: 0 closed, 1 open, 2 half-open")
+                        .tag("provider", provider.getName())
+                        .register(registry);
+                FunctionCounter.builder("email.circuit-breaker.opened", circuitBreaker, SmtpCircuitBreaker::getOpenedCount)
+                        .description("Times the SMTP circuit breaker opened")
+                        .tag("provider", provider.getName())
+                        .register(registry);
+                FunctionCounter.builder("email.circuit-breaker.short-circuited", circuitBreaker, SmtpCircuitBreaker::getShortCircuitedCount)
+                        .description("Sends refused by the SMTP provider, and routed elsewhere if possible, while its circuit breaker was open")
+                        .tag("provider", provider.getName())
+                        .register(registry);
+                FunctionCounter.builder("email.provider.sent", provider, SmtpProvider::getSentCount)
+                        .description("Emails sent through the SMTP provider")
+                        .tag("provider", provider.getName())
+                        .register(registry);
+                FunctionCounter.builder("email.provider.failures", provider, SmtpProvider::getFailureCount)
+                        .description("Connections to the SMTP provider that failed")
+                        .tag("provider", provider.getName())
+                        .register(registry);
+                Gauge.builder("email.provider.latency", provider, p -> p.getLatencyNanos() / 1_000_000)
+                        .description("Moving average of the time to send one email through the SMTP provider")
+                        .baseUnit("milliseconds")
+                        .tag("provider", provider.getName())
+                        .register(registry);
+                Gauge.builder("email.provider.error-rate", provider, SmtpProvider::getErrorRate)
+                        .description("Moving average of the share of connections to the SMTP provider that failed")
+                        .tag("provider", provider.getName())
+                        .register(registry);
+            }
+        };
+    }
+
+    private Properties sessionProperties(boolean auth, boolean startTls, ScheduledExecutorService smtpWriteTimeoutScheduler) {
+        Properties props = new Properties();
+        props.put("mail.transport.protocol", "smtp");
+        props.put("mail.smtp.auth", String.valueOf(auth));
+        props.put("mail.smtp.starttls.enable", String.valueOf(startTls));
+        props.put("mail.smtp.connectiontimeout", String.valueOf(smtpConnectionTimeoutMillis));
+        props.put("mail.smtp.timeout", String.valueOf(smtpTimeoutMillis));
+        props.put("mail.smtp.writetimeout", String.valueOf(smtpWriteTimeoutMillis));
+        props.put("mail.smtp.executor.writetimeout", smtpWriteTimeoutScheduler);
+        props.put("mail.debug", String.valueOf(mailDebug));
+        return props;
+    }
+
+    private SmtpProvider smtpProvider(String name, int weight, Session session, String host, int port,
+                                      String username, String password, RateLimiter quota) {
+        SmtpTransportPool pool = new SmtpTransportPool(session, host, port, username, password,
+                poolMaxSize, poolMaxIdle, poolMaxLifetime, poolValidationInterval, poolAcquireTimeout);
+        return new SmtpProvider(name, weight, pool,
+                new SmtpCircuitBreaker(circuitBreakerFailureThreshold, circuitBreakerOpenDuration), quota);
+    }
 }
@@ -0,0 +1,37 @@
+package com.empoweru.empowerupasswordrecoveryservice.configurations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.logging.Logger;
+
+/**
+ * Configuration class for the database migrations.
+ */
+@Configuration
+public class FlywayConfig {
+
+    private final Logger logger = Logger.getLogger(FlywayConfig.class.getName());
+
+    /**
+     * Runs the migrations when the application starts, unless {@code migrations.run-on-startup} is off.
+     * Turning it off keeps Flyway's connection and schema history check off every instance's cold start,
+     * for deployments that apply the migrations once at deploy time, and lets the class data sharing
+     * archive be trained without a database.
+     *
+     * @param runOnStartup Whether to run the migrations on startup.
+     * @return The migration strategy.
+     */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${migrations.run-on-startup}") boolean runOnStartup) {
+        return flyway -> {
+            if (runOnStartup) {
+                flyway.migrate();
+            } else {
+                logger.info("Skipping database migrations on startup.");
+            }
+        };
+    }
+}
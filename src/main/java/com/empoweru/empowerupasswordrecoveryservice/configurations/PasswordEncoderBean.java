@@ -1,16 +1,70 @@
 package com.empoweru.empowerupasswordrecoveryservice.configurations;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+import java.util.logging.Logger;
+
 @Configuration
 public class PasswordEncoderBean {
 
+    private static final int CALIBRATION_SAMPLES = 3;
+
+    private final Logger logger = Logger.getLogger(PasswordEncoderBean.class.getName());
+
+    @Value("${password.hashing.target-latency}")
+    private Duration targetLatency;
+
+    @Value("${password.hashing.min-strength}")
+    private int minStrength;
+
+    @Value("${password.hashing.max-strength}")
+    private int maxStrength;
+
+    /**
+     * Creates a BCrypt encoder whose cost is calibrated to the current hardware.
+     * The encoder is created on first use, so the calibration is paid by the first password reset
+     * an instance serves rather than by every cold start; most instances only ever serve code requests.
+     *
+     * @return The password encoder.
+     */
     @Bean
+    @Lazy
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(calibrateStrength());
+    }
+
+    /**
+     * Picks the highest BCrypt strength, within the configured bounds, whose hash fits the target latency.
+     * Each step in strength doubles the work, so the cost is measured once at the minimum strength and extrapolated.
+     *
+     * @return The calibrated strength.
+     */
+    private int calibrateStrength() {
+        String salt = BCrypt.gensalt(minStrength);
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_SAMPLES; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        int strength = minStrength;
+        while (strength < maxStrength && fastest << (strength + 1 - minStrength) <= targetLatency.toNanos()) {
+            strength++;
+        }
+
+        long expectedMillis = Duration.ofNanos(fastest << (strength - minStrength)).toMillis();
+        logger.info("Calibrated BCrypt strength " + strength + ", about " + expectedMillis + " ms per hash (target "
+                + targetLatency.toMillis() + " ms, strength " + minStrength + " took "
+                + Duration.ofNanos(fastest).toMillis() + " ms).");
+        return strength;
     }
 
 }
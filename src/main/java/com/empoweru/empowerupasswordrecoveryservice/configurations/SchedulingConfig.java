@@ -0,0 +1,27 @@
+package com.empoweru.empowerupasswordrecoveryservice.configurations;
+
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Configuration class for the scheduler running the {@code @Scheduled} tasks.
+ */
+@Configuration
+public class SchedulingConfig {
+
+    /**
+     * Creates the scheduler for the {@code @Scheduled} tasks, sized by {@code spring.task.scheduling.pool.size}.
+     * Spring Boot only creates one when the context has no {@link java.util.concurrent.ScheduledExecutorService},
+     * and {@code @EnableScheduling} would otherwise run every task on the single SMTP write timeout thread
+     * declared in {@link EmailConfig}.
+     *
+     * @param builder The builder configured from the {@code spring.task.scheduling} properties.
+     * @return The task scheduler.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.empoweru.empowerupasswordrecoveryservice.configurations;
+
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of one SMTP provider listed under {@code mail.providers}, for example {@code mail.providers[0].host}.
+ *
+ * @param name The name of the provider, used in logs and metrics.
+ * @param host The SMTP server.
+ * @param port The SMTP port.
+ * @param username The account to authenticate as.
+ * @param password The account's password.
+ * @param auth Whether to authenticate.
+ * @param starttls Whether to upgrade the connection with STARTTLS.
+ * @param from The envelope sender, or {@code null} to let the server use the account's address.
+ * @param weight The provider's share of the emails relative to the other providers.
+ * @param quota The number of emails the account may send per {@code quotaPeriod}, or {@code null} for no limit.
+ * @param quotaPeriod The period the quota applies to.
+ */
+public record SmtpProviderProperties(String name,
+                                     String host,
+                                     @DefaultValue("587") int port,
+                                     String username,
+                                     String password,
+                                     @DefaultValue("true") boolean auth,
+                                     @DefaultValue("true") boolean starttls,
+                                     String from,
+                                     @DefaultValue("1") int weight,
+                                     Integer quota,
+                                     @DefaultValue("1d") Duration quotaPeriod) {
+}
@@ -1,8 +1,12 @@
 package com.empoweru.empowerupasswordrecoveryservice.dtos;
 
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 
 @Getter
+@NoArgsConstructor
+@AllArgsConstructor
 public class RequestPasswordRecoveryCodeDTO {
 
     private String email;
@@ -1,12 +1,16 @@
 package com.empoweru.empowerupasswordrecoveryservice.dtos;
 
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 
 /**
  * Data Transfer Object (DTO) for verifying a code during password recovery.
  * This DTO is used to encapsulate the data required to verify a code sent to the user's email.
  */
 @Getter
+@NoArgsConstructor
+@AllArgsConstructor
 public class VerifyCodeDto {
 
     private String email;
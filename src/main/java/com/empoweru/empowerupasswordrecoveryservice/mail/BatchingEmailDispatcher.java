@@ -0,0 +1,406 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Outcome;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Stage;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Queue-backed email dispatcher that coalesces pending emails into batches.
+ * A single dispatcher thread drains the queue into batches of up to {@code maxBatchSize} messages,
+ * waiting at most {@code maxLinger} for a batch to fill up, and hands each batch to the {@link EmailSendExecutor},
+ * which delivers the batch over one leased SMTP connection to a provider picked by the {@link SmtpRouter}.
+ * The queue is bounded; once it is full, new emails are handled according to the {@link OverflowPolicy}.
+ * The time emails spend queued and every SMTP send are timed as stages by {@link RecoveryMetrics}.
+ * <p>
+ * A batch whose connection fails is retried right away on another provider; once every available provider has
+ * failed, they are tried again after a jittered exponential {@link RetryBackoff}. Every send goes through the
+ * provider's {@link SmtpCircuitBreaker}, so sends fail fast while all providers are down.
+ * A batch larger than the providers' remaining quotas is split across them, waiting up to {@code maxQuotaWait}
+ * for a quota to refill.
+ * Queued emails that still could not be sent are parked in the {@link DeadLetterStore} rather than dropped.
+ */
+public class BatchingEmailDispatcher implements AutoCloseable {
+
+    private static final long POLL_INTERVAL_MILLIS = 500;
+
+    private final JavaMailSender javaMailSender;
+    private final SmtpRouter smtpRouter;
+    private final Executor senders;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxAttempts;
+    private final RetryBackoff retryBackoff;
+    private final long maxQuotaWaitNanos;
+    private final DeadLetterStore deadLetterStore;
+    private final RecoveryMetrics recoveryMetrics;
+
+    private final BlockingQueue<Queued> queue;
+    private final EmailBatchStatistics statistics = new EmailBatchStatistics();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder parked = new LongAdder();
+    private final Thread dispatcherThread;
+    private final Logger logger = Logger.getLogger(BatchingEmailDispatcher.class.getName());
+    private volatile boolean running = true;
+
+    public BatchingEmailDispatcher(JavaMailSender javaMailSender, SmtpRouter smtpRouter,
+                                   Executor senders, int maxBatchSize, Duration maxLinger,
+                                   int queueCapacity, OverflowPolicy overflowPolicy, int maxAttempts,
+                                   RetryBackoff retryBackoff, Duration maxQuotaWait,
+                                   DeadLetterStore deadLetterStore, RecoveryMetrics recoveryMetrics) {
+        this.javaMailSender = javaMailSender;
+        this.smtpRouter = smtpRouter;
+        this.senders = senders;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = maxLinger.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.maxQuotaWaitNanos = maxQuotaWait.toNanos();
+        this.deadLetterStore = deadLetterStore;
+        this.recoveryMetrics = recoveryMetrics;
+
+        this.dispatcherThread = new Thread(this::dispatch, "email-batch-dispatcher");
+        this.dispatcherThread.setDaemon(true);
+        this.dispatcherThread.start();
+    }
+
+    /**
+     * Queues an email to be sent with the next batch.
+     * If the queue is full, the email is rejected or the oldest queued email is dropped, depending on the overflow policy.
+     *
+     * @param email The email to send.
+     * @throws RejectedExecutionException if the dispatcher is shut down, or the queue is full and the policy is {@link OverflowPolicy#REJECT}.
+     */
+    public void enqueue(OutgoingEmail email) {
+        if (!running) {
+            throw new RejectedExecutionException("Email dispatcher is shut down");
+        }
+        Queued queued = new Queued(email, System.nanoTime());
+        while (!queue.offer(queued)) {
+            rejected.increment();
+            if (overflowPolicy == OverflowPolicy.REJECT) {
+                throw new RejectedExecutionException("Email queue is full");
+            }
+            if (queue.poll() != null) {
+                logger.warning("Email queue is full, dropped the oldest queued email.");
+            }
+        }
+    }
+
+    /**
+     * Sends a single email immediately on the calling thread, bypassing the queue.
+     *
+     * @param email The email to send.
+     * @throws MessagingException if the email could not be delivered.
+     */
+    public void send(OutgoingEmail email) throws MessagingException {
+        if (!sendBatch(List.of(email)).isEmpty()) {
+            throw new MessagingException("Failed to send email to " + email.to());
+        }
+    }
+
+    /**
+     * Sends a batch of emails on the calling thread, as {@link #deliver(List)} does.
+     *
+     * @param batch The emails to send.
+     * @return The emails that could not be delivered, empty if the whole batch was sent.
+     * @see #deliver(List)
+     */
+    public List<OutgoingEmail> sendBatch(List<OutgoingEmail> batch) {
+        return deliver(batch).failed();
+    }
+
+    /**
+     * Sends a batch of emails on the calling thread, using {@code Transport.sendMessage} for each message in turn,
+     * over one SMTP connection per provider the batch is routed to.
+     * If a connection fails, the remaining messages are retried on another provider right away. Once every available
+     * provider has failed, they are tried again after a backoff, up to {@code maxAttempts} connections in all.
+     * A connection that had been idle in the pool is retried right away and does not count as an attempt.
+     * Nothing is sent while every provider's circuit breaker is open.
+     *
+     * @param batch The emails to send.
+     * @return The emails the server refused, and the emails not sent because no provider could take them.
+     */
+    public Delivery deliver(List<OutgoingEmail> batch) {
+        long start = System.nanoTime();
+        List<OutgoingEmail> refused = new ArrayList<>();
+        Set<SmtpProvider> failedProviders = new HashSet<>();
+        int next = 0;
+        int attempts = 0;
+        long quotaWaitNanos = 0;
+        String error = null;
+
+        while (next < batch.size()) {
+            SmtpRouter.Route route = smtpRouter.route(batch.size() - next, failedProviders);
+            if (route.provider() == null && !failedProviders.isEmpty()) {
+                // Every other provider is unavailable, so back off and try the ones that failed again.
+                if (!sleep(retryBackoff.delayNanos(attempts))) {
+                    break;
+                }
+                failedProviders.clear();
+                continue;
+            }
+            if (route.provider() == null) {
+                long wait = route.retryAfter() == null ? Long.MAX_VALUE : route.retryAfter().toNanos();
+                if (wait > maxQuotaWaitNanos - quotaWaitNanos) {
+                    if (error == null) {
+                        error = route.retryAfter() == null ? "Every SMTP provider's circuit breaker is open"
+                                : "Every SMTP provider's send quota is used up";
+                    }
+                    break;
+                }
+                quotaWaitNanos += wait;
+                if (!sleep(wait)) {
+                    break;
+                }
+                continue;
+            }
+
+            SmtpProvider provider = route.provider();
+            int end = next + route.messages();
+            int sent = 0;
+            long sendNanos = 0;
+            boolean reused = false;
+            try (SmtpTransportPool.Lease lease = provider.getTransportPool().lease()) {
+                reused = lease.isReused();
+                for (; next < end; next++) {
+                    OutgoingEmail email = batch.get(next);
+                    long sendStarted = System.nanoTime();
+                    MimeMessage mimeMessage;
+                    try {
+                        mimeMessage = createMimeMessage(email);
+                    } catch (MessagingException e) {
+                        recoveryMetrics.recordStage(Stage.SMTP_SEND, Outcome.REJECTED, sendStarted);
+                        logger.warning("Failed to build email. " + e.getMessage());
+                        refused.add(email);
+                        continue;
+                    }
+                    try {
+                        long transferStarted = System.nanoTime();
+                        lease.transport().sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+                        sendNanos += System.nanoTime() - transferStarted;
+                        recoveryMetrics.recordStage(Stage.SMTP_SEND, Outcome.OK, sendStarted);
+                        sent++;
+                    } catch (SendFailedException e) {
+                        recoveryMetrics.recordStage(Stage.SMTP_SEND, Outcome.REJECTED, sendStarted);
+                        logger.warning("Failed to send email. " + e.getMessage());
+                        refused.add(email);
+                    } catch (MessagingException | RuntimeException e) {
+                        recoveryMetrics.recordStage(Stage.SMTP_SEND, Outcome.FAILED, sendStarted);
+                        lease.invalidate();
+                        throw e;
+                    }
+                }
+                provider.getCircuitBreaker().recordSuccess();
+                provider.recordSent(sent, sendNanos);
+            } catch (MessagingException | RuntimeException e) {
+                error = provider.getName() + ": " + e.getMessage();
+                if (reused) {
+                    // The server may have dropped an idle connection; that says nothing about its health.
+                    provider.getCircuitBreaker().release();
+                    continue;
+                }
+                provider.getCircuitBreaker().recordFailure();
+                provider.recordFailure();
+                failedProviders.add(provider);
+                if (++attempts >= maxAttempts) {
+                    logger.warning("Failed to send email batch after " + attempts + " attempts. " + error);
+                    break;
+                }
+            }
+        }
+
+        List<OutgoingEmail> deferred = List.copyOf(batch.subList(next, batch.size()));
+        statistics.recordBatch(batch.size(), refused.size() + deferred.size(), System.nanoTime() - start);
+        return new Delivery(refused, deferred, error);
+    }
+
+    /**
+     * @return The number of emails waiting to be batched.
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * @return The number of emails rejected or dropped because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return The number of queued emails parked in the dead-letter store.
+     */
+    public long getParkedCount() {
+        return parked.sum();
+    }
+
+    /**
+     * @return Per-batch size and latency statistics.
+     */
+    public EmailBatchStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Stops accepting new emails and hands the emails still queued to the sender executor.
+     * Waiting for the resulting sends to finish is left to the executor.
+     * An interrupt ends the wait for the dispatcher thread early and is left set on the calling thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            dispatcherThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch() {
+        List<Queued> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Queued first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch);
+
+                List<Queued> pending = List.copyOf(batch);
+                batch.clear();
+                senders.execute(() -> sendQueued(pending));
+            } catch (RejectedExecutionException e) {
+                logger.warning("Failed to hand email batch to the sender executor. " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends a batch taken from the queue, recording how long each email waited,
+     * including the wait for a free sender. Emails that could not be sent because the server was unreachable
+     * are parked in the dead-letter store.
+     */
+    private void sendQueued(List<Queued> pending) {
+        long now = System.nanoTime();
+        List<OutgoingEmail> batch = new ArrayList<>(pending.size());
+        for (Queued queued : pending) {
+            recoveryMetrics.recordStage(Stage.EMAIL_QUEUE_WAIT, Outcome.OK, now - queued.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            batch.add(queued.email());
+        }
+        Delivery delivery = deliver(batch);
+        if (delivery.deferred().isEmpty()) {
+            return;
+        }
+        try {
+            deadLetterStore.park(delivery.deferred(), delivery.error());
+            parked.add(delivery.deferred().size());
+        } catch (RuntimeException e) {
+            logger.warning("Failed to park " + delivery.deferred().size() + " emails in the dead-letter store. " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return false if the thread was interrupted while sleeping.
+     */
+    private static boolean sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void fill(List<Queued> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxLingerNanos;
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+            Queued next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Builds the MIME message for an email, as sent by {@link #sendBatch(List)}.
+     * An email with a plain-text alternative becomes a multipart/alternative message.
+     *
+     * @param email The email to build.
+     * @return The MIME message, with its headers finalized.
+     * @throws MessagingException if the message could not be built.
+     */
+    public MimeMessage createMimeMessage(OutgoingEmail email) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        boolean alternative = email.textContent() != null;
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, alternative, "utf-8");
+
+        helper.setTo(email.to());
+        helper.setReplyTo("noreply@noreply.com");
+        helper.setSentDate(new Date());
+        helper.setSubject(email.subject());
+        if (alternative) {
+            helper.setText(email.textContent(), email.htmlContent());
+        } else {
+            helper.setText(email.htmlContent(), true);
+        }
+        mimeMessage.saveChanges();
+
+        return mimeMessage;
+    }
+
+    private record Queued(OutgoingEmail email, long enqueuedNanos) {
+    }
+
+    /**
+     * The outcome of {@link #deliver(List)}; every email not listed was sent.
+     *
+     * @param refused The emails the server refused, which will not succeed if sent again.
+     * @param deferred The emails not sent because no provider could be reached or had quota left.
+     * @param error The last connection error, or {@code null} if every connection succeeded.
+     */
+    public record Delivery(List<OutgoingEmail> refused, List<OutgoingEmail> deferred, String error) {
+
+        public List<OutgoingEmail> failed() {
+            if (deferred.isEmpty()) {
+                return refused;
+            }
+            List<OutgoingEmail> failed = new ArrayList<>(refused);
+            failed.addAll(deferred);
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.StringConcatException;
+import java.lang.invoke.StringConcatFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A text template parsed once into alternating literal and placeholder segments.
+ * Placeholders are written as {@code {{name}}}. The literals are baked into a concatenation handle from
+ * {@link StringConcatFactory}, the same strategy javac uses for string concatenation, so rendering sizes
+ * the result exactly and copies each segment once without intermediate buffers.
+ */
+public final class CompiledTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    private static final char ARGUMENT_TAG = '\u0001';
+    private static final char CONSTANT_TAG = '\u0002';
+
+    private final String[] placeholders;
+    private final boolean escapeHtml;
+    private final String constant;
+    private final MethodHandle concatenation;
+
+    private CompiledTemplate(String[] literals, String[] placeholders, boolean escapeHtml) {
+        this.placeholders = placeholders;
+        this.escapeHtml = escapeHtml;
+        this.constant = placeholders.length == 0 ? literals[0] : null;
+        this.concatenation = placeholders.length == 0 ? null : concatenation(literals, placeholders.length);
+    }
+
+    /**
+     * Parses a template source into segments.
+     *
+     * @param source The template text.
+     * @param escapeHtml Whether placeholder values are HTML-escaped when rendered.
+     * @return The compiled template.
+     * @throws IllegalArgumentException if a placeholder is not closed.
+     */
+    public static CompiledTemplate compile(String source, boolean escapeHtml) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int position = 0;
+        int open;
+        while ((open = source.indexOf(OPEN, position)) >= 0) {
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            literals.add(source.substring(position, open));
+            placeholders.add(source.substring(open + OPEN.length(), close).trim());
+            position = close + CLOSE.length();
+        }
+        literals.add(source.substring(position));
+        return new CompiledTemplate(literals.toArray(String[]::new), placeholders.toArray(String[]::new), escapeHtml);
+    }
+
+    /**
+     * Renders the template with the given placeholder values. Missing values render as an empty string.
+     *
+     * @param values The placeholder values by name.
+     * @return The rendered text.
+     */
+    public String render(Map<String, String> values) {
+        if (concatenation == null) {
+            return constant;
+        }
+        String[] arguments = new String[placeholders.length];
+        for (int i = 0; i < placeholders.length; i++) {
+            arguments[i] = escape(values.getOrDefault(placeholders[i], ""));
+        }
+        try {
+            return (String) concatenation.invokeExact(arguments);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to render template", e);
+        }
+    }
+
+    private static MethodHandle concatenation(String[] literals, int arity) {
+        StringBuilder recipe = new StringBuilder();
+        List<Object> constants = new ArrayList<>();
+        for (int i = 0; i < literals.length; i++) {
+            appendLiteral(recipe, constants, literals[i]);
+            if (i < arity) {
+                recipe.append(ARGUMENT_TAG);
+            }
+        }
+        MethodType type = MethodType.methodType(String.class, Collections.nCopies(arity, String.class));
+        try {
+            return StringConcatFactory.makeConcatWithConstants(
+                            MethodHandles.lookup(), "render", type, recipe.toString(), constants.toArray())
+                    .dynamicInvoker()
+                    .asSpreader(String[].class, arity);
+        } catch (StringConcatException e) {
+            throw new IllegalArgumentException("Template cannot be compiled", e);
+        }
+    }
+
+    private static void appendLiteral(StringBuilder recipe, List<Object> constants, String literal) {
+        // Literals holding the recipe tag characters are passed as separate constants instead of inline.
+        if (literal.indexOf(ARGUMENT_TAG) >= 0 || literal.indexOf(CONSTANT_TAG) >= 0) {
+            recipe.append(CONSTANT_TAG);
+            constants.add(literal);
+        } else {
+            recipe.append(literal);
+        }
+    }
+
+    private String escape(String value) {
+        if (!escapeHtml || !needsEscaping(value)) {
+            return value;
+        }
+        StringBuilder out = new StringBuilder(value.length() + 16);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean needsEscaping(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '<' || c == '>' || c == '&' || c == '"' || c == '\'') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
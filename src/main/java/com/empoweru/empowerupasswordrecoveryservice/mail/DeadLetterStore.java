@@ -0,0 +1,19 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import java.util.List;
+
+/**
+ * Durable place for queued emails that could not be sent because the SMTP server was failing,
+ * so they can be sent once it recovers instead of being lost with the in-memory queue.
+ */
+@FunctionalInterface
+public interface DeadLetterStore {
+
+    /**
+     * Stores emails to be sent later.
+     *
+     * @param emails The emails that could not be sent.
+     * @param reason Why they could not be sent.
+     */
+    void park(List<OutgoingEmail> emails, String reason);
+}
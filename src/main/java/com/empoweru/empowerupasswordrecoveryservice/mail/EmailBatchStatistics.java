@@ -0,0 +1,65 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running statistics about the batches sent by the {@link BatchingEmailDispatcher}.
+ * Records the size and latency of every batch and the number of messages that could not be delivered.
+ */
+public class EmailBatchStatistics {
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private volatile long lastBatchSize;
+    private volatile long lastLatencyNanos;
+
+    void recordBatch(int size, int failed, long latencyNanos) {
+        batches.increment();
+        messages.add(size);
+        failures.add(failed);
+        totalLatencyNanos.add(latencyNanos);
+        maxBatchSize.accumulateAndGet(size, Math::max);
+        maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+        lastBatchSize = size;
+        lastLatencyNanos = latencyNanos;
+    }
+
+    /**
+     * @return A point-in-time copy of the statistics.
+     */
+    public Snapshot snapshot() {
+        long batchCount = batches.sum();
+        long messageCount = messages.sum();
+        long latency = totalLatencyNanos.sum();
+        return new Snapshot(
+                batchCount,
+                messageCount,
+                failures.sum(),
+                batchCount == 0 ? 0 : (double) messageCount / batchCount,
+                maxBatchSize.get(),
+                lastBatchSize,
+                batchCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(latency / batchCount),
+                TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(lastLatencyNanos));
+    }
+
+    /**
+     * Point-in-time view of the batch statistics. Latencies are in milliseconds.
+     */
+    public record Snapshot(long batches,
+                           long messages,
+                           long failures,
+                           double averageBatchSize,
+                           long maxBatchSize,
+                           long lastBatchSize,
+                           long averageLatencyMillis,
+                           long maxLatencyMillis,
+                           long lastLatencyMillis) {
+    }
+}
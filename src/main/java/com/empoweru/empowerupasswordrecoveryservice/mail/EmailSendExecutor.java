@@ -0,0 +1,115 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Executor for blocking SMTP sends.
+ * Every send runs on its own thread, a virtual thread when the runtime supports them,
+ * and a semaphore caps the number of sends, and therefore SMTP sessions, in flight at once.
+ * {@link #execute(Runnable)} blocks the submitting thread while every permit is taken,
+ * which pushes back on the {@link BatchingEmailDispatcher} queue.
+ * Closing the executor stops new submissions and waits for in-flight sends to finish.
+ */
+public class EmailSendExecutor implements Executor, AutoCloseable {
+
+    private final SimpleAsyncTaskExecutor threads;
+    private final Semaphore permits;
+    private final int maxConcurrentSends;
+    private final Duration drainTimeout;
+    private final AtomicInteger activeSends = new AtomicInteger();
+    private final Logger logger = Logger.getLogger(EmailSendExecutor.class.getName());
+    private volatile boolean accepting = true;
+
+    public EmailSendExecutor(int maxConcurrentSends, boolean virtualThreads, Duration drainTimeout) {
+        this.maxConcurrentSends = maxConcurrentSends;
+        this.drainTimeout = drainTimeout;
+        this.permits = new Semaphore(maxConcurrentSends, true);
+
+        this.threads = new SimpleAsyncTaskExecutor("email-send-");
+        this.threads.setDaemon(true);
+        if (virtualThreads) {
+            if (JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+                this.threads.setVirtualThreads(true);
+            } else {
+                logger.info("Virtual threads are not available on this runtime, email sends use platform threads.");
+            }
+        }
+    }
+
+    /**
+     * Runs the task once a send permit is available, blocking the caller until then.
+     *
+     * @param task The send to run.
+     * @throws RejectedExecutionException if the executor is closed or the caller is interrupted while waiting.
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (!accepting) {
+            throw new RejectedExecutionException("Email send executor is shut down");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for a send permit", e);
+        }
+
+        activeSends.incrementAndGet();
+        try {
+            threads.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    activeSends.decrementAndGet();
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            activeSends.decrementAndGet();
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The number of sends currently running.
+     */
+    public int getActiveSends() {
+        return activeSends.get();
+    }
+
+    /**
+     * @return The maximum number of sends allowed to run at once.
+     */
+    public int getMaxConcurrentSends() {
+        return maxConcurrentSends;
+    }
+
+    /**
+     * Stops accepting sends and waits up to the drain timeout for in-flight sends to finish.
+     * An interrupt ends the wait early and is left set on the calling thread.
+     */
+    @Override
+    public void close() {
+        accepting = false;
+        try {
+            if (permits.tryAcquire(maxConcurrentSends, drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                permits.release(maxConcurrentSends);
+            } else {
+                logger.warning("Timed out draining email sends, " + activeSends.get() + " still in flight.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Interrupted draining email sends, " + activeSends.get() + " still in flight.");
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Loads and renders the email templates of the service.
+ * Every template is read and compiled once when the engine is created. A template is a directory named after
+ * the template ID holding {@code subject.txt}, {@code body.html} and optionally {@code body.txt} as a plain-text
+ * alternative. Locale variants add the locale as a suffix, for example {@code body_pt_BR.html}.
+ * Lookups fall back from the requested locale to any variant in the same language and then to the default variant.
+ */
+public class EmailTemplateEngine {
+
+    private static final String SUBJECT = "subject";
+    private static final String BODY = "body";
+
+    private final Map<String, Map<Locale, EmailTemplate>> templates;
+
+    private EmailTemplateEngine(Map<String, Map<Locale, EmailTemplate>> templates) {
+        this.templates = templates;
+    }
+
+    /**
+     * Loads and compiles every template found under the given location.
+     *
+     * @param resolver The resolver used to find the template files.
+     * @param location The directory holding one sub-directory per template, such as {@code classpath:templates/email}.
+     * @return An engine holding the compiled templates.
+     * @throws IOException if a template file cannot be read.
+     * @throws IllegalStateException if a template variant has no subject or no HTML body.
+     */
+    public static EmailTemplateEngine load(ResourcePatternResolver resolver, String location) throws IOException {
+        Map<String, Map<Locale, Map<String, CompiledTemplate>>> parts = new HashMap<>();
+        for (Resource resource : resolver.getResources(location + "/*/*.*")) {
+            String path = resource.getURL().getPath();
+            String[] segments = path.split("/");
+            String templateId = segments[segments.length - 2];
+            String fileName = segments[segments.length - 1];
+
+            String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+            String baseName = fileName.substring(0, fileName.lastIndexOf('.'));
+            int separator = baseName.indexOf('_');
+            String part = separator < 0 ? baseName : baseName.substring(0, separator);
+            Locale locale = separator < 0 ? Locale.ROOT : Locale.forLanguageTag(baseName.substring(separator + 1).replace('_', '-'));
+
+            String source = resource.getContentAsString(StandardCharsets.UTF_8);
+            boolean html = extension.equals("html");
+            parts.computeIfAbsent(templateId, id -> new HashMap<>())
+                    .computeIfAbsent(locale, l -> new HashMap<>())
+                    .put(part + "." + extension, CompiledTemplate.compile(html ? source : source.strip(), html));
+        }
+
+        Map<String, Map<Locale, EmailTemplate>> templates = new HashMap<>();
+        parts.forEach((templateId, variants) -> {
+            Map<Locale, EmailTemplate> byLocale = new HashMap<>();
+            variants.forEach((locale, files) -> {
+                CompiledTemplate subject = files.get(SUBJECT + ".txt");
+                CompiledTemplate htmlBody = files.get(BODY + ".html");
+                if (subject == null || htmlBody == null) {
+                    throw new IllegalStateException("Template " + templateId + " (" + locale + ") needs a subject and an HTML body");
+                }
+                byLocale.put(locale, new EmailTemplate(subject, htmlBody, files.get(BODY + ".txt")));
+            });
+            if (!byLocale.containsKey(Locale.ROOT)) {
+                throw new IllegalStateException("Template " + templateId + " has no default variant");
+            }
+            templates.put(templateId, Map.copyOf(byLocale));
+        });
+        return new EmailTemplateEngine(Map.copyOf(templates));
+    }
+
+    /**
+     * Renders a template for the given recipient.
+     *
+     * @param templateId The ID of the template to render.
+     * @param locale The preferred locale, or {@code null} for the default variant.
+     * @param to The recipient's email address.
+     * @param values The placeholder values by name.
+     * @return The rendered email.
+     * @throws IllegalArgumentException if no template exists with the given ID.
+     */
+    public OutgoingEmail render(String templateId, Locale locale, String to, Map<String, String> values) {
+        EmailTemplate template = resolve(templateId, locale);
+        return new OutgoingEmail(
+                to,
+                template.subject().render(values),
+                template.htmlBody().render(values),
+                template.textBody() == null ? null : template.textBody().render(values));
+    }
+
+    private EmailTemplate resolve(String templateId, Locale locale) {
+        Map<Locale, EmailTemplate> variants = templates.get(templateId);
+        if (variants == null) {
+            throw new IllegalArgumentException("Unknown email template " + templateId);
+        }
+        if (locale != null) {
+            EmailTemplate template = variants.get(locale);
+            if (template != null) {
+                return template;
+            }
+            for (Map.Entry<Locale, EmailTemplate> variant : variants.entrySet()) {
+                if (!locale.getLanguage().isEmpty() && variant.getKey().getLanguage().equals(locale.getLanguage())) {
+                    return variant.getValue();
+                }
+            }
+        }
+        return variants.get(Locale.ROOT);
+    }
+
+    private record EmailTemplate(CompiledTemplate subject, CompiledTemplate htmlBody, CompiledTemplate textBody) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+/**
+ * An email waiting to be sent by the {@link BatchingEmailDispatcher}.
+ *
+ * @param to The recipient's email address.
+ * @param subject The subject of the email.
+ * @param htmlContent The HTML content of the email.
+ * @param textContent The plain-text alternative of the email, or {@code null} to send HTML only.
+ */
+public record OutgoingEmail(String to, String subject, String htmlContent, String textContent) {
+
+    public OutgoingEmail(String to, String subject, String htmlContent) {
+        this(to, subject, htmlContent, null);
+    }
+}
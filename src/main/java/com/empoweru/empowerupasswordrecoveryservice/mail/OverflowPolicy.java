@@ -0,0 +1,15 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+/**
+ * What the {@link BatchingEmailDispatcher} does with a new email when its queue is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * Refuse the new email by throwing a {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    REJECT,
+    /**
+     * Drop the oldest queued email to make room for the new one.
+     */
+    SHED_OLDEST
+}
@@ -0,0 +1,27 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter: the wait before retry {@code n} doubles from {@code initial} up to {@code max},
+ * and half of it is random, so callers that failed together do not retry together.
+ *
+ * @param initial The wait before the first retry, before jitter.
+ * @param max The longest wait, before jitter.
+ */
+public record RetryBackoff(Duration initial, Duration max) {
+
+    /**
+     * @param retry The retry about to be made, starting at 1.
+     * @return The time to wait before it, in nanoseconds.
+     */
+    public long delayNanos(int retry) {
+        long ceiling = initial.toNanos() << Math.min(retry - 1, 30);
+        if (ceiling <= 0 || ceiling > max.toNanos()) {
+            ceiling = max.toNanos();
+        }
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+}
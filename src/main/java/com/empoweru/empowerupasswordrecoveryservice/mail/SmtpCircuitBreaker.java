@@ -0,0 +1,131 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Circuit breaker around the SMTP server, so that sends fail fast while the server is down or hanging
+ * instead of each one waiting out its timeouts.
+ * <p>
+ * The breaker opens after {@code failureThreshold} consecutive connection failures. While it is open, every send is
+ * refused without touching the network. Once {@code openDuration} has passed, a single trial send is let through:
+ * if it succeeds the breaker closes, otherwise it opens again for another {@code openDuration}.
+ * Callers must report the outcome of every send they were allowed to start.
+ */
+public class SmtpCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Logger logger = Logger.getLogger(SmtpCircuitBreaker.class.getName());
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    public SmtpCircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Asks to start a send.
+     *
+     * @return true if the send may go ahead, false if it must fail fast.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt >= openNanos) {
+                    state = State.HALF_OPEN;
+                    trialInFlight = true;
+                    return true;
+                }
+                break;
+            case HALF_OPEN:
+                if (!trialInFlight) {
+                    trialInFlight = true;
+                    return true;
+                }
+                break;
+        }
+        shortCircuited.increment();
+        return false;
+    }
+
+    /**
+     * Reports that a send reached the server, even if the server refused some of the recipients.
+     */
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("SMTP server is reachable again, closing the circuit breaker.");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * Reports that a send ended without telling anything about the server, for example because a pooled
+     * connection had gone stale while idle. In the half-open state, this lets another trial send through.
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Reports that a send could not reach the server, or the connection failed or timed out during the send.
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            if (state == State.CLOSED) {
+                logger.warning("SMTP server failed " + consecutiveFailures + " times in a row, opening the circuit breaker for "
+                        + Duration.ofNanos(openNanos).toSeconds() + " s.");
+            }
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            opened.increment();
+        }
+    }
+
+    /**
+     * @return true if a send started now would be refused.
+     */
+    public synchronized boolean isOpen() {
+        return switch (state) {
+            case CLOSED -> false;
+            case OPEN -> System.nanoTime() - openedAt < openNanos;
+            case HALF_OPEN -> trialInFlight;
+        };
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return The number of sends refused while the breaker was open.
+     */
+    public long getShortCircuitedCount() {
+        return shortCircuited.sum();
+    }
+
+    /**
+     * @return The number of times the breaker opened.
+     */
+    public long getOpenedCount() {
+        return opened.sum();
+    }
+}
@@ -0,0 +1,135 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import com.empoweru.empowerupasswordrecoveryservice.ratelimit.RateLimiter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One SMTP server, or one account on a server, that the {@link SmtpRouter} can send emails through.
+ * Each provider has its own connection pool and circuit breaker, an optional send quota, and keeps a moving average
+ * of its send latency and connection error rate, which the router uses to favour the faster and healthier providers.
+ */
+public class SmtpProvider implements AutoCloseable {
+
+    // Weight of the latest observation in the moving averages.
+    private static final double SMOOTHING = 0.2;
+
+    private final String name;
+    private final int weight;
+    private final SmtpTransportPool transportPool;
+    private final SmtpCircuitBreaker circuitBreaker;
+    private final RateLimiter rateLimiter;
+
+    private double latencyNanos;
+    private double errorRate;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param name The name of the provider, used in logs and metrics.
+     * @param weight The share of the emails the provider gets relative to the others, when all are equally fast and healthy.
+     * @param transportPool The pool of connections to the provider.
+     * @param circuitBreaker The circuit breaker that takes the provider out of rotation while it is failing.
+     * @param rateLimiter The provider's send quota, or {@code null} if it has none.
+     */
+    public SmtpProvider(String name, int weight, SmtpTransportPool transportPool,
+                        SmtpCircuitBreaker circuitBreaker, RateLimiter rateLimiter) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight of SMTP provider " + name + " must be positive");
+        }
+        this.name = name;
+        this.weight = weight;
+        this.transportPool = transportPool;
+        this.circuitBreaker = circuitBreaker;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Takes as many sends as the provider's quota allows, up to {@code messages}.
+     *
+     * @return The number of emails the provider may send now.
+     */
+    int acquireQuota(int messages) {
+        return rateLimiter == null ? messages : rateLimiter.tryAcquireUpTo(name, messages);
+    }
+
+    /**
+     * @return How long until the provider's quota allows another send, zero if it does now.
+     */
+    Duration timeUntilQuota() {
+        return rateLimiter == null ? Duration.ZERO : rateLimiter.timeUntilAvailable(name);
+    }
+
+    /**
+     * Records emails sent over one connection.
+     *
+     * @param messages The number of emails sent.
+     * @param sendNanos The time spent sending them, not counting opening the connection.
+     */
+    public synchronized void recordSent(int messages, long sendNanos) {
+        sent.add(messages);
+        if (messages > 0) {
+            double perMessage = (double) sendNanos / messages;
+            latencyNanos = latencyNanos == 0 ? perMessage : latencyNanos + SMOOTHING * (perMessage - latencyNanos);
+        }
+        errorRate -= SMOOTHING * errorRate;
+    }
+
+    /**
+     * Records a connection that could not be opened or failed during a send.
+     */
+    public synchronized void recordFailure() {
+        failures.increment();
+        errorRate += SMOOTHING * (1 - errorRate);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public SmtpTransportPool getTransportPool() {
+        return transportPool;
+    }
+
+    public SmtpCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return The moving average of the time to send one email, in nanoseconds, or zero before the first send.
+     */
+    public synchronized double getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * @return The moving average of the share of connections that failed, between 0 and 1.
+     */
+    public synchronized double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * @return The number of emails sent through the provider.
+     */
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    /**
+     * @return The number of connections to the provider that failed.
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    @Override
+    public void close() {
+        transportPool.close();
+    }
+}
@@ -0,0 +1,142 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Spreads emails over several {@link SmtpProvider}s, so that throughput is not capped by one account's send quota.
+ * <p>
+ * Each route picks a provider at random in proportion to its score: its configured weight, scaled down by its
+ * connection error rate and by how much slower it has been than the fastest provider. A provider whose circuit breaker
+ * is open refuses the route, which then goes to the next pick, until the breaker lets a trial send through;
+ * a recovered provider is back in rotation as soon as a trial succeeds.
+ * A provider whose quota is used up is skipped, and one whose quota only covers part of a batch gets that part.
+ */
+public class SmtpRouter implements AutoCloseable {
+
+    // Floors on the error and latency factors, so that every provider still gets some of the emails
+    // and its averages follow when it gets healthier or faster again.
+    private static final double MIN_HEALTH = 0.05;
+    private static final double MIN_SPEED = 0.1;
+
+    private final List<SmtpProvider> providers;
+
+    public SmtpRouter(List<SmtpProvider> providers) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("At least one SMTP provider is required");
+        }
+        this.providers = List.copyOf(providers);
+    }
+
+    /**
+     * Picks the provider for the next connection. The provider's circuit breaker has let the send through,
+     * so the caller must report its outcome, and its quota has been taken for the returned number of emails.
+     *
+     * @param messages The number of emails waiting to be sent.
+     * @param excluded Providers not to pick, such as those that already failed for this batch.
+     * @return The provider and how many of the emails it may send, or, if no provider can take any,
+     * how long until a provider's quota allows another send.
+     */
+    public Route route(int messages, Collection<SmtpProvider> excluded) {
+        List<SmtpProvider> candidates = new ArrayList<>(providers.size());
+        double fastest = Double.MAX_VALUE;
+        for (SmtpProvider provider : providers) {
+            if (!excluded.contains(provider)) {
+                candidates.add(provider);
+                if (provider.getLatencyNanos() > 0) {
+                    fastest = Math.min(fastest, provider.getLatencyNanos());
+                }
+            }
+        }
+
+        double[] scores = new double[candidates.size()];
+        double total = 0;
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = score(candidates.get(i), fastest);
+            total += scores[i];
+        }
+
+        Duration retryAfter = null;
+        for (int remaining = candidates.size(); remaining > 0; remaining--) {
+            int picked = pick(scores, total);
+            SmtpProvider provider = candidates.get(picked);
+            total -= scores[picked];
+            scores[picked] = 0;
+
+            if (!provider.getCircuitBreaker().tryAcquire()) {
+                continue;
+            }
+            int granted = provider.acquireQuota(messages);
+            if (granted > 0) {
+                return new Route(provider, granted, null);
+            }
+            provider.getCircuitBreaker().release();
+            Duration wait = provider.timeUntilQuota();
+            if (retryAfter == null || wait.compareTo(retryAfter) < 0) {
+                retryAfter = wait;
+            }
+        }
+        return new Route(null, 0, retryAfter);
+    }
+
+    /**
+     * @return true if at least one provider's circuit breaker would let a send through.
+     */
+    public boolean isAvailable() {
+        for (SmtpProvider provider : providers) {
+            if (!provider.getCircuitBreaker().isOpen()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<SmtpProvider> getProviders() {
+        return providers;
+    }
+
+    /**
+     * Closes the connection pools of every provider.
+     */
+    @Override
+    public void close() {
+        providers.forEach(SmtpProvider::close);
+    }
+
+    private static double score(SmtpProvider provider, double fastest) {
+        double health = Math.max(MIN_HEALTH, 1 - provider.getErrorRate());
+        double latency = provider.getLatencyNanos();
+        double speed = latency > 0 && fastest < Double.MAX_VALUE ? Math.max(MIN_SPEED, fastest / latency) : 1;
+        return provider.getWeight() * health * speed;
+    }
+
+    private static int pick(double[] scores, double total) {
+        double target = ThreadLocalRandom.current().nextDouble() * total;
+        int last = -1;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] <= 0) {
+                continue;
+            }
+            last = i;
+            target -= scores[i];
+            if (target < 0) {
+                return i;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * A routing decision.
+     *
+     * @param provider The provider to send through, or {@code null} if no provider can take any email now.
+     * @param messages How many of the emails the provider may send.
+     * @param retryAfter When no provider was picked because of their quotas, how long until one allows a send;
+     * {@code null} if every provider is failing or excluded.
+     */
+    public record Route(SmtpProvider provider, int messages, Duration retryAfter) {
+    }
+}
@@ -0,0 +1,260 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Pool of connected and authenticated SMTP {@link Transport} instances.
+ * Keeps connections alive between sends so that the TCP connect, STARTTLS handshake and AUTH
+ * are paid once per connection instead of once per email.
+ * Connections are leased to sending threads, validated with NOOP when they have been idle,
+ * evicted when idle for too long and closed once they reach their maximum lifetime.
+ */
+public class SmtpTransportPool implements AutoCloseable {
+
+    private final Session session;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final Duration maxIdle;
+    private final Duration maxLifetime;
+    private final Duration validationInterval;
+    private final Duration acquireTimeout;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService evictor;
+    private final Logger logger = Logger.getLogger(SmtpTransportPool.class.getName());
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong leased = new AtomicLong();
+    private volatile boolean closed;
+
+    public SmtpTransportPool(Session session, String host, int port, String username, String password,
+                             int maxSize, Duration maxIdle, Duration maxLifetime,
+                             Duration validationInterval, Duration acquireTimeout) {
+        this.session = session;
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.maxIdle = maxIdle;
+        this.maxLifetime = maxLifetime;
+        this.validationInterval = validationInterval;
+        this.acquireTimeout = acquireTimeout;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "smtp-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, maxIdle.toMillis() / 2);
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leases a connected transport from the pool, opening a new connection if no healthy idle one is available.
+     * The returned lease must be closed to hand the connection back to the pool.
+     *
+     * @return A lease over a connected transport.
+     * @throws MessagingException if no connection could be established or the pool is exhausted.
+     */
+    public Lease lease() throws MessagingException {
+        if (closed) {
+            throw new MessagingException("SMTP transport pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for an SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isReusable(pooled, System.nanoTime())) {
+                    leased.incrementAndGet();
+                    return new Lease(pooled, true);
+                }
+                pooled.close();
+            }
+            pooled = connect();
+            leased.incrementAndGet();
+            return new Lease(pooled, false);
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The number of SMTP connections opened since the pool was created.
+     */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * @return The number of leases handed out since the pool was created.
+     */
+    public long getLeaseCount() {
+        return leased.get();
+    }
+
+    /**
+     * @return The number of connections currently idle in the pool.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Closes every idle connection and stops the eviction task.
+     * Connections currently leased are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.close();
+        }
+    }
+
+    private PooledTransport connect() throws MessagingException {
+        Transport transport = session.getTransport("smtp");
+        transport.connect(host, port, username, password);
+        created.incrementAndGet();
+        return new PooledTransport(transport, System.nanoTime());
+    }
+
+    private boolean isReusable(PooledTransport pooled, long now) {
+        if (pooled.isExpired(now) || pooled.isIdleTooLong(now)) {
+            return false;
+        }
+        if (now - pooled.lastValidatedAt < validationInterval.toNanos()) {
+            return true;
+        }
+        // Transport.isConnected() issues an SMTP NOOP, so a dropped connection is detected here.
+        if (pooled.transport.isConnected()) {
+            pooled.lastValidatedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    private void release(PooledTransport pooled, boolean broken) {
+        try {
+            long now = System.nanoTime();
+            if (closed || broken || pooled.isExpired(now)) {
+                pooled.close();
+            } else {
+                pooled.lastUsedAt = now;
+                pooled.lastValidatedAt = now;
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        for (PooledTransport pooled : idle) {
+            if ((pooled.isExpired(now) || pooled.isIdleTooLong(now)) && idle.remove(pooled)) {
+                pooled.close();
+            }
+        }
+    }
+
+    /**
+     * A connection leased from the pool. Closing the lease returns the connection,
+     * unless it was marked broken with {@link #invalidate()}.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final PooledTransport pooled;
+        private final boolean reused;
+        private boolean broken;
+        private boolean released;
+
+        private Lease(PooledTransport pooled, boolean reused) {
+            this.pooled = pooled;
+            this.reused = reused;
+        }
+
+        public Transport transport() {
+            return pooled.transport;
+        }
+
+        /**
+         * @return true if the connection was idle in the pool, false if it was opened for this lease.
+         * A reused connection may have been dropped by the server since it was last validated.
+         */
+        public boolean isReused() {
+            return reused;
+        }
+
+        /**
+         * Marks the leased connection as broken so that it is closed instead of returned to the pool.
+         */
+        public void invalidate() {
+            broken = true;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(pooled, broken);
+            }
+        }
+    }
+
+    private final class PooledTransport {
+
+        private final Transport transport;
+        private final long createdAt;
+        private volatile long lastUsedAt;
+        private volatile long lastValidatedAt;
+
+        private PooledTransport(Transport transport, long now) {
+            this.transport = transport;
+            this.createdAt = now;
+            this.lastUsedAt = now;
+            this.lastValidatedAt = now;
+        }
+
+        private boolean isExpired(long now) {
+            return now - createdAt >= maxLifetime.toNanos();
+        }
+
+        private boolean isIdleTooLong(long now) {
+            return now - lastUsedAt >= maxIdle.toNanos();
+        }
+
+        private void close() {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                logger.fine("Failed to close SMTP connection. " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.empoweru.empowerupasswordrecoveryservice.metrics;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summarizes a Flight Recorder recording of the recovery functions into latency percentiles and a histogram
+ * per request function, stage and outcome.
+ * <p>
+ * The slowest events of each group, those at or above its p99, are checked against the GC pauses and the lock waits
+ * of the same thread recorded meanwhile, to tell latency caused by the JVM from latency of the work itself.
+ * Parks on a {@link java.util.concurrent.FutureTask} are not counted as lock waits: they are a stage waiting for
+ * its executor, which the stage reports as its queue time.
+ * <p>
+ * Run through {@link #main(String[])} to print the summary of a recording:
+ * <pre>
+ * java -cp target/classes com.empoweru.empowerupasswordrecoveryservice.metrics.RecordingAnalyzer recovery.jfr
+ * </pre>
+ */
+public final class RecordingAnalyzer {
+
+    // Bucket 0 holds events under 1 ms, bucket i events from 2^(i-1) up to 2^i ms, and the last one everything slower.
+    static final int HISTOGRAM_BUCKETS = 16;
+
+    private static final int BAR_WIDTH = 40;
+
+    private RecordingAnalyzer() {
+    }
+
+    /**
+     * Latency of one group of recovery events.
+     *
+     * @param event The event name, {@link RecoveryRequestEvent#NAME} or {@link RecoveryStageEvent#NAME}.
+     * @param name The function or stage.
+     * @param outcome The outcome tag.
+     * @param count The number of events.
+     * @param p50 The median duration.
+     * @param p95 The 95th percentile duration.
+     * @param p99 The 99th percentile duration.
+     * @param max The longest duration.
+     * @param meanQueueTime The mean time spent waiting for an executor thread, zero for requests.
+     * @param histogram The number of events per duration bucket, see {@link #bucketOf(Duration)}.
+     * @param slow The number of events at or above the p99.
+     * @param slowDuringGc The slow events that overlapped a GC pause.
+     * @param slowDuringLockWait The slow events whose thread waited on a monitor or parked meanwhile.
+     */
+    public record Summary(String event, String name, String outcome, int count,
+                          Duration p50, Duration p95, Duration p99, Duration max, Duration meanQueueTime,
+                          long[] histogram, int slow, int slowDuringGc, int slowDuringLockWait) {
+    }
+
+    private record Interval(Instant start, Instant end) {
+
+        boolean overlaps(RecordedEvent event) {
+            return start.isBefore(event.getEndTime()) && end.isAfter(event.getStartTime());
+        }
+    }
+
+    private record Group(String event, String name, String outcome) {
+    }
+
+    /**
+     * Reads a recording and summarizes its recovery events.
+     *
+     * @param recording The recording file.
+     * @return One summary per event, function or stage, and outcome, sorted by event, name and outcome.
+     * @throws IOException if the recording cannot be read.
+     */
+    public static List<Summary> analyze(Path recording) throws IOException {
+        Map<Group, List<RecordedEvent>> groups = new TreeMap<>(Comparator.comparing(Group::event)
+                .thenComparing(Group::name)
+                .thenComparing(Group::outcome));
+        List<Interval> gcPauses = new ArrayList<>();
+        Map<Long, List<Interval>> lockWaits = new HashMap<>();
+
+        for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+            String type = event.getEventType().getName();
+            switch (type) {
+                case RecoveryRequestEvent.NAME -> groups.computeIfAbsent(
+                        new Group(type, event.getString("function"), outcomeOf(event)), g -> new ArrayList<>()).add(event);
+                case RecoveryStageEvent.NAME -> groups.computeIfAbsent(
+                        new Group(type, event.getString("stage"), outcomeOf(event)), g -> new ArrayList<>()).add(event);
+                case "jdk.GCPhasePause" -> gcPauses.add(new Interval(event.getStartTime(), event.getEndTime()));
+                case "jdk.JavaMonitorEnter", "jdk.ThreadPark" -> {
+                    RecordedThread thread = event.getThread();
+                    if (thread != null && !isFutureWait(event)) {
+                        lockWaits.computeIfAbsent(thread.getId(), id -> new ArrayList<>())
+                                .add(new Interval(event.getStartTime(), event.getEndTime()));
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        List<Summary> summaries = new ArrayList<>(groups.size());
+        groups.forEach((group, events) -> summaries.add(summarize(group, events, gcPauses, lockWaits)));
+        return summaries;
+    }
+
+    private static Summary summarize(Group group, List<RecordedEvent> events,
+                                     List<Interval> gcPauses, Map<Long, List<Interval>> lockWaits) {
+        long[] durations = new long[events.size()];
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        long queueNanos = 0;
+        for (int i = 0; i < durations.length; i++) {
+            RecordedEvent event = events.get(i);
+            durations[i] = event.getDuration().toNanos();
+            histogram[bucketOf(event.getDuration())]++;
+            if (event.hasField("queueTime")) {
+                queueNanos += event.getDuration("queueTime").toNanos();
+            }
+        }
+        Arrays.sort(durations);
+        long p99 = percentile(durations, 0.99);
+
+        int slow = 0;
+        int slowDuringGc = 0;
+        int slowDuringLockWait = 0;
+        for (RecordedEvent event : events) {
+            if (event.getDuration().toNanos() < p99) {
+                continue;
+            }
+            slow++;
+            if (gcPauses.stream().anyMatch(pause -> pause.overlaps(event))) {
+                slowDuringGc++;
+            }
+            RecordedThread thread = event.getThread();
+            if (thread != null && lockWaits.getOrDefault(thread.getId(), List.of()).stream()
+                    .anyMatch(wait -> wait.overlaps(event))) {
+                slowDuringLockWait++;
+            }
+        }
+
+        return new Summary(group.event(), group.name(), group.outcome(), durations.length,
+                Duration.ofNanos(percentile(durations, 0.5)),
+                Duration.ofNanos(percentile(durations, 0.95)),
+                Duration.ofNanos(p99),
+                Duration.ofNanos(durations[durations.length - 1]),
+                Duration.ofNanos(queueNanos / durations.length),
+                histogram, slow, slowDuringGc, slowDuringLockWait);
+    }
+
+    /**
+     * Finds the histogram bucket of a duration: bucket 0 holds durations under 1 ms, bucket {@code i}
+     * durations from 2<sup>i-1</sup> up to 2<sup>i</sup> ms, and the last bucket everything slower.
+     *
+     * @param duration The duration.
+     * @return The bucket index.
+     */
+    static int bucketOf(Duration duration) {
+        long millis = duration.toMillis();
+        int bucket = millis == 0 ? 0 : 64 - Long.numberOfLeadingZeros(millis);
+        return Math.min(bucket, HISTOGRAM_BUCKETS - 1);
+    }
+
+    /**
+     * Formats summaries as text, one block per group with its percentiles and histogram.
+     *
+     * @param summaries The summaries.
+     * @return The report.
+     */
+    public static String format(List<Summary> summaries) {
+        StringBuilder report = new StringBuilder();
+        for (Summary summary : summaries) {
+            String kind = summary.event().equals(RecoveryRequestEvent.NAME) ? "request" : "stage";
+            report.append(String.format(Locale.ROOT,
+                    "%s %s %s: count=%d p50=%s p95=%s p99=%s max=%s queue=%s%n",
+                    kind, summary.name(), summary.outcome(), summary.count(),
+                    millis(summary.p50()), millis(summary.p95()), millis(summary.p99()), millis(summary.max()),
+                    millis(summary.meanQueueTime())));
+            report.append(String.format(Locale.ROOT,
+                    "  %d at or above p99, %d during a GC pause, %d during a lock wait%n",
+                    summary.slow(), summary.slowDuringGc(), summary.slowDuringLockWait()));
+
+            long[] histogram = summary.histogram();
+            long peak = Arrays.stream(histogram).max().orElse(0);
+            int last = histogram.length - 1;
+            while (last > 0 && histogram[last] == 0) {
+                last--;
+            }
+            for (int i = 0; i <= last; i++) {
+                int bar = peak == 0 ? 0 : (int) Math.ceil((double) histogram[i] * BAR_WIDTH / peak);
+                report.append(String.format(Locale.ROOT, "  %12s |%-" + BAR_WIDTH + "s %d%n",
+                        bucketLabel(i), "#".repeat(bar), histogram[i]));
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * Prints the summary of a recording.
+     *
+     * @param args The recording file.
+     * @throws IOException if the recording cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: RecordingAnalyzer <recording.jfr>");
+            System.exit(2);
+        }
+        List<Summary> summaries = analyze(Paths.get(args[0]));
+        if (summaries.isEmpty()) {
+            System.err.println("No recovery events in " + args[0]);
+            return;
+        }
+        System.out.print(format(summaries));
+    }
+
+    private static String outcomeOf(RecordedEvent event) {
+        String outcome = event.getString("outcome");
+        return outcome == null ? "unknown" : outcome;
+    }
+
+    private static boolean isFutureWait(RecordedEvent event) {
+        if (!event.hasField("parkedClass")) {
+            return false;
+        }
+        RecordedClass parkedClass = event.getClass("parkedClass");
+        return parkedClass != null && parkedClass.getName().equals("java.util.concurrent.FutureTask");
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private static String bucketLabel(int bucket) {
+        if (bucket == 0) {
+            return "< 1 ms";
+        }
+        if (bucket == HISTOGRAM_BUCKETS - 1) {
+            return ">= " + (1L << (bucket - 1)) + " ms";
+        }
+        return (1L << (bucket - 1)) + "-" + (1L << bucket) + " ms";
+    }
+
+    private static String millis(Duration duration) {
+        return String.format(Locale.ROOT, "%.2fms", duration.toNanos() / 1_000_000.0);
+    }
+}
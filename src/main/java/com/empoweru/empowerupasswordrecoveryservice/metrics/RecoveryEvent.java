@@ -0,0 +1,76 @@
+package com.empoweru.empowerupasswordrecoveryservice.metrics;
+
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Outcome;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+import java.util.Locale;
+
+/**
+ * Base of the Java Flight Recorder events of the recovery functions. Each event spans the work it describes,
+ * so a recording lines it up with the GC pauses, lock waits and thread parks that happened meanwhile.
+ * <p>
+ * The email is not recorded. It is reduced to one of {@value #EMAIL_BUCKETS} buckets, enough to tell whether
+ * slow events share an email without identifying it. Nothing is computed when the event is not enabled
+ * in the running recording.
+ */
+@Category({"EmpowerU", "Password Recovery"})
+@StackTrace(false)
+public abstract class RecoveryEvent extends Event {
+
+    static final int EMAIL_BUCKETS = 1024;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Email Bucket")
+    @Description("Bucket of the email the event is about, from a hash of the normalized email")
+    int emailBucket;
+
+    /**
+     * Starts timing the event.
+     *
+     * @param email The email the event is about, or {@code null} if not known yet.
+     */
+    void begin(String email) {
+        if (isEnabled()) {
+            setEmail(email);
+            begin();
+        }
+    }
+
+    /**
+     * Sets the email the event is about, once it is known.
+     *
+     * @param email The email.
+     */
+    public void setEmail(String email) {
+        if (isEnabled()) {
+            emailBucket = emailBucket(email);
+        }
+    }
+
+    /**
+     * Stops timing the event and commits it if the recording wants it.
+     *
+     * @param outcome How the work ended.
+     */
+    public void finish(Outcome outcome) {
+        end();
+        if (shouldCommit()) {
+            this.outcome = outcome.getTag();
+            commit();
+        }
+    }
+
+    static int emailBucket(String email) {
+        if (email == null) {
+            return -1;
+        }
+        int hash = email.trim().toLowerCase(Locale.ROOT).hashCode() * 0x9E3779B9;
+        return (hash >>> 16 ^ hash) & (EMAIL_BUCKETS - 1);
+    }
+}
@@ -0,0 +1,106 @@
+package com.empoweru.empowerupasswordrecoveryservice.metrics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Starts a Flight Recorder recording of the recovery functions from inside the application, for hosts such as
+ * Azure Functions where the JVM options cannot easily be changed.
+ * <p>
+ * The recording uses the JDK's default settings with the bundled {@value #SETTINGS} on top, keeps the last
+ * {@code profiling.jfr.max-age} or {@code profiling.jfr.max-size} of events on disk, and is written to
+ * {@code profiling.jfr.directory} when the application context closes. Nothing is recorded unless
+ * {@code profiling.jfr.enabled} is true. Summarize a recording with {@link RecordingAnalyzer}.
+ */
+@Component
+public class RecoveryFlightRecorder implements AutoCloseable {
+
+    public static final String SETTINGS = "/jfr/recovery.jfc";
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Recording recording;
+    private final Logger logger = Logger.getLogger(RecoveryFlightRecorder.class.getName());
+
+    public RecoveryFlightRecorder(Clock clock,
+                                  @Value("${profiling.jfr.enabled}") boolean enabled,
+                                  @Value("${profiling.jfr.directory}") Path directory,
+                                  @Value("${profiling.jfr.max-age}") Duration maxAge,
+                                  @Value("${profiling.jfr.max-size}") DataSize maxSize) throws IOException, ParseException {
+        if (!enabled) {
+            this.recording = null;
+            return;
+        }
+        Files.createDirectories(directory);
+        Path destination = directory.resolve("recovery-" + FILE_TIMESTAMP.format(clock.instant().atZone(clock.getZone())) + ".jfr");
+
+        this.recording = new Recording(settings());
+        this.recording.setName("EmpowerU Recovery");
+        this.recording.setToDisk(true);
+        this.recording.setMaxAge(maxAge);
+        this.recording.setMaxSize(maxSize.toBytes());
+        this.recording.setDestination(destination);
+        this.recording.start();
+        logger.info("Flight recording started, written to " + destination + " on shutdown.");
+    }
+
+    /**
+     * Reads the JDK's default settings with the bundled {@value #SETTINGS} applied over them.
+     *
+     * @return The settings of a recording of the recovery functions.
+     * @throws IOException if the bundled settings cannot be read.
+     * @throws ParseException if the bundled settings are not a valid configuration.
+     */
+    public static Map<String, String> settings() throws IOException, ParseException {
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        try (InputStream in = RecoveryFlightRecorder.class.getResourceAsStream(SETTINGS)) {
+            if (in == null) {
+                throw new IOException("Missing " + SETTINGS);
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                settings.putAll(Configuration.create(reader).getSettings());
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * Whether a recording was started.
+     *
+     * @return True if {@code profiling.jfr.enabled} is set.
+     */
+    public boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * Stops the recording and writes it to its destination.
+     */
+    @Override
+    public void close() {
+        if (recording == null) {
+            return;
+        }
+        recording.stop();
+        recording.close();
+        logger.info("Flight recording written to " + recording.getDestination());
+    }
+}
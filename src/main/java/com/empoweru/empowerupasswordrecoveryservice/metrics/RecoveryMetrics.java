@@ -0,0 +1,212 @@
+package com.empoweru.empowerupasswordrecoveryservice.metrics;
+
+import com.empoweru.empowerupasswordrecoveryservice.models.PasswordResetStatus;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Latency of the recovery functions, as a whole and per stage, tagged with the outcome.
+ * Requests are timed as {@value #REQUEST_TIMER} tagged by function and outcome,
+ * and the stages inside them as {@value #STAGE_TIMER} tagged by stage and outcome.
+ * Both publish a percentile histogram for registries that aggregate percentiles,
+ * and p50/p95/p99 for registries that do not, such as the in-memory one used in tests.
+ * The Azure Functions host does not scrape the application, so a summary of every timer
+ * is also written to the log on a schedule, where the host forwards it with the other traces.
+ */
+@Component
+public class RecoveryMetrics {
+
+    public static final String REQUEST_TIMER = "recovery.request.duration";
+    public static final String STAGE_TIMER = "recovery.stage.duration";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry meterRegistry;
+    private final Meter.MeterProvider<Timer> requestTimers;
+    private final Meter.MeterProvider<Timer> stageTimers;
+    private final boolean logSummary;
+    private final Logger logger = Logger.getLogger(RecoveryMetrics.class.getName());
+
+    public RecoveryMetrics(MeterRegistry meterRegistry,
+                           @Value("${metrics.recovery.log-summary}") boolean logSummary) {
+        this.meterRegistry = meterRegistry;
+        this.logSummary = logSummary;
+        this.requestTimers = Timer.builder(REQUEST_TIMER)
+                .description("Time spent handling a recovery function call")
+                .publishPercentileHistogram()
+                .publishPercentiles(PERCENTILES)
+                .withRegistry(meterRegistry);
+        this.stageTimers = Timer.builder(STAGE_TIMER)
+                .description("Time spent in one stage of a recovery function call")
+                .publishPercentileHistogram()
+                .publishPercentiles(PERCENTILES)
+                .withRegistry(meterRegistry);
+    }
+
+    /**
+     * Records a completed function call.
+     *
+     * @param function The function that was called.
+     * @param outcome How the call ended.
+     * @param startNanos The {@link System#nanoTime()} at which the call started.
+     */
+    public void recordRequest(Function function, Outcome outcome, long startNanos) {
+        requestTimers.withTags("function", function.tag, "outcome", outcome.tag)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a completed stage of a function call.
+     *
+     * @param stage The stage that completed.
+     * @param outcome How the stage ended.
+     * @param startNanos The {@link System#nanoTime()} at which the stage started.
+     */
+    public void recordStage(Stage stage, Outcome outcome, long startNanos) {
+        recordStage(stage, outcome, System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a stage whose duration was measured by the caller.
+     *
+     * @param stage The stage that completed.
+     * @param outcome How the stage ended.
+     * @param duration The duration of the stage.
+     * @param unit The unit of the duration.
+     */
+    public void recordStage(Stage stage, Outcome outcome, long duration, TimeUnit unit) {
+        stageTimers.withTags("stage", stage.tag, "outcome", outcome.tag).record(duration, unit);
+    }
+
+    /**
+     * Writes the count and latency percentiles of every recovery timer that has recorded anything to the log.
+     */
+    @Scheduled(fixedDelayString = "${metrics.recovery.log-interval-millis}",
+            initialDelayString = "${metrics.recovery.log-interval-millis}")
+    public void logSummary() {
+        if (!logSummary) {
+            return;
+        }
+        for (String name : new String[]{REQUEST_TIMER, STAGE_TIMER}) {
+            for (Timer timer : meterRegistry.find(name).timers()) {
+                HistogramSnapshot snapshot = timer.takeSnapshot();
+                if (snapshot.count() == 0) {
+                    continue;
+                }
+                StringBuilder line = new StringBuilder(name);
+                timer.getId().getTags().forEach(tag -> line.append(' ').append(tag.getKey()).append('=').append(tag.getValue()));
+                line.append(" count=").append(snapshot.count());
+                for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                    line.append(String.format(Locale.ROOT, " p%.0f=%.1fms",
+                            percentile.percentile() * 100, percentile.value(TimeUnit.MILLISECONDS)));
+                }
+                line.append(String.format(Locale.ROOT, " max=%.1fms", snapshot.max(TimeUnit.MILLISECONDS)));
+                logger.info(line.toString());
+            }
+        }
+    }
+
+    /**
+     * The recovery functions timed as {@value #REQUEST_TIMER}.
+     */
+    public enum Function {
+        SEND_CODE("send-code"),
+        VERIFY_CODE("verify-code");
+
+        private final String tag;
+
+        Function(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * @return The value of the {@code function} tag.
+         */
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    /**
+     * The stages timed as {@value #STAGE_TIMER}.
+     */
+    public enum Stage {
+        /** Checking that a user with the email exists. */
+        USER_LOOKUP("user-lookup"),
+        /** Looking up the active recovery code for the email. */
+        CODE_LOOKUP("code-lookup"),
+        /** Generating and storing a new recovery code. */
+        CODE_ISSUE("code-issue"),
+        /** Hashing the new password, including the wait for a hashing thread. */
+        PASSWORD_HASH("password-hash"),
+        /** The statement that checks the code, updates the password and deletes the code. */
+        PASSWORD_RESET("password-reset"),
+        /** Time an email spent queued before its batch started sending. */
+        EMAIL_QUEUE_WAIT("email-queue-wait"),
+        /** Sending one message over an SMTP connection. */
+        SMTP_SEND("smtp-send"),
+        /** Rendering the password changed notification and queuing it for sending. */
+        NOTIFICATION_QUEUE("notification-queue");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * @return The value of the {@code stage} tag.
+         */
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    /**
+     * How a function call or stage ended.
+     */
+    public enum Outcome {
+        OK("ok"),
+        INVALID("invalid"),
+        EXPIRED("expired"),
+        NOT_FOUND("not-found"),
+        BAD_REQUEST("bad-request"),
+        THROTTLED("throttled"),
+        LOCKED("locked"),
+        REJECTED("rejected"),
+        FAILED("failed");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * @return The value of the {@code outcome} tag.
+         */
+        public String getTag() {
+            return tag;
+        }
+
+        public static Outcome of(PasswordResetStatus status) {
+            return switch (status) {
+                case OK -> OK;
+                case USER_NOT_FOUND -> NOT_FOUND;
+                case INVALID_CODE -> INVALID;
+                case EXPIRED_CODE -> EXPIRED;
+                case LOCKED -> LOCKED;
+            };
+        }
+    }
+}
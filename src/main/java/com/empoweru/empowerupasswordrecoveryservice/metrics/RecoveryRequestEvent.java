@@ -0,0 +1,32 @@
+package com.empoweru.empowerupasswordrecoveryservice.metrics;
+
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Function;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning one call of a recovery function.
+ */
+@Name(RecoveryRequestEvent.NAME)
+@Label("Recovery Request")
+public class RecoveryRequestEvent extends RecoveryEvent {
+
+    public static final String NAME = "com.empoweru.recovery.Request";
+
+    @Label("Function")
+    String function;
+
+    /**
+     * Starts an event for a function call, before its request is read; set the email with {@link #setEmail}
+     * and end it with {@link #finish}.
+     *
+     * @param function The function that was called.
+     * @return The started event.
+     */
+    public static RecoveryRequestEvent start(Function function) {
+        RecoveryRequestEvent event = new RecoveryRequestEvent();
+        event.function = function.getTag();
+        event.begin(null);
+        return event;
+    }
+}
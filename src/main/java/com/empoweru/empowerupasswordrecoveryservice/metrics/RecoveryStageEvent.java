@@ -0,0 +1,48 @@
+package com.empoweru.empowerupasswordrecoveryservice.metrics;
+
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Stage;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event spanning one stage of a recovery function call, the same stages timed by {@link RecoveryMetrics}.
+ */
+@Name(RecoveryStageEvent.NAME)
+@Label("Recovery Stage")
+public class RecoveryStageEvent extends RecoveryEvent {
+
+    public static final String NAME = "com.empoweru.recovery.Stage";
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Queue Time")
+    @Description("Part of the stage spent waiting in an executor queue for a thread, such as the password hashing pool")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueTime;
+
+    /**
+     * Starts an event for a stage; end it with {@link #finish}.
+     *
+     * @param stage The stage that starts.
+     * @param email The email the stage works on.
+     * @return The started event.
+     */
+    public static RecoveryStageEvent start(Stage stage, String email) {
+        RecoveryStageEvent event = new RecoveryStageEvent();
+        event.stage = stage.getTag();
+        event.begin(email);
+        return event;
+    }
+
+    /**
+     * Records how long the stage waited for an executor thread.
+     *
+     * @param queueNanos The time spent queued, in nanoseconds.
+     */
+    public void setQueueTime(long queueNanos) {
+        this.queueTime = queueNanos;
+    }
+}
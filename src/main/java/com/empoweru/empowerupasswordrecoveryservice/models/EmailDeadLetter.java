@@ -0,0 +1,53 @@
+package com.empoweru.empowerupasswordrecoveryservice.models;
+
+import com.empoweru.empowerupasswordrecoveryservice.mail.OutgoingEmail;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+/**
+ * Entity class representing a rendered email that could not be sent because the SMTP server was failing.
+ * Rows are sent again once the server recovers and removed once the email is sent.
+ */
+@Entity
+@NoArgsConstructor
+@Data
+public class EmailDeadLetter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String recipient;
+
+    private String subject;
+
+    private String htmlContent;
+
+    private String textContent;
+
+    private String error;
+
+    private int attempts;
+
+    @Column(insertable = false, updatable = false)
+    private Timestamp createdAt;
+
+    public EmailDeadLetter(OutgoingEmail email, String error) {
+        this.recipient = email.to();
+        this.subject = email.subject();
+        this.htmlContent = email.htmlContent();
+        this.textContent = email.textContent();
+        String reason = error == null ? null : error.strip();
+        this.error = reason == null || reason.length() <= 255 ? reason : reason.substring(0, 255);
+    }
+
+    public OutgoingEmail toOutgoingEmail() {
+        return new OutgoingEmail(recipient, subject, htmlContent, textContent);
+    }
+}
@@ -0,0 +1,52 @@
+package com.empoweru.empowerupasswordrecoveryservice.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.util.Locale;
+
+/**
+ * Entity class representing an email waiting in the transactional outbox.
+ * Rows are written in the same transaction as the data the email refers to and removed once the email is sent.
+ */
+@Entity
+@NoArgsConstructor
+@Data
+public class EmailOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String recipient;
+
+    @Enumerated(EnumType.STRING)
+    private EmailType type;
+
+    private String payload;
+
+    private String locale;
+
+    private int attempts;
+
+    // Both timestamps are maintained by the database so that they share the clock used when claiming rows.
+    @Column(insertable = false, updatable = false)
+    private Timestamp availableAt;
+
+    @Column(insertable = false, updatable = false)
+    private Timestamp createdAt;
+
+    public EmailOutbox(String recipient, EmailType type, String payload, Locale locale) {
+        this.recipient = recipient;
+        this.type = type;
+        this.payload = payload;
+        this.locale = locale == null ? null : locale.toLanguageTag();
+    }
+}
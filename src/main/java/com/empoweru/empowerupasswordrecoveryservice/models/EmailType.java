@@ -0,0 +1,33 @@
+package com.empoweru.empowerupasswordrecoveryservice.models;
+
+import java.util.Map;
+
+/**
+ * Kinds of emails sent by the password recovery service, with the template each one is rendered from.
+ */
+public enum EmailType {
+    RECOVERY_CODE("recovery-code", "code"),
+    PASSWORD_RECOVERED("password-recovered", null);
+
+    private final String templateId;
+    private final String payloadPlaceholder;
+
+    EmailType(String templateId, String payloadPlaceholder) {
+        this.templateId = templateId;
+        this.payloadPlaceholder = payloadPlaceholder;
+    }
+
+    public String getTemplateId() {
+        return templateId;
+    }
+
+    /**
+     * Maps the type-specific payload stored with an email to the values of its template placeholders.
+     *
+     * @param payload The payload, such as the recovery code.
+     * @return The placeholder values.
+     */
+    public Map<String, String> templateValues(String payload) {
+        return payloadPlaceholder == null || payload == null ? Map.of() : Map.of(payloadPlaceholder, payload);
+    }
+}
@@ -0,0 +1,17 @@
+package com.empoweru.empowerupasswordrecoveryservice.models;
+
+/**
+ * Outcome of verifying a recovery code and resetting the password in one step.
+ */
+public enum PasswordResetStatus {
+    /** The code was valid; the password was updated and the code consumed. */
+    OK,
+    /** No user has the given email. */
+    USER_NOT_FOUND,
+    /** The email has no recovery code, or the code does not match. */
+    INVALID_CODE,
+    /** The code matches but has expired. */
+    EXPIRED_CODE,
+    /** The email is locked out after too many wrong codes; the code was not checked. */
+    LOCKED
+}
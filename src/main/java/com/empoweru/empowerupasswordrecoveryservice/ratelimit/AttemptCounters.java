@@ -0,0 +1,223 @@
+package com.empoweru.empowerupasswordrecoveryservice.ratelimit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory failure counters with one counter per key, locking a key out after {@code maxFailures} failures
+ * within {@code window}.
+ * <p>
+ * A counter is an immutable {@link Attempts} replaced with {@link ConcurrentHashMap#compute}, so checking a key
+ * is a single map read and updates to different keys never contend. Every key whose counter changed is remembered,
+ * with the failures counted since, until {@link #drainChanged()} hands it to the caller, which adds them to a shared
+ * copy in batches. Counters can be {@link #merge(String, Attempts) merged} back from that copy, taking the stricter
+ * of both, so that failures counted elsewhere count here too.
+ */
+public class AttemptCounters {
+
+    private final ConcurrentHashMap<String, Attempts> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Pending> changed = new ConcurrentHashMap<>();
+    private final int maxFailures;
+    private final long windowMillis;
+    private final long lockoutMillis;
+    private final LongSupplier currentMillis;
+
+    /**
+     * @param maxFailures The number of failures within the window that locks a key out.
+     * @param window The time, from a key's first failure, in which its failures are counted.
+     * @param lockout How long a key stays locked out.
+     * @param currentMillis The wall-clock time, in milliseconds since the epoch.
+     */
+    public AttemptCounters(int maxFailures, Duration window, Duration lockout, LongSupplier currentMillis) {
+        if (maxFailures <= 0) {
+            throw new IllegalArgumentException("Max failures must be positive");
+        }
+        this.maxFailures = maxFailures;
+        this.windowMillis = window.toMillis();
+        this.lockoutMillis = lockout.toMillis();
+        this.currentMillis = currentMillis;
+    }
+
+    /**
+     * @param key The key to check.
+     * @return Zero if the key is not locked out, otherwise how long until its lockout ends.
+     */
+    public Duration lockedFor(String key) {
+        Attempts attempts = counters.get(key);
+        if (attempts == null) {
+            return Duration.ZERO;
+        }
+        long remaining = attempts.lockedUntil() - currentMillis.getAsLong();
+        return remaining > 0 ? Duration.ofMillis(remaining) : Duration.ZERO;
+    }
+
+    /**
+     * Counts a failure for the key, locking it out if it reaches the maximum within the window.
+     * A failure after the window or after a lockout has ended starts a new window.
+     *
+     * @param key The key that failed.
+     * @return Zero if the key is not locked out, otherwise how long until its lockout ends.
+     */
+    public Duration recordFailure(String key) {
+        long now = currentMillis.getAsLong();
+        boolean[] counted = {true};
+        Attempts updated = counters.compute(key, (k, current) -> {
+            if (current == null || current.isExpired(now, windowMillis)
+                    || (current.lockedUntil() > 0 && current.lockedUntil() <= now)) {
+                return lockIfReached(new Attempts(1, now, 0), now);
+            }
+            if (current.lockedUntil() > now) {
+                counted[0] = false;
+                return current;
+            }
+            return lockIfReached(new Attempts(current.failures() + 1, current.windowStart(), 0), now);
+        });
+        if (counted[0]) {
+            changed.merge(key, new Pending(1, false), Pending::plus);
+        }
+        long remaining = updated.lockedUntil() - now;
+        return remaining > 0 ? Duration.ofMillis(remaining) : Duration.ZERO;
+    }
+
+    /**
+     * Clears the key's counter, for example after it succeeded.
+     *
+     * @param key The key to clear.
+     */
+    public void reset(String key) {
+        if (counters.remove(key) != null) {
+            changed.put(key, new Pending(0, true));
+        }
+    }
+
+    /**
+     * Merges a counter read back from a copy, keeping the higher failure count and the later lockout.
+     * The key is not marked as changed.
+     *
+     * @param key The key of the counter.
+     * @param stored The counter from the copy.
+     */
+    public void merge(String key, Attempts stored) {
+        long now = currentMillis.getAsLong();
+        if (stored.isExpired(now, windowMillis)) {
+            return;
+        }
+        counters.merge(key, stored, (current, other) -> current.isExpired(now, windowMillis) ? other : new Attempts(
+                Math.max(current.failures(), other.failures()),
+                Math.min(current.windowStart(), other.windowStart()),
+                Math.max(current.lockedUntil(), other.lockedUntil())));
+    }
+
+    /**
+     * Takes the keys changed since the last call with their current counters and the failures counted since.
+     * Changes made while draining are kept for the next call.
+     *
+     * @return The changes.
+     */
+    public List<Change> drainChanged() {
+        List<Change> drained = new ArrayList<>();
+        for (String key : changed.keySet()) {
+            Pending pending = changed.remove(key);
+            if (pending != null) {
+                drained.add(new Change(key, counters.get(key), pending.failures(), pending.reset()));
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Hands changes back, so that the next {@link #drainChanged()} returns them again together with the changes
+     * made since, for example after writing them failed.
+     *
+     * @param changes The changes returned by {@link #drainChanged()}.
+     */
+    public void markChanged(List<Change> changes) {
+        for (Change change : changes) {
+            changed.merge(change.key(), new Pending(change.newFailures(), change.reset()),
+                    (later, earlier) -> earlier.plus(later));
+        }
+    }
+
+    /**
+     * Drops the counters whose window and lockout have both passed.
+     *
+     * @return The number of counters dropped.
+     */
+    public int evictExpired() {
+        long now = currentMillis.getAsLong();
+        int evicted = 0;
+        for (Map.Entry<String, Attempts> entry : counters.entrySet()) {
+            if (entry.getValue().isExpired(now, windowMillis) && counters.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @param attempts A counter.
+     * @return The time, in milliseconds since the epoch, after which the counter no longer counts or locks.
+     */
+    public long expiresAt(Attempts attempts) {
+        return Math.max(attempts.windowStart() + windowMillis, attempts.lockedUntil());
+    }
+
+    /**
+     * @return The number of keys with a counter.
+     */
+    public int getTrackedKeyCount() {
+        return counters.size();
+    }
+
+    /**
+     * @return The number of keys currently locked out.
+     */
+    public long getLockedKeyCount() {
+        long now = currentMillis.getAsLong();
+        return counters.values().stream().filter(attempts -> attempts.lockedUntil() > now).count();
+    }
+
+    private Attempts lockIfReached(Attempts attempts, long now) {
+        return attempts.failures() >= maxFailures
+                ? new Attempts(attempts.failures(), attempts.windowStart(), now + lockoutMillis)
+                : attempts;
+    }
+
+    /**
+     * A key whose counter changed since the last {@link #drainChanged()}.
+     *
+     * @param key The key.
+     * @param attempts The key's current counter, or {@code null} if it has none.
+     * @param newFailures The failures counted for the key since the last drain, not counting attempts
+     * made while it was locked out.
+     * @param reset Whether the key was reset since the last drain; its failures were counted after the reset.
+     */
+    public record Change(String key, Attempts attempts, int newFailures, boolean reset) {
+    }
+
+    private record Pending(int failures, boolean reset) {
+
+        // A later reset drops the failures counted before it.
+        Pending plus(Pending later) {
+            return later.reset ? later : new Pending(failures + later.failures, reset);
+        }
+    }
+
+    /**
+     * The failures of one key.
+     *
+     * @param failures The number of failures in the current window.
+     * @param windowStart When the window started, in milliseconds since the epoch.
+     * @param lockedUntil When the lockout ends, in milliseconds since the epoch, or 0 if the key was not locked out.
+     */
+    public record Attempts(int failures, long windowStart, long lockedUntil) {
+
+        boolean isExpired(long now, long windowMillis) {
+            return windowStart + windowMillis <= now && lockedUntil <= now;
+        }
+    }
+}
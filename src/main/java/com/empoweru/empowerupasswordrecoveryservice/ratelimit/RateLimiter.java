@@ -0,0 +1,132 @@
+package com.empoweru.empowerupasswordrecoveryservice.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory token-bucket rate limiter with one bucket per key.
+ * Each bucket holds up to {@code capacity} requests and refills completely over {@code period}.
+ * <p>
+ * A bucket is a single {@link AtomicLong} holding the time at which it will be full again
+ * (the generic cell rate algorithm), updated with compare-and-set, so acquiring never takes a lock
+ * and requests for different keys never contend. A bucket that has refilled holds no state worth keeping;
+ * {@link #evictIdle()} drops those buckets so the map only tracks keys that are actively being limited.
+ */
+public class RateLimiter {
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final LongSupplier nanoTime;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param capacity The number of requests a key may make in a burst.
+     * @param period The time it takes an empty bucket to refill completely.
+     */
+    public RateLimiter(int capacity, Duration period) {
+        this(capacity, period, System::nanoTime);
+    }
+
+    RateLimiter(int capacity, Duration period, LongSupplier nanoTime) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.emissionIntervalNanos = period.toNanos() / capacity;
+        this.burstToleranceNanos = emissionIntervalNanos * capacity;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Takes a request from the key's bucket if one is available.
+     *
+     * @param key The key to limit, such as an email or a client address.
+     * @return Zero if the request is allowed, otherwise how long until the next request for the key would be allowed.
+     */
+    public Duration tryAcquire(String key) {
+        long now = nanoTime.getAsLong();
+        AtomicLong bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + emissionIntervalNanos;
+            long wait = next - now - burstToleranceNanos;
+            if (wait > 0) {
+                rejected.increment();
+                return Duration.ofNanos(wait);
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return Duration.ZERO;
+            }
+        }
+    }
+
+    /**
+     * Takes as many requests as are available from the key's bucket, up to {@code permits}.
+     *
+     * @param key The key to limit.
+     * @param permits The number of requests wanted.
+     * @return The number of requests taken, zero if the bucket is empty.
+     */
+    public int tryAcquireUpTo(String key, int permits) {
+        long now = nanoTime.getAsLong();
+        AtomicLong bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        while (true) {
+            long fullAt = bucket.get();
+            long start = Math.max(fullAt, now);
+            long available = (now + burstToleranceNanos - start) / emissionIntervalNanos;
+            int granted = (int) Math.min(permits, available);
+            if (granted <= 0) {
+                rejected.increment();
+                return 0;
+            }
+            if (bucket.compareAndSet(fullAt, start + granted * emissionIntervalNanos)) {
+                return granted;
+            }
+        }
+    }
+
+    /**
+     * @param key The key to check.
+     * @return Zero if a request for the key would be allowed now, otherwise how long until it would be.
+     */
+    public Duration timeUntilAvailable(String key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            return Duration.ZERO;
+        }
+        long now = nanoTime.getAsLong();
+        long wait = Math.max(bucket.get(), now) + emissionIntervalNanos - now - burstToleranceNanos;
+        return wait > 0 ? Duration.ofNanos(wait) : Duration.ZERO;
+    }
+
+    /**
+     * Removes the buckets that have refilled completely. A key seen again later starts with a full bucket,
+     * exactly as if its bucket had been kept. A request that races with the removal of its key's bucket
+     * may go uncounted, which at worst lets that key make one extra request.
+     *
+     * @return The number of buckets removed.
+     */
+    public int evictIdle() {
+        long now = nanoTime.getAsLong();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() <= now);
+        return before - buckets.size();
+    }
+
+    /**
+     * @return The number of keys with a partly used bucket.
+     */
+    public int getTrackedKeyCount() {
+        return buckets.size();
+    }
+
+    /**
+     * @return The number of requests rejected so far.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,32 @@
+package com.empoweru.empowerupasswordrecoveryservice.repositories;
+
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailDeadLetter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for emails parked while the SMTP server was failing.
+ * Rows are claimed with {@code FOR UPDATE SKIP LOCKED} and leased through {@code claimed_until}, like the outbox,
+ * so that several instances can send them again in parallel without holding row locks while sending.
+ * Implemented with Spring Data JPA by {@link JpaEmailDeadLetterRepository}, or with plain JDBC by
+ * {@link JdbcEmailDeadLetterRepository} when the {@code jdbc} profile is active.
+ */
+public interface EmailDeadLetterRepository {
+
+    EmailDeadLetter save(EmailDeadLetter emailDeadLetter);
+
+    /**
+     * Claims up to {@code limit} parked emails in a statement of its own, making them unavailable to other claims
+     * for {@code leaseSeconds}.
+     */
+    List<EmailDeadLetter> claimBatch(int limit, long leaseSeconds);
+
+    void deleteByIds(Collection<Long> ids);
+
+    /**
+     * Counts a failed attempt for each email and releases its claim, so that the next redrive picks it up.
+     */
+    void recordFailedAttempt(Collection<Long> ids);
+
+}
@@ -0,0 +1,35 @@
+package com.empoweru.empowerupasswordrecoveryservice.repositories;
+
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailOutbox;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for the transactional email outbox.
+ * Rows are claimed with {@code FOR UPDATE SKIP LOCKED} and leased by moving their {@code available_at} past the send,
+ * so that several instances can drain the outbox in parallel without picking up the same email twice,
+ * and no row stays locked while its email is sent.
+ * Implemented with Spring Data JPA by {@link JpaEmailOutboxRepository}, or with plain JDBC by
+ * {@link JdbcEmailOutboxRepository} when the {@code jdbc} profile is active.
+ */
+public interface EmailOutboxRepository {
+
+    EmailOutbox save(EmailOutbox emailOutbox);
+
+    /**
+     * Claims up to {@code limit} available entries in a statement of its own, making them unavailable to other
+     * claims for {@code leaseSeconds}. Entries that are neither deleted nor rescheduled within the lease,
+     * for example because the instance sending them stopped, are claimed again once it has passed.
+     */
+    List<EmailOutbox> claimBatch(int limit, long leaseSeconds);
+
+    void deleteByIds(Collection<Long> ids);
+
+    /**
+     * Counts a failed attempt for each entry and makes it available again after a backoff of
+     * {@code backoffSeconds * 2^attempts}, capped at {@code maxBackoffSeconds}, of which half is random.
+     */
+    void rescheduleByIds(Collection<Long> ids, long backoffSeconds, long maxBackoffSeconds);
+
+}
@@ -0,0 +1,99 @@
+package com.empoweru.empowerupasswordrecoveryservice.repositories;
+
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailDeadLetter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Plain JDBC implementation of {@link EmailDeadLetterRepository}, used when the {@code jdbc} profile is active.
+ * Id lists are bound as a single array parameter, so the statement text does not change with the batch size.
+ */
+@Repository
+@Profile("jdbc")
+public class JdbcEmailDeadLetterRepository implements EmailDeadLetterRepository {
+
+    private static final RowMapper<EmailDeadLetter> EMAIL_DEAD_LETTER_MAPPER = (resultSet, rowNum) -> {
+        EmailDeadLetter emailDeadLetter = new EmailDeadLetter();
+        emailDeadLetter.setId(resultSet.getLong("id"));
+        emailDeadLetter.setRecipient(resultSet.getString("recipient"));
+        emailDeadLetter.setSubject(resultSet.getString("subject"));
+        emailDeadLetter.setHtmlContent(resultSet.getString("html_content"));
+        emailDeadLetter.setTextContent(resultSet.getString("text_content"));
+        emailDeadLetter.setError(resultSet.getString("error"));
+        emailDeadLetter.setAttempts(resultSet.getInt("attempts"));
+        emailDeadLetter.setCreatedAt(resultSet.getTimestamp("created_at"));
+        return emailDeadLetter;
+    };
+
+    private final JdbcClient jdbcClient;
+
+    public JdbcEmailDeadLetterRepository(JdbcClient jdbcClient) {
+        this.jdbcClient = jdbcClient;
+    }
+
+    @Override
+    public EmailDeadLetter save(EmailDeadLetter emailDeadLetter) {
+        jdbcClient.sql("""
+                        INSERT INTO email_dead_letter (recipient, subject, html_content, text_content, error, attempts)
+                        VALUES (?, ?, ?, ?, ?, ?)
+                        RETURNING id, created_at
+                        """)
+                .param(emailDeadLetter.getRecipient())
+                .param(emailDeadLetter.getSubject())
+                .param(emailDeadLetter.getHtmlContent())
+                .param(emailDeadLetter.getTextContent())
+                .param(emailDeadLetter.getError())
+                .param(emailDeadLetter.getAttempts())
+                .query((resultSet, rowNum) -> {
+                    emailDeadLetter.setId(resultSet.getLong("id"));
+                    emailDeadLetter.setCreatedAt(resultSet.getTimestamp("created_at"));
+                    return emailDeadLetter;
+                })
+                .single();
+        return emailDeadLetter;
+    }
+
+    @Override
+    public List<EmailDeadLetter> claimBatch(int limit, long leaseSeconds) {
+        return jdbcClient.sql("""
+                        UPDATE email_dead_letter
+                        SET claimed_until = now() + ? * INTERVAL '1 second'
+                        WHERE id IN (
+                            SELECT id FROM email_dead_letter
+                            WHERE claimed_until IS NULL OR claimed_until <= now()
+                            ORDER BY id
+                            LIMIT ?
+                            FOR UPDATE SKIP LOCKED
+                        )
+                        RETURNING id, recipient, subject, html_content, text_content, error, attempts, created_at
+                        """)
+                .param(leaseSeconds)
+                .param(limit)
+                .query(EMAIL_DEAD_LETTER_MAPPER)
+                .list();
+    }
+
+    @Override
+    public void deleteByIds(Collection<Long> ids) {
+        jdbcClient.sql("DELETE FROM email_dead_letter WHERE id = ANY (?)")
+                .param(toArray(ids))
+                .update();
+    }
+
+    @Override
+    public void recordFailedAttempt(Collection<Long> ids) {
+        jdbcClient.sql("UPDATE email_dead_letter SET attempts = attempts + 1, claimed_until = NULL WHERE id = ANY (?)")
+                .param(toArray(ids))
+                .update();
+    }
+
+    private static long[] toArray(Collection<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+}
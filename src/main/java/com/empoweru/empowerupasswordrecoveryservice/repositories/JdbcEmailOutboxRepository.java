@@ -0,0 +1,108 @@
+package com.empoweru.empowerupasswordrecoveryservice.repositories;
+
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailOutbox;
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailType;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Plain JDBC implementation of {@link EmailOutboxRepository}, used when the {@code jdbc} profile is active.
+ * Id lists are bound as a single array parameter, so the statement text does not change with the batch size.
+ */
+@Repository
+@Profile("jdbc")
+public class JdbcEmailOutboxRepository implements EmailOutboxRepository {
+
+    private static final RowMapper<EmailOutbox> EMAIL_OUTBOX_MAPPER = (resultSet, rowNum) -> {
+        EmailOutbox emailOutbox = new EmailOutbox();
+        emailOutbox.setId(resultSet.getLong("id"));
+        emailOutbox.setRecipient(resultSet.getString("recipient"));
+        emailOutbox.setType(EmailType.valueOf(resultSet.getString("type")));
+        emailOutbox.setPayload(resultSet.getString("payload"));
+        emailOutbox.setLocale(resultSet.getString("locale"));
+        emailOutbox.setAttempts(resultSet.getInt("attempts"));
+        emailOutbox.setAvailableAt(resultSet.getTimestamp("available_at"));
+        emailOutbox.setCreatedAt(resultSet.getTimestamp("created_at"));
+        return emailOutbox;
+    };
+
+    private final JdbcClient jdbcClient;
+
+    public JdbcEmailOutboxRepository(JdbcClient jdbcClient) {
+        this.jdbcClient = jdbcClient;
+    }
+
+    @Override
+    public EmailOutbox save(EmailOutbox emailOutbox) {
+        jdbcClient.sql("""
+                        INSERT INTO email_outbox (recipient, type, payload, locale, attempts)
+                        VALUES (?, ?, ?, ?, ?)
+                        RETURNING id, available_at, created_at
+                        """)
+                .param(emailOutbox.getRecipient())
+                .param(emailOutbox.getType().name())
+                .param(emailOutbox.getPayload())
+                .param(emailOutbox.getLocale())
+                .param(emailOutbox.getAttempts())
+                .query((resultSet, rowNum) -> {
+                    emailOutbox.setId(resultSet.getLong("id"));
+                    emailOutbox.setAvailableAt(resultSet.getTimestamp("available_at"));
+                    emailOutbox.setCreatedAt(resultSet.getTimestamp("created_at"));
+                    return emailOutbox;
+                })
+                .single();
+        return emailOutbox;
+    }
+
+    @Override
+    public List<EmailOutbox> claimBatch(int limit, long leaseSeconds) {
+        return jdbcClient.sql("""
+                        UPDATE email_outbox
+                        SET available_at = now() + ? * INTERVAL '1 second'
+                        WHERE id IN (
+                            SELECT id FROM email_outbox
+                            WHERE available_at <= now()
+                            ORDER BY id
+                            LIMIT ?
+                            FOR UPDATE SKIP LOCKED
+                        )
+                        RETURNING id, recipient, type, payload, locale, attempts, available_at, created_at
+                        """)
+                .param(leaseSeconds)
+                .param(limit)
+                .query(EMAIL_OUTBOX_MAPPER)
+                .list();
+    }
+
+    @Override
+    public void deleteByIds(Collection<Long> ids) {
+        jdbcClient.sql("DELETE FROM email_outbox WHERE id = ANY (?)")
+                .param(toArray(ids))
+                .update();
+    }
+
+    @Override
+    public void rescheduleByIds(Collection<Long> ids, long backoffSeconds, long maxBackoffSeconds) {
+        jdbcClient.sql("""
+                        UPDATE email_outbox
+                        SET attempts = attempts + 1,
+                            available_at = now() + LEAST(?, ? * power(2, attempts))
+                                * (0.5 + random() / 2) * INTERVAL '1 second'
+                        WHERE id = ANY (?)
+                        """)
+                .param(maxBackoffSeconds)
+                .param(backoffSeconds)
+                .param(toArray(ids))
+                .update();
+    }
+
+    private static long[] toArray(Collection<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+}
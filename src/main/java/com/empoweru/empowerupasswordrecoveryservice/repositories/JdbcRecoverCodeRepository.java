@@ -0,0 +1,112 @@
+package com.empoweru.empowerupasswordrecoveryservice.repositories;
+
+import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Plain JDBC implementation of {@link RecoverCodeRepository}, used when the {@code jdbc} profile is active.
+ * Runs the same statements as {@link JpaRecoverCodeRepository} through {@link JdbcClient} and maps the rows by hand,
+ * so a call costs one prepared statement and no persistence context.
+ * Every method is a single statement, so it is atomic on its own and joins the caller's transaction if there is one.
+ */
+@Repository
+@Profile("jdbc")
+public class JdbcRecoverCodeRepository implements RecoverCodeRepository {
+
+    private static final RowMapper<RecoveryCode> RECOVERY_CODE_MAPPER = (resultSet, rowNum) -> new RecoveryCode(
+            resultSet.getLong("id"),
+            resultSet.getString("code"),
+            resultSet.getString("email"),
+            resultSet.getTimestamp("expiry_date"));
+
+    private final JdbcClient jdbcClient;
+
+    public JdbcRecoverCodeRepository(JdbcClient jdbcClient) {
+        this.jdbcClient = jdbcClient;
+    }
+
+    @Override
+    public Optional<RecoveryCode> findByEmail(String email) {
+        return jdbcClient.sql("SELECT id, code, email, expiry_date FROM recovery_code WHERE email = ?")
+                .param(email)
+                .query(RECOVERY_CODE_MAPPER)
+                .optional();
+    }
+
+    @Override
+    public RecoveryCode upsert(String email, String code, long validitySeconds) {
+        return jdbcClient.sql("""
+                        INSERT INTO recovery_code (code, email, expiry_date)
+                        VALUES (?, ?, LOCALTIMESTAMP + ? * INTERVAL '1 second')
+                        ON CONFLICT (email) DO UPDATE
+                        SET code = EXCLUDED.code,
+                            expiry_date = EXCLUDED.expiry_date
+                        RETURNING id, code, email, expiry_date
+                        """)
+                .param(code)
+                .param(email)
+                .param(validitySeconds)
+                .query(RECOVERY_CODE_MAPPER)
+                .single();
+    }
+
+    @Override
+    public String verifyAndResetPassword(String email, String code, String hashedPassword) {
+        return jdbcClient.sql("""
+                        WITH current_code AS (
+                            SELECT code, expiry_date < LOCALTIMESTAMP AS expired
+                            FROM recovery_code
+                            WHERE email = :email
+                            FOR UPDATE
+                        ), updated_user AS (
+                            UPDATE users SET password = :hashedPassword
+                            WHERE email = :email
+                              AND EXISTS (SELECT 1 FROM current_code WHERE code = :code AND NOT expired)
+                            RETURNING id
+                        ), consumed_code AS (
+                            DELETE FROM recovery_code
+                            WHERE email = :email
+                              AND EXISTS (SELECT 1 FROM updated_user)
+                            RETURNING id
+                        )
+                        SELECT CASE
+                            WHEN EXISTS (SELECT 1 FROM updated_user) THEN 'OK'
+                            WHEN NOT EXISTS (SELECT 1 FROM users WHERE email = :email) THEN 'USER_NOT_FOUND'
+                            WHEN NOT EXISTS (SELECT 1 FROM current_code WHERE code = :code) THEN 'INVALID_CODE'
+                            ELSE 'EXPIRED_CODE'
+                        END
+                        """)
+                .param("email", email)
+                .param("code", code)
+                .param("hashedPassword", hashedPassword)
+                .query(String.class)
+                .single();
+    }
+
+    @Override
+    public List<Long> deleteExpiredBatch(long afterId, int limit) {
+        return jdbcClient.sql("""
+                        DELETE FROM recovery_code
+                        WHERE id IN (
+                            SELECT id FROM recovery_code
+                            WHERE id > ?
+                              AND expiry_date < LOCALTIMESTAMP
+                            ORDER BY id
+                            LIMIT ?
+                            FOR UPDATE SKIP LOCKED
+                        )
+                        RETURNING id
+                        """)
+                .param(afterId)
+                .param(limit)
+                .query(Long.class)
+                .list();
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.empoweru.empowerupasswordrecoveryservice.repositories;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Plain JDBC implementation of {@link UserRepository}, used when the {@code jdbc} profile is active.
+ */
+@Repository
+@Profile("jdbc")
+public class JdbcUserRepository implements UserRepository {
+
+    private final JdbcClient jdbcClient;
+
+    public JdbcUserRepository(JdbcClient jdbcClient) {
+        this.jdbcClient = jdbcClient;
+    }
+
+    @Override
+    public Boolean existsByEmail(String email) {
+        return jdbcClient.sql("SELECT EXISTS (SELECT 1 FROM users WHERE email = ?)")
+                .param(email)
+                .query(Boolean.class)
+                .single();
+    }
+
+}
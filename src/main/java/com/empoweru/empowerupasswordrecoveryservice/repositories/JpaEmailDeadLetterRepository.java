@@ -0,0 +1,49 @@
+package com.empoweru.empowerupasswordrecoveryservice.repositories;
+
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailDeadLetter;
+import jakarta.transaction.Transactional;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Spring Data JPA implementation of {@link EmailDeadLetterRepository}, used unless the {@code jdbc} profile is active.
+ */
+@Profile("!jdbc")
+public interface JpaEmailDeadLetterRepository extends Repository<EmailDeadLetter, Long>, EmailDeadLetterRepository {
+
+    @Override
+    EmailDeadLetter save(EmailDeadLetter emailDeadLetter);
+
+    @Override
+    @Transactional
+    @Query(value = """
+            UPDATE email_dead_letter
+            SET claimed_until = now() + :leaseSeconds * INTERVAL '1 second'
+            WHERE id IN (
+                SELECT id FROM email_dead_letter
+                WHERE claimed_until IS NULL OR claimed_until <= now()
+                ORDER BY id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING *
+            """, nativeQuery = true)
+    List<EmailDeadLetter> claimBatch(@Param("limit") int limit, @Param("leaseSeconds") long leaseSeconds);
+
+    @Override
+    @Modifying
+    @Query(value = "DELETE FROM email_dead_letter WHERE id IN (:ids)", nativeQuery = true)
+    void deleteByIds(@Param("ids") Collection<Long> ids);
+
+    @Override
+    @Modifying
+    @Query(value = "UPDATE email_dead_letter SET attempts = attempts + 1, claimed_until = NULL WHERE id IN (:ids)", nativeQuery = true)
+    void recordFailedAttempt(@Param("ids") Collection<Long> ids);
+
+}
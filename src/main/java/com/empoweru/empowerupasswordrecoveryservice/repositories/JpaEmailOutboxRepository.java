@@ -0,0 +1,56 @@
+package com.empoweru.empowerupasswordrecoveryservice.repositories;
+
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailOutbox;
+import jakarta.transaction.Transactional;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Spring Data JPA implementation of {@link EmailOutboxRepository}, used unless the {@code jdbc} profile is active.
+ */
+@Profile("!jdbc")
+public interface JpaEmailOutboxRepository extends Repository<EmailOutbox, Long>, EmailOutboxRepository {
+
+    @Override
+    EmailOutbox save(EmailOutbox emailOutbox);
+
+    @Override
+    @Transactional
+    @Query(value = """
+            UPDATE email_outbox
+            SET available_at = now() + :leaseSeconds * INTERVAL '1 second'
+            WHERE id IN (
+                SELECT id FROM email_outbox
+                WHERE available_at <= now()
+                ORDER BY id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING *
+            """, nativeQuery = true)
+    List<EmailOutbox> claimBatch(@Param("limit") int limit, @Param("leaseSeconds") long leaseSeconds);
+
+    @Override
+    @Modifying
+    @Query(value = "DELETE FROM email_outbox WHERE id IN (:ids)", nativeQuery = true)
+    void deleteByIds(@Param("ids") Collection<Long> ids);
+
+    @Override
+    @Modifying
+    @Query(value = """
+            UPDATE email_outbox
+            SET attempts = attempts + 1,
+                available_at = now() + LEAST(:maxBackoffSeconds, :backoffSeconds * power(2, attempts))
+                    * (0.5 + random() / 2) * INTERVAL '1 second'
+            WHERE id IN (:ids)
+            """, nativeQuery = true)
+    void rescheduleByIds(@Param("ids") Collection<Long> ids, @Param("backoffSeconds") long backoffSeconds,
+                         @Param("maxBackoffSeconds") long maxBackoffSeconds);
+
+}
@@ -0,0 +1,82 @@
+package com.empoweru.empowerupasswordrecoveryservice.repositories;
+
+import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
+import jakarta.transaction.Transactional;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Spring Data JPA implementation of {@link RecoverCodeRepository}, used unless the {@code jdbc} profile is active.
+ */
+@Profile("!jdbc")
+public interface JpaRecoverCodeRepository extends Repository<RecoveryCode, Long>, RecoverCodeRepository {
+
+    @Override
+    Optional<RecoveryCode> findByEmail(String email);
+
+    @Override
+    @Transactional
+    @Query(value = """
+            INSERT INTO recovery_code (code, email, expiry_date)
+            VALUES (:code, :email, LOCALTIMESTAMP + :validitySeconds * INTERVAL '1 second')
+            ON CONFLICT (email) DO UPDATE
+            SET code = EXCLUDED.code,
+                expiry_date = EXCLUDED.expiry_date
+            RETURNING *
+            """, nativeQuery = true)
+    RecoveryCode upsert(@Param("email") String email,
+                        @Param("code") String code,
+                        @Param("validitySeconds") long validitySeconds);
+
+    @Override
+    @Transactional
+    @Query(value = """
+            WITH current_code AS (
+                SELECT code, expiry_date < LOCALTIMESTAMP AS expired
+                FROM recovery_code
+                WHERE email = :email
+                FOR UPDATE
+            ), updated_user AS (
+                UPDATE users SET password = :hashedPassword
+                WHERE email = :email
+                  AND EXISTS (SELECT 1 FROM current_code WHERE code = :code AND NOT expired)
+                RETURNING id
+            ), consumed_code AS (
+                DELETE FROM recovery_code
+                WHERE email = :email
+                  AND EXISTS (SELECT 1 FROM updated_user)
+                RETURNING id
+            )
+            SELECT CASE
+                WHEN EXISTS (SELECT 1 FROM updated_user) THEN 'OK'
+                WHEN NOT EXISTS (SELECT 1 FROM users WHERE email = :email) THEN 'USER_NOT_FOUND'
+                WHEN NOT EXISTS (SELECT 1 FROM current_code WHERE code = :code) THEN 'INVALID_CODE'
+                ELSE 'EXPIRED_CODE'
+            END
+            """, nativeQuery = true)
+    String verifyAndResetPassword(@Param("email") String email,
+                                  @Param("code") String code,
+                                  @Param("hashedPassword") String hashedPassword);
+
+    @Override
+    @Transactional
+    @Query(value = """
+            DELETE FROM recovery_code
+            WHERE id IN (
+                SELECT id FROM recovery_code
+                WHERE id > :afterId
+                  AND expiry_date < LOCALTIMESTAMP
+                ORDER BY id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id
+            """, nativeQuery = true)
+    List<Long> deleteExpiredBatch(@Param("afterId") long afterId, @Param("limit") int limit);
+
+}
@@ -0,0 +1,18 @@
+package com.empoweru.empowerupasswordrecoveryservice.repositories;
+
+import com.empoweru.empowerupasswordrecoveryservice.models.User;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.repository.Repository;
+
+import java.util.UUID;
+
+/**
+ * Spring Data JPA implementation of {@link UserRepository}, used unless the {@code jdbc} profile is active.
+ */
+@Profile("!jdbc")
+public interface JpaUserRepository extends Repository<User, UUID>, UserRepository {
+
+    @Override
+    Boolean existsByEmail(String email);
+
+}
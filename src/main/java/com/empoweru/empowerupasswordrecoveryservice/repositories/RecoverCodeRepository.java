@@ -1,17 +1,51 @@
 package com.empoweru.empowerupasswordrecoveryservice.repositories;
 
 import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
-import org.springframework.data.repository.CrudRepository;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
- * Entity class representing a recovery code for password reset.
- * This class is used to store information about recovery codes generated for users attempting to reset their passwords.
+ * Repository for the recovery codes issued to users attempting to reset their passwords.
+ * Implemented with Spring Data JPA by {@link JpaRecoverCodeRepository}, or with plain JDBC by
+ * {@link JdbcRecoverCodeRepository} when the {@code jdbc} profile is active.
  */
-public interface RecoverCodeRepository extends CrudRepository<RecoveryCode, Long> {
-    void deleteAllByEmail(String email);
+public interface RecoverCodeRepository {
 
     Optional<RecoveryCode> findByEmail(String email);
 
+    /**
+     * Issues a recovery code for an email, replacing the email's current code if it has one.
+     * Relies on the unique index on {@code recovery_code.email}, so issuing a code is a single indexed write.
+     * The expiry date is computed from the database clock, the same clock codes are verified against.
+     *
+     * @param email The email to issue the code to.
+     * @param code The new code.
+     * @param validitySeconds How long the code stays valid.
+     * @return The issued recovery code.
+     */
+    RecoveryCode upsert(String email, String code, long validitySeconds);
+
+    /**
+     * Verifies a recovery code and, if it is valid, updates the user's password and deletes the code,
+     * all in a single statement. Expiry is checked against the database clock.
+     * The code row is locked, so concurrent attempts with the same code cannot both succeed.
+     *
+     * @param email The email the code was issued to.
+     * @param code The code submitted by the user.
+     * @param hashedPassword The new password, already hashed.
+     * @return The name of the resulting {@link com.empoweru.empowerupasswordrecoveryservice.models.PasswordResetStatus}.
+     */
+    String verifyAndResetPassword(String email, String code, String hashedPassword);
+
+    /**
+     * Deletes one batch of expired recovery codes, walking the table in id order.
+     * Rows locked by a concurrent issue or reset are skipped and picked up by a later run.
+     *
+     * @param afterId Only rows with a greater id are considered; the last id of the previous batch, or 0 to start.
+     * @param limit The maximum number of rows to delete.
+     * @return The ids of the deleted rows.
+     */
+    List<Long> deleteExpiredBatch(long afterId, int limit);
+
 }
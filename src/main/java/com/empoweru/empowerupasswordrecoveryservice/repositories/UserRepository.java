@@ -1,20 +1,11 @@
 package com.empoweru.empowerupasswordrecoveryservice.repositories;
 
-import com.empoweru.empowerupasswordrecoveryservice.models.User;
-import jakarta.transaction.Transactional;
-import org.springframework.data.jpa.repository.Modifying;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
-import org.springframework.data.repository.query.Param;
-
-import java.util.UUID;
-
-public interface UserRepository extends CrudRepository<User, UUID> {
-
-    @Transactional
-    @Modifying
-    @Query("UPDATE users u SET u.password = :password WHERE u.email = :email")
-    void updatePassword(@Param("email") String email, @Param("password") String password);
+/**
+ * Repository for the users whose passwords can be recovered.
+ * Implemented with Spring Data JPA by {@link JpaUserRepository}, or with plain JDBC by
+ * {@link JdbcUserRepository} when the {@code jdbc} profile is active.
+ */
+public interface UserRepository {
 
     Boolean existsByEmail(String email);
 
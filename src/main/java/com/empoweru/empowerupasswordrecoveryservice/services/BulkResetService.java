@@ -0,0 +1,156 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import com.empoweru.empowerupasswordrecoveryservice.audit.AuditEventType;
+import com.empoweru.empowerupasswordrecoveryservice.audit.AuditLog;
+import com.empoweru.empowerupasswordrecoveryservice.bulk.BulkResetReport;
+import com.empoweru.empowerupasswordrecoveryservice.bulk.EmailListFormat;
+import com.empoweru.empowerupasswordrecoveryservice.bulk.EmailListReader;
+import com.empoweru.empowerupasswordrecoveryservice.cache.RecoveryCodeCache;
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Forces password resets for a list of users, for example after a credential leak.
+ * The list is read one entry at a time and processed in chunks, each in its own transaction:
+ * the chunk's emails are checked against {@code users} with one {@code = ANY} query, and the codes and
+ * outbox entries of the registered ones are written with one JDBC batch each.
+ * The {@link EmailOutboxWorker} then hands the emails to the mail pipeline in batches, like any other outbox entry.
+ * <p>
+ * Duplicates are only detected within a chunk, so the list is never held in memory; an email listed again
+ * in a later chunk is issued a new code, which replaces the earlier one.
+ * A chunk that fails is reported and skipped, and the following chunks are still processed.
+ * Every code issued by a committed chunk is recorded in the {@link AuditLog}.
+ */
+@Service
+public class BulkResetService {
+
+    private static final String UPSERT_CODE = """
+            INSERT INTO recovery_code (code, email, expiry_date)
+            VALUES (?, ?, LOCALTIMESTAMP + ? * INTERVAL '1 second')
+            ON CONFLICT (email) DO UPDATE
+            SET code = EXCLUDED.code,
+                expiry_date = EXCLUDED.expiry_date
+            """;
+    private static final String INSERT_OUTBOX = "INSERT INTO email_outbox (recipient, type, payload, locale) VALUES (?, ?, ?, ?)";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CodeGeneratorService codeGeneratorService;
+    private final RecoveryCodeCache recoveryCodeCache;
+    private final AuditLog auditLog;
+    private final Logger logger = Logger.getLogger(BulkResetService.class.getName());
+
+    private final int chunkSize;
+    private final long codeValiditySeconds;
+
+    public BulkResetService(DataSource dataSource,
+                            PlatformTransactionManager transactionManager,
+                            CodeGeneratorService codeGeneratorService,
+                            RecoveryCodeCache recoveryCodeCache,
+                            AuditLog auditLog,
+                            @Value("${bulk-reset.chunk-size}") int chunkSize,
+                            @Value("${bulk-reset.code-validity}") Duration codeValidity) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.codeGeneratorService = codeGeneratorService;
+        this.recoveryCodeCache = recoveryCodeCache;
+        this.auditLog = auditLog;
+        this.chunkSize = chunkSize;
+        this.codeValiditySeconds = codeValidity.toSeconds();
+    }
+
+    /**
+     * Issues a recovery code to every registered email in a list and queues the emails that deliver them.
+     *
+     * @param input The list of emails, one per line.
+     * @param format The format of the list.
+     * @param locale The locale the emails are rendered in, or {@code null} for the default.
+     * @return The counts of issued, unknown, invalid and duplicate entries, and the chunks that failed.
+     * @throws IOException if the list cannot be read; the chunks processed until then stay committed.
+     */
+    public BulkResetReport reset(Reader input, EmailListFormat format, Locale locale) throws IOException {
+        BulkResetReport report = new BulkResetReport();
+        Map<String, Long> chunk = new LinkedHashMap<>();
+        try (EmailListReader reader = new EmailListReader(input, format, OBJECT_MAPPER)) {
+            EmailListReader.Entry entry;
+            while ((entry = reader.next()) != null) {
+                report.received();
+                if (entry.email() == null) {
+                    report.invalid(entry.line());
+                } else if (chunk.putIfAbsent(entry.email(), entry.line()) != null) {
+                    report.duplicate();
+                } else if (chunk.size() == chunkSize) {
+                    process(chunk, locale, report);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            process(chunk, locale, report);
+        }
+        logger.info("Bulk reset finished: " + report.getReceived() + " entries, " + report.getIssued() + " codes issued, "
+                + report.getUnknown() + " unknown, " + report.getInvalid() + " invalid, " + report.getDuplicates()
+                + " duplicates, " + report.getFailed() + " in " + report.getFailedChunks().size() + " failed chunks");
+        return report;
+    }
+
+    private void process(Map<String, Long> chunk, Locale locale, BulkResetReport report) {
+        int index = report.getChunks() + 1;
+        List<Long> lines = new ArrayList<>(chunk.values());
+        try {
+            List<String> registered = transactionTemplate.execute(status -> issue(chunk.keySet().toArray(String[]::new), locale));
+            int issued = registered == null ? 0 : registered.size();
+            report.chunkIssued(chunk.size(), issued);
+            if (registered != null) {
+                registered.forEach(email -> auditLog.record(AuditEventType.CODE_ISSUED, email, null, "bulk"));
+            }
+            logger.info("Bulk reset chunk " + index + ": " + issued + " of " + chunk.size() + " emails issued a code, "
+                    + report.getIssued() + " so far");
+        } catch (DataAccessException | TransactionException e) {
+            String error = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            report.chunkFailed(new BulkResetReport.ChunkFailure(index, lines.get(0), lines.get(lines.size() - 1), chunk.size(), error));
+            logger.warning("Bulk reset chunk " + index + " (lines " + lines.get(0) + "-" + lines.get(lines.size() - 1)
+                    + ") failed: " + error);
+        }
+    }
+
+    private List<String> issue(String[] emails, Locale locale) {
+        List<String> registered = jdbcTemplate.queryForList(
+                "SELECT email FROM users WHERE email = ANY (?)", String.class, (Object) emails);
+        if (registered.isEmpty()) {
+            return registered;
+        }
+        String languageTag = locale == null ? null : locale.toLanguageTag();
+        List<Object[]> codes = new ArrayList<>(registered.size());
+        List<Object[]> outbox = new ArrayList<>(registered.size());
+        for (String email : registered) {
+            String code = codeGeneratorService.nextCode();
+            codes.add(new Object[]{code, email, codeValiditySeconds});
+            outbox.add(new Object[]{email, EmailType.RECOVERY_CODE.name(), code, languageTag});
+        }
+        jdbcTemplate.batchUpdate(UPSERT_CODE, codes);
+        jdbcTemplate.batchUpdate(INSERT_OUTBOX, outbox);
+        registered.forEach(recoveryCodeCache::invalidate);
+        return registered;
+    }
+}
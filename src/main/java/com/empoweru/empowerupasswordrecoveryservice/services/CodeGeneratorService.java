@@ -1,14 +1,20 @@
 package com.empoweru.empowerupasswordrecoveryservice.services;
 
+import com.empoweru.empowerupasswordrecoveryservice.cache.RecoveryCodeCache;
+import com.empoweru.empowerupasswordrecoveryservice.codes.CodeGenerator;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Outcome;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Stage;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryStageEvent;
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailOutbox;
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailType;
 import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.EmailOutboxRepository;
 import com.empoweru.empowerupasswordrecoveryservice.repositories.RecoverCodeRepository;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.sql.Timestamp;
-import java.time.ZonedDateTime;
-import java.util.Random;
+import java.util.Locale;
 
 
 /**
@@ -20,29 +26,48 @@ import java.util.Random;
 @AllArgsConstructor
 public class CodeGeneratorService {
 
-    private final ZonedDateTime zonedDateTime;
+    private static final long CODE_VALIDITY_SECONDS = 600; // Codes expire 10 minutes after they are issued.
 
     private final RecoverCodeRepository recoverCodeRepository;
 
-    private final Random random = new Random();
+    private final EmailOutboxRepository emailOutboxRepository;
+
+    private final RecoveryCodeCache recoveryCodeCache;
+
+    private final CodeGenerator codeGenerator;
 
     /**
-     * Generates a new recovery code for a given email, deletes any existing codes for that email,
-     * and saves the new code to the database.
+     * Generates a new recovery code for a given email, replacing any existing code for that email,
+     * and saves it to the database together with an outbox entry for the email that delivers it.
+     * The new code is cached once the transaction commits.
+     * The statements are spanned by a {@link RecoveryStageEvent} for the {@code code-issue} stage.
      *
      * @param email The email address for which to generate a recovery code.
+     * @param locale The locale the email is rendered in, or {@code null} for the default.
      * @return The saved RecoveryCode entity.
      */
     @Transactional
-    public RecoveryCode generate(String email) {
-        int code = random.nextInt(100000, 999999); // Generate a random 6-digit code.
-        RecoveryCode recoverCode = new RecoveryCode();
-        recoverCode.setCode(String.valueOf(code));
-        recoverCode.setEmail(email);
-        // Set the expiry date to 10 minutes from the current time.
-        recoverCode.setExpiryDate(new Timestamp(zonedDateTime.toInstant().toEpochMilli() + 600000));
-        recoverCodeRepository.deleteAllByEmail(email); // Delete any existing codes for this email.
-        return recoverCodeRepository.save(recoverCode);
+    public RecoveryCode generate(String email, Locale locale) {
+        RecoveryStageEvent event = RecoveryStageEvent.start(Stage.CODE_ISSUE, email);
+        Outcome outcome = Outcome.FAILED;
+        try {
+            RecoveryCode saved = recoverCodeRepository.upsert(email, nextCode(), CODE_VALIDITY_SECONDS);
+            emailOutboxRepository.save(new EmailOutbox(email, EmailType.RECOVERY_CODE, saved.getCode(), locale));
+            recoveryCodeCache.put(saved);
+            outcome = Outcome.OK;
+            return saved;
+        } finally {
+            event.finish(outcome);
+        }
+    }
+
+    /**
+     * Draws a new code from the configured {@link CodeGenerator} without storing it.
+     *
+     * @return The new code.
+     */
+    public String nextCode() {
+        return codeGenerator.next();
     }
 
 }
@@ -0,0 +1,118 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import com.empoweru.empowerupasswordrecoveryservice.mail.BatchingEmailDispatcher;
+import com.empoweru.empowerupasswordrecoveryservice.mail.OutgoingEmail;
+import com.empoweru.empowerupasswordrecoveryservice.mail.SmtpRouter;
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailDeadLetter;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.EmailDeadLetterRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Background worker that sends the emails parked in the dead-letter store once an SMTP provider recovers.
+ * It does nothing while every provider of the {@link SmtpRouter} is down. Otherwise it claims the parked emails
+ * batch by batch, leasing them for {@code mail.dead-letter.lease-seconds} like the {@link EmailOutboxWorker},
+ * sends each batch outside any transaction and settles it in a short one, and stops at the first batch
+ * the providers could not take.
+ * Emails the server refuses, or that could not be sent {@code maxAttempts} times, are dropped.
+ */
+@Service
+public class EmailDeadLetterWorker {
+
+    private final EmailDeadLetterRepository emailDeadLetterRepository;
+    private final BatchingEmailDispatcher batchingEmailDispatcher;
+    private final SmtpRouter smtpRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final Logger logger = Logger.getLogger(EmailDeadLetterWorker.class.getName());
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long leaseSeconds;
+
+    public EmailDeadLetterWorker(EmailDeadLetterRepository emailDeadLetterRepository,
+                                 BatchingEmailDispatcher batchingEmailDispatcher,
+                                 SmtpRouter smtpRouter,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${mail.dead-letter.batch-size}") int batchSize,
+                                 @Value("${mail.dead-letter.max-attempts}") int maxAttempts,
+                                 @Value("${mail.dead-letter.lease-seconds}") long leaseSeconds) {
+        this.emailDeadLetterRepository = emailDeadLetterRepository;
+        this.batchingEmailDispatcher = batchingEmailDispatcher;
+        this.smtpRouter = smtpRouter;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    /**
+     * Sends the parked emails batch by batch, until a batch comes back smaller than the batch size
+     * or could not be sent in full.
+     */
+    @Scheduled(fixedDelayString = "${mail.dead-letter.redrive-interval-millis}")
+    public void redrive() {
+        boolean more;
+        do {
+            if (!smtpRouter.isAvailable()) {
+                return;
+            }
+            more = redriveBatch();
+        } while (more);
+    }
+
+    /**
+     * Claims, sends and settles one batch of parked emails. Must not run inside a transaction,
+     * so that the claim is committed before the batch is sent.
+     *
+     * @return true if the batch was full and sent without connection failures, so another one should follow.
+     */
+    private boolean redriveBatch() {
+        List<EmailDeadLetter> entries = emailDeadLetterRepository.claimBatch(batchSize, leaseSeconds);
+        if (entries.isEmpty()) {
+            return false;
+        }
+
+        List<OutgoingEmail> emails = new ArrayList<>(entries.size());
+        for (EmailDeadLetter entry : entries) {
+            emails.add(entry.toOutgoingEmail());
+        }
+
+        BatchingEmailDispatcher.Delivery delivery = batchingEmailDispatcher.deliver(emails);
+        Set<OutgoingEmail> deferred = Collections.newSetFromMap(new IdentityHashMap<>());
+        deferred.addAll(delivery.deferred());
+
+        List<Long> settled = new ArrayList<>(entries.size());
+        List<Long> retried = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            EmailDeadLetter entry = entries.get(i);
+            if (!deferred.contains(emails.get(i))) {
+                settled.add(entry.getId());
+            } else if (entry.getAttempts() + 1 >= maxAttempts) {
+                logger.warning("Giving up on parked email after " + maxAttempts + " attempts. " + entry.getError());
+                settled.add(entry.getId());
+            } else {
+                retried.add(entry.getId());
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!settled.isEmpty()) {
+                emailDeadLetterRepository.deleteByIds(settled);
+            }
+            if (!retried.isEmpty()) {
+                emailDeadLetterRepository.recordFailedAttempt(retried);
+            }
+        });
+        logger.info("Sent " + (entries.size() - delivery.failed().size()) + " of " + entries.size() + " parked emails.");
+        return deferred.isEmpty() && entries.size() == batchSize;
+    }
+}
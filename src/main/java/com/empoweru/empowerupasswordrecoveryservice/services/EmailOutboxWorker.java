@@ -0,0 +1,131 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import com.empoweru.empowerupasswordrecoveryservice.mail.BatchingEmailDispatcher;
+import com.empoweru.empowerupasswordrecoveryservice.mail.OutgoingEmail;
+import com.empoweru.empowerupasswordrecoveryservice.mail.SmtpRouter;
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailOutbox;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.EmailOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Background worker that drains the transactional email outbox.
+ * Each batch is claimed in a short statement of its own that leases the rows for {@code mail.outbox.lease-seconds},
+ * so instances draining in parallel do not send the same email twice, and no database connection or row lock
+ * is held while the batch goes through SMTP retries and quota waits. Once sent, the batch is settled in a second
+ * short transaction: sent rows are deleted, failed rows are retried after a jittered backoff that doubles
+ * with every attempt, and dropped once they have used up their attempts. Rows of a batch that is never settled,
+ * because the instance stopped, are sent again once their lease has passed.
+ * The outbox is left alone while every SMTP provider's circuit breaker is open, so entries do not use up
+ * their attempts while the servers are down.
+ */
+@Service
+public class EmailOutboxWorker {
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailSender emailSender;
+    private final BatchingEmailDispatcher batchingEmailDispatcher;
+    private final SmtpRouter smtpRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final Logger logger = Logger.getLogger(EmailOutboxWorker.class.getName());
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long leaseSeconds;
+    private final long retryBackoffSeconds;
+    private final long maxRetryBackoffSeconds;
+
+    public EmailOutboxWorker(EmailOutboxRepository emailOutboxRepository,
+                             EmailSender emailSender,
+                             BatchingEmailDispatcher batchingEmailDispatcher,
+                             SmtpRouter smtpRouter,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${mail.outbox.batch-size}") int batchSize,
+                             @Value("${mail.outbox.max-attempts}") int maxAttempts,
+                             @Value("${mail.outbox.lease-seconds}") long leaseSeconds,
+                             @Value("${mail.outbox.retry-backoff-seconds}") long retryBackoffSeconds,
+                             @Value("${mail.outbox.max-retry-backoff-seconds}") long maxRetryBackoffSeconds) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailSender = emailSender;
+        this.batchingEmailDispatcher = batchingEmailDispatcher;
+        this.smtpRouter = smtpRouter;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.leaseSeconds = leaseSeconds;
+        this.retryBackoffSeconds = retryBackoffSeconds;
+        this.maxRetryBackoffSeconds = maxRetryBackoffSeconds;
+    }
+
+    /**
+     * Drains the outbox batch by batch until a batch comes back smaller than the batch size.
+     * Nothing is claimed while no SMTP provider is available.
+     */
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-millis}")
+    public void drain() {
+        int claimed;
+        do {
+            if (!smtpRouter.isAvailable()) {
+                return;
+            }
+            claimed = drainBatch();
+        } while (claimed == batchSize);
+    }
+
+    /**
+     * Claims, sends and settles one batch of outbox entries. Must not run inside a transaction,
+     * so that the claim is committed before the batch is sent.
+     *
+     * @return The number of entries claimed.
+     */
+    private int drainBatch() {
+        List<EmailOutbox> entries = emailOutboxRepository.claimBatch(batchSize, leaseSeconds);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        List<OutgoingEmail> emails = new ArrayList<>(entries.size());
+        for (EmailOutbox entry : entries) {
+            Locale locale = entry.getLocale() == null ? null : Locale.forLanguageTag(entry.getLocale());
+            emails.add(emailSender.compose(entry.getType().getTemplateId(), entry.getRecipient(), locale,
+                    entry.getType().templateValues(entry.getPayload())));
+        }
+
+        Set<OutgoingEmail> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        failed.addAll(batchingEmailDispatcher.sendBatch(emails));
+
+        List<Long> settled = new ArrayList<>(entries.size());
+        List<Long> retried = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            EmailOutbox entry = entries.get(i);
+            if (!failed.contains(emails.get(i))) {
+                settled.add(entry.getId());
+            } else if (entry.getAttempts() + 1 >= maxAttempts) {
+                logger.warning("Giving up on " + entry.getType() + " email after " + maxAttempts + " attempts.");
+                settled.add(entry.getId());
+            } else {
+                retried.add(entry.getId());
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!settled.isEmpty()) {
+                emailOutboxRepository.deleteByIds(settled);
+            }
+            if (!retried.isEmpty()) {
+                emailOutboxRepository.rescheduleByIds(retried, retryBackoffSeconds, maxRetryBackoffSeconds);
+            }
+        });
+        return entries.size();
+    }
+}
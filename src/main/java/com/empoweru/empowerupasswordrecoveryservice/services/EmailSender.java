@@ -1,7 +1,11 @@
 package com.empoweru.empowerupasswordrecoveryservice.services;
 
+import com.empoweru.empowerupasswordrecoveryservice.mail.OutgoingEmail;
 import jakarta.mail.MessagingException;
 
+import java.util.Locale;
+import java.util.Map;
+
 /**
  * Interface for email sending operations related to password recovery.
  * Defines methods for sending recovery codes and notifications of successful password recovery.
@@ -12,16 +16,29 @@ public interface EmailSender {
      * Sends a recovery code to the specified email address.
      *
      * @param email The email address to send the recovery code to.
-     * @return A String indicating the result of the send operation.
+     * @param locale The locale to write the email in, or {@code null} for the default.
+     * @return The issuance, telling whether a new code was sent or the request was coalesced with another.
      */
-    String sendRecoveryCode(String email);
+    RecoveryCodeIssuer.Issuance sendRecoveryCode(String email, Locale locale);
 
     /**
      * Sends a notification to the specified email address indicating successful password recovery.
      *
      * @param email The email address to send the notification to.
+     * @param locale The locale to write the email in, or {@code null} for the default.
+     */
+    void sendPasswordRecoveredSuccessfully(String email, Locale locale);
+
+    /**
+     * Renders the email template with the given ID for the specified recipient.
+     *
+     * @param templateId The ID of the template to render.
+     * @param to The recipient's email address.
+     * @param locale The locale to write the email in, or {@code null} for the default.
+     * @param values The template placeholder values by name.
+     * @return The rendered email.
      */
-    void sendPasswordRecoveredSuccessfully(String email);
+    OutgoingEmail compose(String templateId, String to, Locale locale, Map<String, String> values);
 
     /**
      * Asynchronously sends an email with the given subject and HTML content to the specified recipient.
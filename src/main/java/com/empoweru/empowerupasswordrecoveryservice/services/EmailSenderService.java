@@ -1,15 +1,20 @@
 package com.empoweru.empowerupasswordrecoveryservice.services;
 
-import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
+import com.empoweru.empowerupasswordrecoveryservice.mail.BatchingEmailDispatcher;
+import com.empoweru.empowerupasswordrecoveryservice.mail.EmailTemplateEngine;
+import com.empoweru.empowerupasswordrecoveryservice.mail.OutgoingEmail;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Outcome;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Stage;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryStageEvent;
+import com.empoweru.empowerupasswordrecoveryservice.models.EmailType;
 import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import lombok.AllArgsConstructor;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 /**
@@ -20,87 +25,86 @@ import java.util.logging.Logger;
 @AllArgsConstructor
 public class EmailSenderService implements EmailSender {
 
-    private final JavaMailSender javaMailSender;
-    private final CodeGeneratorService codeGeneratorService;
+    private final BatchingEmailDispatcher batchingEmailDispatcher;
+    private final EmailTemplateEngine emailTemplateEngine;
+    private final RecoveryCodeIssuer recoveryCodeIssuer;
+    private final RecoveryMetrics recoveryMetrics;
     private final Logger logger = Logger.getLogger(EmailSenderService.class.getName());
 
-    // Configured to use a fixed thread pool of 10 threads to manage concurrent execution of email sending operations.
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
-
     /**
      * Sends a recovery code to the specified email address.
-     * Generates a new recovery code, formats an email message, and sends it asynchronously.
+     * Generates a new recovery code, which is stored together with an outbox entry for the email.
+     * The email itself is sent by the {@link EmailOutboxWorker} once the code has been committed.
+     * Duplicate requests for the same email are coalesced by the {@link RecoveryCodeIssuer}.
      *
      * @param email The email address to send the recovery code to.
-     * @return A String indicating the result of the send operation.
+     * @param locale The locale to write the email in, or {@code null} for the default.
+     * @return The issuance, telling whether a new code was sent or the request was coalesced with another.
      */
     @Override
-    public String sendRecoveryCode(String email) {
-        RecoveryCode recoverToken = codeGeneratorService.generate(email);
-        String subject = "Your code is: " + recoverToken.getCode();
-
-        String htmlContent = """
-                <html>
-                <body>
-                    <h2>Dear User,</h2>
-                    <p>We received a request to reset your password for your <b>EmpowerU</b> account.</p>
-                    <p>Your password reset code is: <b>""" + recoverToken.getCode() + """
-                    </b></p>
-                    <p>If you did not request a password reset, please ignore this email or contact support if you have any concerns.</p>
-                    <br/>
-                    <p>Best regards,<br/>The EmpowerU Team</p>
-                </body>
-                </html>
-                """;
-
-        sendEmailAsync(email, subject, htmlContent);
-        return "A recovery code has been sent to your email!";
+    public RecoveryCodeIssuer.Issuance sendRecoveryCode(String email, Locale locale) {
+        return recoveryCodeIssuer.issue(email, locale);
     }
 
     /**
      * Sends a notification of successful password recovery to the specified email address.
-     * Formats an email message and sends it asynchronously.
+     * Renders the notification template and sends it asynchronously.
+     * The password has already been changed at this point, so a notification refused by a full queue is only logged.
+     * Rendering and queuing are timed as the {@code notification-queue} stage by {@link RecoveryMetrics}
+     * and spanned by a {@link RecoveryStageEvent}.
      *
      * @param email The email address to send the notification to.
+     * @param locale The locale to write the email in, or {@code null} for the default.
      */
-    public void sendPasswordRecoveredSuccessfully(String email) {
-        String subject = "Password Recovered Successfully!";
-        String htmlContent = """
-                <html>
-                <body>
-                    <h2>Dear User,</h2>
-                    <p>Your password has been successfully recovered for your <b>EmpowerU</b> account.</p>
-                    <p>If you did not request a password reset, please contact support immediately.</p>
-                    <br/>
-                    <p>Best regards,<br/>The EmpowerU Team</p>
-                </body>
-                </html>
-                """;
+    @Override
+    public void sendPasswordRecoveredSuccessfully(String email, Locale locale) {
+        long started = System.nanoTime();
+        RecoveryStageEvent event = RecoveryStageEvent.start(Stage.NOTIFICATION_QUEUE, email);
+        Outcome outcome = Outcome.FAILED;
+        try {
+            EmailType type = EmailType.PASSWORD_RECOVERED;
+            OutgoingEmail outgoingEmail = compose(type.getTemplateId(), email, locale, type.templateValues(null));
+            batchingEmailDispatcher.enqueue(outgoingEmail);
+            outcome = Outcome.OK;
+        } catch (RejectedExecutionException e) {
+            outcome = Outcome.REJECTED;
+            this.logger.warning("Failed to queue password recovered email. " + e.getMessage());
+        } finally {
+            recoveryMetrics.recordStage(Stage.NOTIFICATION_QUEUE, outcome, started);
+            event.finish(outcome);
+        }
+    }
 
-        sendEmailAsync(email, subject, htmlContent);
+    /**
+     * Renders the email template with the given ID for the specified recipient.
+     * Templates are compiled once at startup by the {@link EmailTemplateEngine}.
+     *
+     * @param templateId The ID of the template to render.
+     * @param to The recipient's email address.
+     * @param locale The locale to write the email in, or {@code null} for the default.
+     * @param values The template placeholder values by name.
+     * @return The rendered email.
+     */
+    @Override
+    public OutgoingEmail compose(String templateId, String to, Locale locale, Map<String, String> values) {
+        return emailTemplateEngine.render(templateId, locale, to, values);
     }
 
     /**
      * Asynchronously sends an email with the specified content.
-     * Submits the email sending task to an executor service for asynchronous execution.
+     * Queues the email on the {@link BatchingEmailDispatcher}, which sends it together with other pending emails.
      *
      * @param to The recipient's email address.
      * @param subject The subject of the email.
      * @param htmlContent The HTML content of the email.
      */
     public void sendEmailAsync(String to, String subject, String htmlContent) {
-        executorService.submit(() -> {
-            try {
-                sendEmail(to, subject, htmlContent);
-            } catch (MessagingException e) {
-                this.logger.warning("Failed to send email. " + e.getMessage());
-            }
-        });
+        batchingEmailDispatcher.enqueue(new OutgoingEmail(to, subject, htmlContent));
     }
 
     /**
      * Synchronously sends an email with the specified content.
-     * Creates and sends a MIME message using JavaMailSender.
+     * Sends the email on the calling thread over a pooled SMTP connection.
      *
      * @param to The recipient's email address.
      * @param subject The subject of the email.
@@ -108,16 +112,7 @@ public class EmailSenderService implements EmailSender {
      * @throws MessagingException if there is a failure in sending the email.
      */
     public void sendEmail(String to, String subject, String htmlContent) throws MessagingException {
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "utf-8");
-
-        helper.setTo(to);
-        helper.setReplyTo("noreply@noreply.com");
-        helper.setSentDate(new java.util.Date());
-        helper.setSubject(subject);
-        helper.setText(htmlContent, true);
-
-        javaMailSender.send(mimeMessage);
+        batchingEmailDispatcher.send(new OutgoingEmail(to, subject, htmlContent));
     }
 
 }
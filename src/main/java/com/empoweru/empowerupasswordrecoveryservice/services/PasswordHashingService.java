@@ -0,0 +1,121 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongConsumer;
+
+/**
+ * Hashes passwords on a dedicated pool sized to the CPU, so that a burst of resets cannot take every core
+ * away from the other requests. The pool's queue is bounded and callers wait at most a configured timeout;
+ * when hashing cannot keep up, requests are turned away instead of piling up.
+ */
+@Service
+public class PasswordHashingService implements AutoCloseable {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor pool;
+    private final long timeoutNanos;
+    private final Timer hashTimer;
+    private final Timer queueWaitTimer;
+
+    public PasswordHashingService(@Lazy PasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${password.hashing.threads}") int threads,
+                                  @Value("${password.hashing.queue-capacity}") int queueCapacity,
+                                  @Value("${password.hashing.timeout}") Duration timeout) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.passwordEncoder = passwordEncoder;
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutNanos = timeout.toNanos();
+
+        this.hashTimer = Timer.builder("password.hash.duration")
+                .description("Time spent hashing a password")
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("password.hash.queue.wait")
+                .description("Time a password waited for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("password.hash.queue.depth", pool, executor -> executor.getQueue().size())
+                .description("Passwords waiting for a hashing thread")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Hashes a password on the hashing pool, blocking the caller until it is done.
+     *
+     * @param password The raw password.
+     * @return The encoded password.
+     * @throws RejectedExecutionException if the hashing queue is full or the hash did not finish within the timeout.
+     */
+    public String hash(String password) {
+        return hash(password, queueNanos -> {
+        });
+    }
+
+    /**
+     * Hashes a password on the hashing pool, blocking the caller until it is done,
+     * and reports how long the password waited for a hashing thread.
+     *
+     * @param password The raw password.
+     * @param queueWait Receives the time the password waited for a hashing thread, in nanoseconds,
+     * before this method returns.
+     * @return The encoded password.
+     * @throws RejectedExecutionException if the hashing queue is full or the hash did not finish within the timeout.
+     */
+    public String hash(String password, LongConsumer queueWait) {
+        long submitted = System.nanoTime();
+        Future<String> future = pool.submit(() -> {
+            long started = System.nanoTime();
+            queueWaitTimer.record(started - submitted, TimeUnit.NANOSECONDS);
+            queueWait.accept(started - submitted);
+            try {
+                return passwordEncoder.encode(password);
+            } finally {
+                hashTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        });
+
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new RejectedExecutionException("Password hashing timed out", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stops accepting passwords and waits briefly for the ones already queued.
+     * An interrupt ends the wait early and is left set on the calling thread.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import com.empoweru.empowerupasswordrecoveryservice.cache.RecoveryCodeCache;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Outcome;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Stage;
+import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces duplicate recovery code requests for the same email, such as double clicks and client retries.
+ * Callers arriving while a code is being generated for the email wait for that generation and share its code.
+ * Callers arriving within the reissue window after a code was issued get that code back, as long as it is
+ * still active, without generating a new code or sending another email.
+ * Generations are timed as the code-issue stage by {@link RecoveryMetrics}.
+ */
+@Service
+public class RecoveryCodeIssuer {
+
+    private static final String IN_FLIGHT = "in-flight";
+    private static final String RECENTLY_ISSUED = "recently-issued";
+
+    private final CodeGeneratorService codeGeneratorService;
+    private final RecoveryCodeCache recoveryCodeCache;
+    private final RecoveryMetrics recoveryMetrics;
+    private final ConcurrentHashMap<String, CompletableFuture<RecoveryCode>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<String, RecoveryCode> recentlyIssued;
+    private final Counter coalescedInFlight;
+    private final Counter coalescedRecent;
+
+    public RecoveryCodeIssuer(CodeGeneratorService codeGeneratorService,
+                              RecoveryCodeCache recoveryCodeCache,
+                              RecoveryMetrics recoveryMetrics,
+                              MeterRegistry meterRegistry,
+                              @Value("${recovery-code.reissue-window}") Duration reissueWindow,
+                              @Value("${recovery-code.cache.maximum-size}") long maximumSize) {
+        this.codeGeneratorService = codeGeneratorService;
+        this.recoveryCodeCache = recoveryCodeCache;
+        this.recoveryMetrics = recoveryMetrics;
+        this.recentlyIssued = Caffeine.newBuilder()
+                .expireAfterWrite(reissueWindow)
+                .maximumSize(maximumSize)
+                .build();
+        this.coalescedInFlight = Counter.builder("recovery-code.coalesced")
+                .description("Recovery code requests served by another request's code")
+                .tag("reason", IN_FLIGHT)
+                .register(meterRegistry);
+        this.coalescedRecent = Counter.builder("recovery-code.coalesced")
+                .description("Recovery code requests served by another request's code")
+                .tag("reason", RECENTLY_ISSUED)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Issues a recovery code for an email, unless one is being issued or was issued within the reissue window.
+     *
+     * @param email The email address to issue the code for.
+     * @param locale The locale the email is rendered in, or {@code null} for the default.
+     * @return The issued code, or the code shared with a coalesced request and why it was coalesced.
+     */
+    public Issuance issue(String email, Locale locale) {
+        RecoveryCode recent = recentlyIssued.getIfPresent(email);
+        if (recent != null && isStillActive(recent)) {
+            coalescedRecent.increment();
+            return new Issuance(recent, RECENTLY_ISSUED);
+        }
+
+        CompletableFuture<RecoveryCode> generation = new CompletableFuture<>();
+        CompletableFuture<RecoveryCode> existing = inFlight.putIfAbsent(email, generation);
+        if (existing != null) {
+            coalescedInFlight.increment();
+            try {
+                return new Issuance(existing.join(), IN_FLIGHT);
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        long started = System.nanoTime();
+        try {
+            RecoveryCode issued = codeGeneratorService.generate(email, locale);
+            recoveryMetrics.recordStage(Stage.CODE_ISSUE, Outcome.OK, started);
+            recentlyIssued.put(email, issued);
+            generation.complete(issued);
+            return new Issuance(issued, null);
+        } catch (RuntimeException e) {
+            recoveryMetrics.recordStage(Stage.CODE_ISSUE, Outcome.FAILED, started);
+            generation.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(email, generation);
+        }
+    }
+
+    /**
+     * A recently issued code is only reused while it is still the email's active code;
+     * once it has been used for a reset or replaced, a new request issues a new code.
+     */
+    private boolean isStillActive(RecoveryCode recent) {
+        return recoveryCodeCache.getIfPresent(recent.getEmail())
+                .map(active -> active.getCode().equals(recent.getCode()))
+                .orElse(false);
+    }
+
+    /**
+     * Result of a recovery code request.
+     *
+     * @param code The email's active recovery code.
+     * @param coalesced {@code null} if the code was issued for this request, otherwise why the request shared
+     *                  another request's code: {@code in-flight} or {@code recently-issued}.
+     */
+    public record Issuance(RecoveryCode code, String coalesced) {
+
+        /**
+         * @return {@code true} if a new code was generated and its email queued for this request.
+         */
+        public boolean isIssued() {
+            return coalesced == null;
+        }
+    }
+}
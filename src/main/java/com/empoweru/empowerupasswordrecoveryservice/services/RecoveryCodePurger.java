@@ -0,0 +1,80 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import com.empoweru.empowerupasswordrecoveryservice.repositories.RecoverCodeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Deletes expired recovery codes that were never used or replaced.
+ * The table is walked in id order in bounded batches, each in its own short transaction,
+ * with a pause between batches so the purge does not compete with live traffic.
+ */
+@Service
+public class RecoveryCodePurger {
+
+    private final RecoverCodeRepository recoverCodeRepository;
+    private final Logger logger = Logger.getLogger(RecoveryCodePurger.class.getName());
+
+    private final int batchSize;
+    private final Duration pause;
+    private final Duration maxDuration;
+
+    public RecoveryCodePurger(RecoverCodeRepository recoverCodeRepository,
+                              @Value("${recovery-code.purge.batch-size}") int batchSize,
+                              @Value("${recovery-code.purge.pause}") Duration pause,
+                              @Value("${recovery-code.purge.max-duration}") Duration maxDuration) {
+        this.recoverCodeRepository = recoverCodeRepository;
+        this.batchSize = batchSize;
+        this.pause = pause;
+        this.maxDuration = maxDuration;
+    }
+
+    /**
+     * Deletes expired recovery codes batch by batch, until none are left or the maximum duration has passed.
+     *
+     * @return How many rows were deleted, in how many batches, and how long it took.
+     */
+    public Result purgeExpired() {
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+        long lastId = 0;
+        long deleted = 0;
+        int batches = 0;
+
+        while (true) {
+            List<Long> ids = recoverCodeRepository.deleteExpiredBatch(lastId, batchSize);
+            batches++;
+            deleted += ids.size();
+            if (ids.size() < batchSize) {
+                break;
+            }
+            lastId = ids.stream().mapToLong(Long::longValue).max().orElse(lastId);
+            if (System.nanoTime() + pause.toNanos() >= deadline) {
+                logger.warning("Stopped purging expired recovery codes after " + maxDuration + "; the rest is left for the next run.");
+                break;
+            }
+            try {
+                Thread.sleep(pause.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        return new Result(deleted, batches, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Outcome of a purge run.
+     *
+     * @param deleted The number of expired codes deleted.
+     * @param batches The number of batches run.
+     * @param elapsed How long the run took, including pauses.
+     */
+    public record Result(long deleted, int batches, Duration elapsed) {
+    }
+}
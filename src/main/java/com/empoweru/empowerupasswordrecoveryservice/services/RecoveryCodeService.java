@@ -1,76 +1,128 @@
 package com.empoweru.empowerupasswordrecoveryservice.services;
 
-import com.empoweru.empowerupasswordrecoveryservice.exceptions.ExpiredRecoveryCodeException;
-import com.empoweru.empowerupasswordrecoveryservice.exceptions.InvalidRecoveryCode;
+import com.empoweru.empowerupasswordrecoveryservice.cache.RecoveryCodeCache;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Outcome;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Stage;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryStageEvent;
+import com.empoweru.empowerupasswordrecoveryservice.models.PasswordResetStatus;
 import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
 import com.empoweru.empowerupasswordrecoveryservice.repositories.RecoverCodeRepository;
-import com.empoweru.empowerupasswordrecoveryservice.repositories.UserRepository;
-import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.sql.Timestamp;
-import java.time.ZonedDateTime;
+import java.time.Clock;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Service class for managing recovery codes used in password recovery processes.
- * This includes validating recovery codes, deleting them, and updating user passwords.
+ * Verifies recovery codes and resets the user's password once a code is accepted.
  */
 @Service
 @AllArgsConstructor
 public class RecoveryCodeService {
 
     private final RecoverCodeRepository recoverCodeRepository;
-    private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final ZonedDateTime zonedDateTime;
+    private final PasswordHashingService passwordHashingService;
+    private final RecoveryCodeCache recoveryCodeCache;
+    private final RecoveryMetrics recoveryMetrics;
+    private final VerificationLockout verificationLockout;
+    private final Clock clock;
 
     /**
-     * Validates if a given recovery code is valid for the specified email.
-     * Checks if the code exists and has not expired.
+     * Verifies a recovery code and resets the user's password with a single database statement,
+     * which checks the code against the database clock, updates the password and deletes the code.
+     * The method does not run in a transaction: the statement is atomic on its own, so no database connection is held
+     * while the password waits for a hashing thread and is hashed.
+     * The code is read through {@link RecoveryCodeCache}, so repeated verifications are served from memory,
+     * and a missing, wrong or expired code is rejected before the password is hashed. A cached code that does not
+     * match may be stale, as codes issued on other instances do not update this instance's cache, so it is read
+     * again from the database before the code is rejected.
+     * An email locked out by {@link VerificationLockout} is refused from memory before anything else, and wrong codes
+     * count towards its lockout.
+     * The code lookup, the hashing and the statement are each timed as a stage by {@link RecoveryMetrics}
+     * and spanned by a {@link RecoveryStageEvent}; the hashing event carries the wait for a hashing thread.
      *
      * @param email The email associated with the recovery code.
-     * @param code The recovery code to validate.
-     * @return true if the code is valid, false otherwise.
-     * @throws ExpiredRecoveryCodeException if the code has expired.
-     * @throws InvalidRecoveryCode if the code is invalid or does not exist.
+     * @param code The recovery code to verify.
+     * @param password The new password to set for the user.
+     * @return The outcome of the verification.
+     * @throws java.util.concurrent.RejectedExecutionException if password hashing is overloaded.
      */
-    public boolean isVerificationCodeValid(String email, String code) throws ExpiredRecoveryCodeException, InvalidRecoveryCode {
-        RecoveryCode recoveryCode = recoverCodeRepository.findByEmail(email)
-                .orElseThrow(InvalidRecoveryCode::new);
-
+    public PasswordResetStatus verifyAndResetPassword(String email, String code, String password) {
+        if (!verificationLockout.lockedFor(email).isZero()) {
+            return PasswordResetStatus.LOCKED;
+        }
 
-        if (recoveryCode.getExpiryDate().before(Timestamp.from(zonedDateTime.toInstant()))) {
-            throw new ExpiredRecoveryCodeException();
+        long lookupStarted = System.nanoTime();
+        RecoveryStageEvent lookupEvent = RecoveryStageEvent.start(Stage.CODE_LOOKUP, email);
+        PasswordResetStatus rejection = check(email, code);
+        Outcome lookupOutcome = rejection == null ? Outcome.OK : Outcome.of(rejection);
+        recoveryMetrics.recordStage(Stage.CODE_LOOKUP, lookupOutcome, lookupStarted);
+        lookupEvent.finish(lookupOutcome);
+        if (rejection == PasswordResetStatus.INVALID_CODE) {
+            verificationLockout.recordFailure(email);
+        }
+        if (rejection != null) {
+            return rejection;
         }
 
-        return recoveryCode.getCode().equals(code);
-    }
+        long hashStarted = System.nanoTime();
+        RecoveryStageEvent hashEvent = RecoveryStageEvent.start(Stage.PASSWORD_HASH, email);
+        String hashedPassword;
+        try {
+            hashedPassword = passwordHashingService.hash(password, hashEvent::setQueueTime);
+        } catch (RejectedExecutionException e) {
+            recoveryMetrics.recordStage(Stage.PASSWORD_HASH, Outcome.REJECTED, hashStarted);
+            hashEvent.finish(Outcome.REJECTED);
+            throw e;
+        }
+        recoveryMetrics.recordStage(Stage.PASSWORD_HASH, Outcome.OK, hashStarted);
+        hashEvent.finish(Outcome.OK);
 
-    /**
-     * Deletes all recovery codes associated with the given email.
-     * This is typically used after a successful password recovery to clean up unused codes.
-     *
-     * @param email The email for which to delete all recovery codes.
-     */
-    @Transactional
-    public void deleteAllByEmail(String email) {
-        recoverCodeRepository.deleteAllByEmail(email);
+        long resetStarted = System.nanoTime();
+        RecoveryStageEvent resetEvent = RecoveryStageEvent.start(Stage.PASSWORD_RESET, email);
+        PasswordResetStatus status = PasswordResetStatus.valueOf(
+                recoverCodeRepository.verifyAndResetPassword(email, code, hashedPassword));
+        recoveryMetrics.recordStage(Stage.PASSWORD_RESET, Outcome.of(status), resetStarted);
+        resetEvent.finish(Outcome.of(status));
+        if (status == PasswordResetStatus.OK) {
+            recoveryCodeCache.invalidate(email);
+            verificationLockout.recordSuccess(email);
+        } else if (status == PasswordResetStatus.INVALID_CODE) {
+            verificationLockout.recordFailure(email);
+        }
+        return status;
     }
 
     /**
-     * Updates the password for a user identified by their email.
-     * The new password is hashed before being stored.
+     * Checks a submitted code against the active code of the email, read through the cache, so that a wrong code
+     * is rejected without hashing the password. A cached code that does not match is read again from the database
+     * first, as it may have been replaced by a code issued on another instance. The statement run after hashing
+     * checks the code again against the database clock.
      *
-     * @param email The email of the user whose password is to be updated.
-     * @param password The new password to set for the user.
+     * @param email The email the code was issued to.
+     * @param code The submitted code.
+     * @return {@link PasswordResetStatus#INVALID_CODE} if the email has no code or it does not match,
+     * {@link PasswordResetStatus#EXPIRED_CODE} if it matches but has expired, or null if it may be accepted.
      */
-    @Transactional
-    public void updatePassword(String email, String password) {
-        String hashedPassword = passwordEncoder.encode(password);
-        userRepository.updatePassword(email, hashedPassword);
+    private PasswordResetStatus check(String email, String code) {
+        Optional<RecoveryCode> cached = recoveryCodeCache.getIfPresent(email);
+        Optional<RecoveryCode> current;
+        if (cached.isEmpty()) {
+            current = recoveryCodeCache.get(email);
+        } else if (!cached.get().getCode().equals(code)) {
+            current = recoveryCodeCache.reload(email);
+        } else {
+            current = cached;
+        }
+        if (current.isEmpty() || !current.get().getCode().equals(code)) {
+            return PasswordResetStatus.INVALID_CODE;
+        }
+        if (current.get().getExpiryDate().getTime() <= clock.millis()) {
+            return PasswordResetStatus.EXPIRED_CODE;
+        }
+        return null;
     }
-
-
 }
@@ -0,0 +1,109 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import com.empoweru.empowerupasswordrecoveryservice.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Rate limits the recovery functions per email and per client address, before any database or SMTP work.
+ * Sending a code and verifying a code have separate limits, so guessing codes cannot be used to block code requests.
+ */
+@Service
+public class RequestThrottle {
+
+    private final RateLimiter sendCodeByEmail;
+    private final RateLimiter sendCodeByClient;
+    private final RateLimiter verifyCodeByEmail;
+    private final RateLimiter verifyCodeByClient;
+
+    public RequestThrottle(MeterRegistry meterRegistry,
+                           @Value("${rate-limit.send-code.email.capacity}") int sendCodeEmailCapacity,
+                           @Value("${rate-limit.send-code.email.period}") Duration sendCodeEmailPeriod,
+                           @Value("${rate-limit.send-code.client.capacity}") int sendCodeClientCapacity,
+                           @Value("${rate-limit.send-code.client.period}") Duration sendCodeClientPeriod,
+                           @Value("${rate-limit.verify-code.email.capacity}") int verifyCodeEmailCapacity,
+                           @Value("${rate-limit.verify-code.email.period}") Duration verifyCodeEmailPeriod,
+                           @Value("${rate-limit.verify-code.client.capacity}") int verifyCodeClientCapacity,
+                           @Value("${rate-limit.verify-code.client.period}") Duration verifyCodeClientPeriod) {
+        this.sendCodeByEmail = new RateLimiter(sendCodeEmailCapacity, sendCodeEmailPeriod);
+        this.sendCodeByClient = new RateLimiter(sendCodeClientCapacity, sendCodeClientPeriod);
+        this.verifyCodeByEmail = new RateLimiter(verifyCodeEmailCapacity, verifyCodeEmailPeriod);
+        this.verifyCodeByClient = new RateLimiter(verifyCodeClientCapacity, verifyCodeClientPeriod);
+
+        FunctionCounter.builder("rate-limit.rejected", this, RequestThrottle::getRejectedCount)
+                .description("Requests rejected for exceeding a rate limit")
+                .register(meterRegistry);
+        Gauge.builder("rate-limit.tracked-keys", this, RequestThrottle::getTrackedKeyCount)
+                .description("Emails and clients with a partly used rate limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts a request for a recovery code against the email's and the client's limits.
+     *
+     * @param email The email the code is requested for.
+     * @param client The client address, or {@code null} if unknown.
+     * @return Zero if the request is allowed, otherwise how long the caller should wait before retrying.
+     */
+    public Duration acquireSendCode(String email, String client) {
+        return acquire(sendCodeByEmail, sendCodeByClient, email, client);
+    }
+
+    /**
+     * Counts a code verification attempt against the email's and the client's limits.
+     *
+     * @param email The email the code is verified for.
+     * @param client The client address, or {@code null} if unknown.
+     * @return Zero if the request is allowed, otherwise how long the caller should wait before retrying.
+     */
+    public Duration acquireVerifyCode(String email, String client) {
+        return acquire(verifyCodeByEmail, verifyCodeByClient, email, client);
+    }
+
+    /**
+     * Drops the buckets of keys that have not been limited recently.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval-millis}")
+    public void evictIdle() {
+        for (RateLimiter limiter : limiters()) {
+            limiter.evictIdle();
+        }
+    }
+
+    /**
+     * @return The number of requests rejected by any limit.
+     */
+    public long getRejectedCount() {
+        return limiters().stream().mapToLong(RateLimiter::getRejectedCount).sum();
+    }
+
+    /**
+     * @return The number of emails and clients currently being tracked.
+     */
+    public int getTrackedKeyCount() {
+        return limiters().stream().mapToInt(RateLimiter::getTrackedKeyCount).sum();
+    }
+
+    private List<RateLimiter> limiters() {
+        return List.of(sendCodeByEmail, sendCodeByClient, verifyCodeByEmail, verifyCodeByClient);
+    }
+
+    private static Duration acquire(RateLimiter byEmail, RateLimiter byClient, String email, String client) {
+        // The client is checked first so that one client spraying random emails does not fill the email buckets.
+        if (client != null) {
+            Duration wait = byClient.tryAcquire(client);
+            if (!wait.isZero()) {
+                return wait;
+            }
+        }
+        return byEmail.tryAcquire(email.trim().toLowerCase(Locale.ROOT));
+    }
+}
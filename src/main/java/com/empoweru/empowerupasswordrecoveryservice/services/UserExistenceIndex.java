@@ -0,0 +1,207 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import com.empoweru.empowerupasswordrecoveryservice.cache.BloomFilter;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * In-memory index of registered emails, used to answer lookups for unknown emails without a database round-trip.
+ * The emails are held in a {@link BloomFilter}: a miss is definite and answered from memory,
+ * while a hit is confirmed with {@link UserRepository#existsByEmail(String)}, so false positives cost one query
+ * and are never reported as existing users.
+ * <p>
+ * The filter is built by streaming the {@code users.email} column and sized from the user count. Between builds,
+ * each refresh reads only the emails a trigger logged to {@code user_registration} since the previous refresh,
+ * a range scan of its {@code registered_at} index, so a new user is missing from the filter for at most one
+ * refresh interval. The reads overlap by {@value #READ_OVERLAP_SECONDS} seconds, so that a registration committed
+ * after a later one is not skipped. The filter is rebuilt from scratch once the users outgrow it or the rebuild
+ * interval has passed, which also drops deleted users; the rebuild purges the log older than that interval.
+ * Until the first build completes, every lookup goes to the database.
+ */
+@Service
+public class UserExistenceIndex {
+
+    private static final long MINIMUM_CAPACITY = 1024;
+    private static final int FETCH_SIZE = 1000;
+    private static final long READ_OVERLAP_SECONDS = 60;
+
+    private static final String NOW = "SELECT extract(epoch FROM clock_timestamp())";
+    private static final String READ_REGISTRATIONS = """
+            SELECT id, email FROM user_registration
+            WHERE registered_at > to_timestamp(?) - make_interval(secs => ?)
+            """;
+    private static final String PURGE_REGISTRATIONS = """
+            DELETE FROM user_registration
+            WHERE registered_at < clock_timestamp() - make_interval(secs => ?)
+            """;
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Logger logger = Logger.getLogger(UserExistenceIndex.class.getName());
+
+    private final double falsePositiveRate;
+    private final long rebuildIntervalNanos;
+
+    private final LongAdder definiteMisses = new LongAdder();
+    private final LongAdder confirmedHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    private volatile BloomFilter filter;
+    private long lastRebuild;
+    private long indexedUsers;
+    private double lastReadEpochSeconds;
+    private Set<Long> lastReadIds = Set.of();
+
+    public UserExistenceIndex(UserRepository userRepository,
+                              DataSource dataSource,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${users.index.false-positive-rate}") double falsePositiveRate,
+                              @Value("${users.index.rebuild-interval}") Duration rebuildInterval) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildIntervalNanos = rebuildInterval.toNanos();
+    }
+
+    /**
+     * Checks if a user with the given email exists.
+     *
+     * @param email The email to look up.
+     * @return true if a user with the email exists, false otherwise.
+     */
+    public boolean exists(String email) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(email)) {
+            definiteMisses.increment();
+            return false;
+        }
+        boolean exists = Boolean.TRUE.equals(userRepository.existsByEmail(email));
+        if (current != null) {
+            (exists ? confirmedHits : falsePositives).increment();
+        }
+        return exists;
+    }
+
+    /**
+     * Checks the in-memory filter only, without confirming hits with the database.
+     * Useful when the caller's next query reports a missing user itself.
+     *
+     * @param email The email to look up.
+     * @return false if no user with the email exists, true if one probably does.
+     */
+    public boolean mightExist(String email) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(email)) {
+            definiteMisses.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Loads the index on startup and keeps it up to date.
+     */
+    @Scheduled(fixedDelayString = "${users.index.refresh-interval-millis}")
+    public synchronized void refresh() {
+        long start = System.nanoTime();
+        BloomFilter current = filter;
+
+        if (current == null || indexedUsers > current.getExpectedInsertions() || start - lastRebuild >= rebuildIntervalNanos) {
+            // Taken before streaming, so that users registered during the stream are read by the next refresh.
+            double readStart = jdbcTemplate.queryForObject(NOW, Double.class);
+            long userCount = jdbcTemplate.queryForObject("SELECT count(*) FROM users", Long.class);
+            BloomFilter rebuilt = BloomFilter.create(Math.max(MINIMUM_CAPACITY, userCount * 2), falsePositiveRate);
+            long loaded = streamEmails(rebuilt::put);
+            filter = rebuilt;
+            lastRebuild = start;
+            indexedUsers = loaded;
+            lastReadEpochSeconds = readStart;
+            lastReadIds = Set.of();
+            jdbcTemplate.update(PURGE_REGISTRATIONS, TimeUnit.NANOSECONDS.toSeconds(rebuildIntervalNanos));
+            logger.info("Built user index of " + loaded + " emails in " + Duration.ofNanos(System.nanoTime() - start).toMillis()
+                    + " ms, " + rebuilt.getBitCount() / 8 / 1024 + " KiB, estimated false-positive rate "
+                    + String.format("%.4f", rebuilt.estimatedFalsePositiveRate()) + ".");
+        } else {
+            readRegistrations(current);
+        }
+    }
+
+    /**
+     * @return The estimated false-positive rate of the current filter, or 1 if it is not loaded yet.
+     */
+    public double getEstimatedFalsePositiveRate() {
+        BloomFilter current = filter;
+        return current == null ? 1 : current.estimatedFalsePositiveRate();
+    }
+
+    /**
+     * @return The number of lookups answered from memory as not existing.
+     */
+    public long getDefiniteMissCount() {
+        return definiteMisses.sum();
+    }
+
+    /**
+     * @return The number of lookups the filter passed on that the database confirmed.
+     */
+    public long getConfirmedHitCount() {
+        return confirmedHits.sum();
+    }
+
+    /**
+     * @return The number of lookups the filter passed on that the database did not confirm.
+     */
+    public long getFalsePositiveCount() {
+        return falsePositives.sum();
+    }
+
+    private long streamEmails(Consumer<String> sink) {
+        // PostgreSQL only honours the fetch size inside a transaction, which keeps the load from buffering the whole column.
+        Long loaded = transactionTemplate.execute(status -> {
+            long[] count = {0};
+            jdbcTemplate.query("SELECT email FROM users", resultSet -> {
+                String email = resultSet.getString(1);
+                if (email != null) {
+                    sink.accept(email);
+                    count[0]++;
+                }
+            });
+            return count[0];
+        });
+        return loaded == null ? 0 : loaded;
+    }
+
+    private void readRegistrations(BloomFilter current) {
+        double readStart = jdbcTemplate.queryForObject(NOW, Double.class);
+        Set<Long> readIds = new HashSet<>();
+        jdbcTemplate.query(READ_REGISTRATIONS, resultSet -> {
+            long id = resultSet.getLong(1);
+            readIds.add(id);
+            // Rows inside the overlap were already added by the previous read.
+            if (!lastReadIds.contains(id)) {
+                current.put(resultSet.getString(2));
+                indexedUsers++;
+            }
+        }, lastReadEpochSeconds, READ_OVERLAP_SECONDS);
+        lastReadEpochSeconds = readStart;
+        lastReadIds = readIds;
+    }
+}
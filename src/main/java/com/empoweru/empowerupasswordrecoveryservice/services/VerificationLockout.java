@@ -0,0 +1,226 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import com.empoweru.empowerupasswordrecoveryservice.ratelimit.AttemptCounters;
+import com.empoweru.empowerupasswordrecoveryservice.ratelimit.AttemptCounters.Attempts;
+import com.empoweru.empowerupasswordrecoveryservice.ratelimit.AttemptCounters.Change;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Locks an email out of code verification after too many wrong codes, so that codes cannot be guessed by
+ * spreading attempts over time or over instances.
+ * <p>
+ * The failures are counted in memory by {@link AttemptCounters}, so checking and counting an attempt never touches
+ * the database. The failures counted since the last {@link #flush()} are written behind to the
+ * {@code verification_attempt} table in one JDBC batch of upserts, which add them to the failures other instances
+ * wrote and lock the email once the sum reaches the maximum; a lockout already in the table is never shortened by
+ * a write. Each flush then reads back the rows changed since the previous one and merges them into memory, so
+ * failures spread over instances add up and a lockout reaches every instance within a flush interval. The first
+ * flush reads every live row, so lockouts survive a restart.
+ */
+@Service
+public class VerificationLockout implements AutoCloseable {
+
+    // Longer strings are not emails and cannot have a recovery code, so they are neither counted nor stored.
+    private static final int MAX_EMAIL_LENGTH = 320;
+
+    // A stored row whose window and lockout have passed, or whose lockout has ended, is replaced rather than added to,
+    // the same as AttemptCounters starts a new window. Otherwise the new failures are added and, if the sum reaches
+    // the maximum of a row that is not locked yet, the row is locked from now. The parameters after the row are
+    // the maximum failures and the end of a lockout starting now, twice.
+    private static final String UPSERT = """
+            INSERT INTO verification_attempt AS stored
+                (email, failures, window_started_at, locked_until, expires_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (email) DO UPDATE
+            SET failures = CASE
+                    WHEN stored.expires_at <= EXCLUDED.updated_at
+                      OR COALESCE(stored.locked_until <= EXCLUDED.updated_at, FALSE) THEN EXCLUDED.failures
+                    ELSE stored.failures + EXCLUDED.failures
+                END,
+                window_started_at = CASE
+                    WHEN stored.expires_at <= EXCLUDED.updated_at
+                      OR COALESCE(stored.locked_until <= EXCLUDED.updated_at, FALSE) THEN EXCLUDED.window_started_at
+                    ELSE LEAST(stored.window_started_at, EXCLUDED.window_started_at)
+                END,
+                locked_until = CASE
+                    WHEN stored.expires_at > EXCLUDED.updated_at AND stored.locked_until IS NULL
+                      AND stored.failures + EXCLUDED.failures >= ? THEN GREATEST(EXCLUDED.locked_until, ?)
+                    ELSE GREATEST(stored.locked_until, EXCLUDED.locked_until)
+                END,
+                expires_at = GREATEST(stored.expires_at, EXCLUDED.expires_at, CASE
+                    WHEN stored.expires_at > EXCLUDED.updated_at AND stored.locked_until IS NULL
+                      AND stored.failures + EXCLUDED.failures >= ? THEN ?::timestamp
+                END),
+                updated_at = EXCLUDED.updated_at
+            """;
+    private static final String DELETE = "DELETE FROM verification_attempt WHERE email = ANY (?)";
+    private static final String PURGE = "DELETE FROM verification_attempt WHERE expires_at <= ?";
+    private static final String READ_CHANGED = """
+            SELECT email, failures, window_started_at, locked_until
+            FROM verification_attempt
+            WHERE updated_at > ?
+              AND expires_at > ?
+            """;
+
+    // Rows are stamped with the writing instance's clock, so rows written shortly before the last read are read again
+    // in case that instance's clock is behind. Merging a row twice changes nothing.
+    private static final long READ_OVERLAP_MILLIS = Duration.ofMinutes(1).toMillis();
+
+    private final AttemptCounters counters;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final int maxFailures;
+    private final long lockoutMillis;
+    private final Logger logger = Logger.getLogger(VerificationLockout.class.getName());
+
+    private long lastReadMillis;
+
+    public VerificationLockout(DataSource dataSource,
+                               PlatformTransactionManager transactionManager,
+                               Clock clock,
+                               MeterRegistry meterRegistry,
+                               @Value("${verification.lockout.max-failures}") int maxFailures,
+                               @Value("${verification.lockout.window}") Duration window,
+                               @Value("${verification.lockout.duration}") Duration duration) {
+        this.counters = new AttemptCounters(maxFailures, window, duration, clock::millis);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.maxFailures = maxFailures;
+        this.lockoutMillis = duration.toMillis();
+
+        Gauge.builder("verification.lockout.locked-emails", counters, AttemptCounters::getLockedKeyCount)
+                .description("Emails currently locked out of code verification")
+                .register(meterRegistry);
+        Gauge.builder("verification.lockout.tracked-emails", counters, AttemptCounters::getTrackedKeyCount)
+                .description("Emails with wrong codes counted in the current window")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks the email's lockout from memory.
+     *
+     * @param email The email a code is verified for.
+     * @return Zero if the email may verify a code, otherwise how long until its lockout ends.
+     */
+    public Duration lockedFor(String email) {
+        String key = key(email);
+        return key == null ? Duration.ZERO : counters.lockedFor(key);
+    }
+
+    /**
+     * Counts a wrong code for the email.
+     *
+     * @param email The email the code was verified for.
+     * @return Zero if the email may still verify codes, otherwise how long it is locked out for.
+     */
+    public Duration recordFailure(String email) {
+        String key = key(email);
+        return key == null ? Duration.ZERO : counters.recordFailure(key);
+    }
+
+    /**
+     * Clears the email's wrong codes after a code was verified.
+     *
+     * @param email The email the code was verified for.
+     */
+    public void recordSuccess(String email) {
+        String key = key(email);
+        if (key != null) {
+            counters.reset(key);
+        }
+    }
+
+    /**
+     * Adds the failures counted since the last flush to the table, deletes the rows of reset and expired counters,
+     * merges the rows changed since the last flush back into memory and drops the expired counters from memory.
+     * Failures that could not be written are kept for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${verification.lockout.flush-interval-millis}")
+    public synchronized void flush() {
+        long now = clock.millis();
+        Timestamp nowTimestamp = new Timestamp(now);
+        Timestamp lockedUntilIfReached = new Timestamp(now + lockoutMillis);
+
+        List<Change> changes = counters.drainChanged();
+        List<Object[]> upserts = new ArrayList<>();
+        List<String> deletes = new ArrayList<>();
+        for (Change change : changes) {
+            if (change.reset()) {
+                deletes.add(change.key());
+            }
+            Attempts attempts = change.attempts();
+            if (attempts != null && change.newFailures() > 0) {
+                upserts.add(new Object[]{change.key(), change.newFailures(), new Timestamp(attempts.windowStart()),
+                        attempts.lockedUntil() == 0 ? null : new Timestamp(attempts.lockedUntil()),
+                        new Timestamp(counters.expiresAt(attempts)), nowTimestamp,
+                        maxFailures, lockedUntilIfReached, maxFailures, lockedUntilIfReached});
+            }
+        }
+
+        long readSince = lastReadMillis == 0 ? 0 : lastReadMillis - READ_OVERLAP_MILLIS;
+        List<Map.Entry<String, Attempts>> stored;
+        try {
+            stored = transactionTemplate.execute(status -> {
+                if (!deletes.isEmpty()) {
+                    jdbcTemplate.update(DELETE, (Object) deletes.toArray(String[]::new));
+                }
+                if (!upserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPSERT, upserts);
+                }
+                jdbcTemplate.update(PURGE, nowTimestamp);
+                return jdbcTemplate.query(READ_CHANGED, (resultSet, rowNum) -> {
+                    Timestamp lockedUntil = resultSet.getTimestamp(4);
+                    return Map.entry(resultSet.getString(1), new Attempts(resultSet.getInt(2),
+                            resultSet.getTimestamp(3).getTime(), lockedUntil == null ? 0 : lockedUntil.getTime()));
+                }, new Timestamp(readSince), nowTimestamp);
+            });
+        } catch (DataAccessException | TransactionException e) {
+            counters.markChanged(changes);
+            logger.warning("Could not write " + changes.size() + " verification attempts, retrying on the next flush: "
+                    + e.getMessage());
+            counters.evictExpired();
+            return;
+        }
+
+        if (lastReadMillis == 0) {
+            logger.info("Merged " + stored.size() + " verification attempt counters.");
+        }
+        lastReadMillis = now;
+        stored.forEach(entry -> counters.merge(entry.getKey(), entry.getValue()));
+        counters.evictExpired();
+    }
+
+    /**
+     * Writes the pending counters before shutdown, so that they are merged back on the next start.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private static String key(String email) {
+        String key = email.trim().toLowerCase(Locale.ROOT);
+        return key.length() > MAX_EMAIL_LENGTH ? null : key;
+    }
+}
@@ -0,0 +1,11 @@
+CREATE TABLE email_outbox (
+    id           BIGSERIAL PRIMARY KEY,
+    recipient    VARCHAR(100) NOT NULL,
+    type         VARCHAR(32)  NOT NULL,
+    payload      VARCHAR(255),
+    attempts     INTEGER      NOT NULL DEFAULT 0,
+    available_at TIMESTAMP    NOT NULL DEFAULT now(),
+    created_at   TIMESTAMP    NOT NULL DEFAULT now()
+);
+
+CREATE INDEX email_outbox_available_at_idx ON email_outbox (available_at, id);
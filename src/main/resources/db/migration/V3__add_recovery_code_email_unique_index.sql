@@ -0,0 +1,7 @@
+-- Keep only the latest code per email before enforcing one code per email.
+DELETE FROM recovery_code older
+USING recovery_code newer
+WHERE older.email = newer.email
+  AND older.id < newer.id;
+
+CREATE UNIQUE INDEX recovery_code_email_idx ON recovery_code (email);
@@ -0,0 +1,10 @@
+CREATE TABLE email_dead_letter (
+    id           BIGSERIAL PRIMARY KEY,
+    recipient    VARCHAR(100) NOT NULL,
+    subject      VARCHAR(255) NOT NULL,
+    html_content TEXT         NOT NULL,
+    text_content TEXT,
+    error        VARCHAR(255),
+    attempts     INTEGER      NOT NULL DEFAULT 0,
+    created_at   TIMESTAMP    NOT NULL DEFAULT now()
+);
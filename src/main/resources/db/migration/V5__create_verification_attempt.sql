@@ -0,0 +1,10 @@
+CREATE TABLE verification_attempt (
+    email             VARCHAR(320) PRIMARY KEY,
+    failures          INTEGER      NOT NULL,
+    window_started_at TIMESTAMP    NOT NULL,
+    locked_until      TIMESTAMP,
+    expires_at        TIMESTAMP    NOT NULL,
+    updated_at        TIMESTAMP    NOT NULL DEFAULT now()
+);
+
+CREATE INDEX verification_attempt_expires_at_idx ON verification_attempt (expires_at);
@@ -0,0 +1,2 @@
+-- A parked email is claimed for a lease while it is sent again, instead of staying locked until it is settled.
+ALTER TABLE email_dead_letter ADD COLUMN claimed_until TIMESTAMP;
@@ -0,0 +1,22 @@
+-- The users table is written by the registration service and has no column that orders new rows, so a trigger
+-- logs every new or changed email here for the user existence index to read incrementally.
+CREATE TABLE user_registration (
+    id            BIGSERIAL    PRIMARY KEY,
+    email         VARCHAR(100) NOT NULL,
+    registered_at TIMESTAMPTZ  NOT NULL DEFAULT clock_timestamp()
+);
+
+CREATE INDEX user_registration_registered_at_idx ON user_registration (registered_at);
+
+CREATE FUNCTION log_user_registration() RETURNS trigger AS $$
+BEGIN
+    IF NEW.email IS NOT NULL THEN
+        INSERT INTO user_registration (email) VALUES (NEW.email);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER users_log_registration
+    AFTER INSERT OR UPDATE OF email ON users
+    FOR EACH ROW EXECUTE FUNCTION log_user_registration();
@@ -0,0 +1,118 @@
+package com.empoweru.empowerupasswordrecoveryservice.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditJournalTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-07-01T12:00:00Z"), ZoneOffset.UTC);
+    private static final long NOW = CLOCK.millis();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackEveryEventInOrder() throws Exception {
+        try (AuditJournal journal = new AuditJournal(directory, 1 << 20, 1024, 64, true, CLOCK)) {
+            journal.record(AuditEventType.CODE_ISSUED, "a@x.com", "203.0.113.7", null);
+            journal.record(AuditEventType.CODE_REJECTED, "a@x.com", "2001:db8::1", "invalid");
+            journal.record(AuditEventType.PASSWORD_CHANGED, "ação@x.com", null, null);
+        }
+
+        try (Stream<AuditEvent> events = AuditJournalReader.readAll(directory)) {
+            assertEquals(List.of(
+                    new AuditEvent(NOW, AuditEventType.CODE_ISSUED, "a@x.com", "203.0.113.7", null),
+                    new AuditEvent(NOW, AuditEventType.CODE_REJECTED, "a@x.com", "2001:db8::1", "invalid"),
+                    new AuditEvent(NOW, AuditEventType.PASSWORD_CHANGED, "ação@x.com", null, null)), events.toList());
+        }
+    }
+
+    @Test
+    void rollsOverToANewSegmentBySizeAndOnEveryStart() throws Exception {
+        int segmentSize = 4096;
+        try (AuditJournal journal = new AuditJournal(directory, segmentSize, 4096, 100, false, CLOCK)) {
+            for (int i = 0; i < 1000; i++) {
+                journal.record(AuditEventType.CODE_ISSUED, "user" + i + "@x.com", null, null);
+            }
+        }
+        List<Path> segments = AuditJournalReader.segments(directory);
+        assertTrue(segments.size() > 5, "1000 events should not fit in a few 4 KiB segments");
+        for (Path segment : segments) {
+            assertTrue(Files.size(segment) <= segmentSize);
+        }
+
+        try (AuditJournal journal = new AuditJournal(directory, segmentSize, 16, 16, false, CLOCK)) {
+            journal.record(AuditEventType.CODE_ISSUED, "after-restart@x.com", null, null);
+        }
+        List<Path> afterRestart = AuditJournalReader.segments(directory);
+        assertEquals(segments.size() + 1, afterRestart.size());
+        assertEquals(segments.size() + 1, AuditJournal.sequenceOf(afterRestart.get(afterRestart.size() - 1)));
+
+        try (Stream<AuditEvent> events = AuditJournalReader.readAll(directory)) {
+            List<String> emails = events.map(AuditEvent::email).toList();
+            assertEquals(1001, emails.size());
+            assertEquals("user0@x.com", emails.get(0));
+            assertEquals("user999@x.com", emails.get(999));
+            assertEquals("after-restart@x.com", emails.get(1000));
+        }
+    }
+
+    @Test
+    void stopsAtATornRecordAndReportsTheUnreadBytes() throws Exception {
+        try (AuditJournal journal = new AuditJournal(directory, 1 << 20, 1024, 64, false, CLOCK)) {
+            journal.record(AuditEventType.CODE_ISSUED, "a@x.com", null, null);
+            journal.record(AuditEventType.CODE_ISSUED, "b@x.com", null, null);
+        }
+        Path segment = AuditJournalReader.segments(directory).get(0);
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        try (Stream<AuditEvent> events = AuditJournalReader.read(segment)) {
+            assertEquals(List.of("a@x.com"), events.map(AuditEvent::email).toList());
+        }
+        StringWriter output = new StringWriter();
+        long unread = AuditJournalReader.export(segment, output);
+        assertTrue(unread > 0);
+        assertEquals("{\"timestamp\":\"2024-07-01T12:00:00Z\",\"type\":\"CODE_ISSUED\",\"email\":\"a@x.com\",\"client\":null,\"detail\":null}\n",
+                output.toString());
+    }
+
+    @Test
+    void dropsEventsInsteadOfBlockingOnceClosed() throws Exception {
+        AuditJournal journal = new AuditJournal(directory, 1 << 20, 16, 16, false, CLOCK);
+        journal.record(AuditEventType.CODE_ISSUED, "a@x.com", null, null);
+        journal.close();
+        journal.record(AuditEventType.CODE_ISSUED, "b@x.com", null, null);
+
+        assertEquals(1, journal.getWrittenCount());
+        assertEquals(1, journal.getDroppedCount());
+    }
+
+    @Test
+    void cutsOverlongFields() throws IOException {
+        String email = "x".repeat(AuditRecordFormat.MAX_FIELD_CHARS * 2) + "@x.com";
+        try (AuditJournal journal = new AuditJournal(directory, 1 << 20, 16, 16, false, CLOCK)) {
+            journal.record(AuditEventType.CODE_REJECTED, email, null, "invalid");
+        }
+        try (Stream<AuditEvent> events = AuditJournalReader.readAll(directory)) {
+            assertEquals(email.substring(0, AuditRecordFormat.MAX_FIELD_CHARS), events.findFirst().orElseThrow().email());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.empoweru.empowerupasswordrecoveryservice.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EmailListReaderTest {
+
+    @Test
+    void readsNdjsonStringsAndObjects() throws IOException {
+        List<EmailListReader.Entry> entries = readAll("""
+                "a@x.com"
+                {"email": " b@x.com ", "name": "B"}
+
+                not json
+                {"name": "C"}
+                "no-at-sign"
+                """, EmailListFormat.NDJSON);
+
+        assertEquals(List.of(
+                new EmailListReader.Entry(1, "a@x.com"),
+                new EmailListReader.Entry(2, "b@x.com"),
+                new EmailListReader.Entry(4, null),
+                new EmailListReader.Entry(5, null),
+                new EmailListReader.Entry(6, null)), entries);
+    }
+
+    @Test
+    void readsTheFirstCsvColumnAndSkipsTheHeader() throws IOException {
+        List<EmailListReader.Entry> entries = readAll("""
+                Email,Name
+                a@x.com,A
+                "b@x.com","B, Jr."
+                ,C
+                email
+                """, EmailListFormat.CSV);
+
+        assertEquals(List.of(
+                new EmailListReader.Entry(2, "a@x.com"),
+                new EmailListReader.Entry(3, "b@x.com"),
+                new EmailListReader.Entry(4, null),
+                new EmailListReader.Entry(5, null)), entries);
+    }
+
+    @Test
+    void selectsTheFormatFromTheContentType() {
+        assertEquals(EmailListFormat.CSV, EmailListFormat.fromContentType("text/csv; charset=utf-8"));
+        assertEquals(EmailListFormat.NDJSON, EmailListFormat.fromContentType("application/x-ndjson"));
+        assertEquals(EmailListFormat.NDJSON, EmailListFormat.fromContentType(null));
+    }
+
+    private static List<EmailListReader.Entry> readAll(String input, EmailListFormat format) throws IOException {
+        List<EmailListReader.Entry> entries = new ArrayList<>();
+        try (EmailListReader reader = new EmailListReader(new StringReader(input), format, new ObjectMapper())) {
+            EmailListReader.Entry entry;
+            while ((entry = reader.next()) != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,76 @@
+package com.empoweru.empowerupasswordrecoveryservice.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    private static final int USERS = 100_000;
+    private static final int PROBES = 200_000;
+
+    @Test
+    void addedEmailsAreAlwaysFound() {
+        BloomFilter filter = BloomFilter.create(USERS, 0.01);
+        for (int i = 0; i < USERS; i++) {
+            filter.put("user" + i + "@empoweru.test");
+        }
+
+        for (int i = 0; i < USERS; i++) {
+            assertTrue(filter.mightContain("user" + i + "@empoweru.test"));
+        }
+    }
+
+    @Test
+    void measuredFalsePositiveRateStaysNearTarget() {
+        BloomFilter filter = BloomFilter.create(USERS, 0.01);
+        for (int i = 0; i < USERS; i++) {
+            filter.put("user" + i + "@empoweru.test");
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < PROBES; i++) {
+            if (filter.mightContain("attacker" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+        double measured = (double) falsePositives / PROBES;
+
+        assertTrue(measured < 0.015, "measured false-positive rate " + measured);
+        assertTrue(Math.abs(measured - filter.estimatedFalsePositiveRate()) < 0.005,
+                "measured " + measured + ", estimated " + filter.estimatedFalsePositiveRate());
+    }
+
+    @Test
+    void emailsCraftedToShareAHashCodeAreNotAllFound() {
+        // "Aa" and "BB" have the same String.hashCode, so every combination of them does too.
+        String[] colliding = new String[1 << 10];
+        for (int i = 0; i < colliding.length; i++) {
+            StringBuilder email = new StringBuilder();
+            for (int bit = 0; bit < 10; bit++) {
+                email.append((i >> bit & 1) == 0 ? "Aa" : "BB");
+            }
+            colliding[i] = email.append("@x.com").toString();
+        }
+        BloomFilter filter = BloomFilter.create(1024, 0.01);
+        filter.put(colliding[0]);
+
+        int found = 0;
+        for (int i = 1; i < colliding.length; i++) {
+            assertEquals(colliding[0].hashCode(), colliding[i].hashCode());
+            if (filter.mightContain(colliding[i])) {
+                found++;
+            }
+        }
+        assertTrue(found < 10, found + " colliding emails found");
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = BloomFilter.create(1024, 0.01);
+
+        assertFalse(filter.mightContain("a@x.com"));
+    }
+}
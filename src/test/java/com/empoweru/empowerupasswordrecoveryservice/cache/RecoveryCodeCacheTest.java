@@ -0,0 +1,102 @@
+package com.empoweru.empowerupasswordrecoveryservice.cache;
+
+import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecoveryCodeCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(TimeUnit.NANOSECONDS.toMillis(nanos.get()));
+        }
+    };
+
+    private final Map<String, RecoveryCode> database = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final RecoveryCodeCache cache = new RecoveryCodeCache(email -> {
+        loads.incrementAndGet();
+        return Optional.ofNullable(database.get(email));
+    }, 100, clock, nanos::get);
+
+    @Test
+    void repeatedReadsAreServedFromTheCache() {
+        database.put("a@x.com", code("a@x.com", "123456", 600_000));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("123456", cache.get("a@x.com").orElseThrow().getCode());
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(4, cache.getStatistics().hitCount());
+        assertEquals(1, cache.getStatistics().missCount());
+    }
+
+    @Test
+    void entriesExpireAtTheCodeExpiryDate() {
+        cache.put(code("a@x.com", "123456", 600_000));
+
+        advanceMillis(599_999);
+        assertTrue(cache.get("a@x.com").isPresent());
+        assertEquals(0, loads.get());
+
+        advanceMillis(1);
+        assertTrue(cache.get("a@x.com").isEmpty());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidatedEntriesAreReloaded() {
+        cache.put(code("a@x.com", "123456", 600_000));
+        database.put("a@x.com", code("a@x.com", "654321", 600_000));
+
+        cache.invalidate("a@x.com");
+
+        assertEquals("654321", cache.get("a@x.com").orElseThrow().getCode());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void reloadReplacesAStaleEntry() {
+        cache.put(code("a@x.com", "123456", 600_000));
+        database.put("a@x.com", code("a@x.com", "654321", 600_000));
+
+        assertEquals("654321", cache.reload("a@x.com").orElseThrow().getCode());
+        assertEquals("654321", cache.getIfPresent("a@x.com").orElseThrow().getCode());
+        assertEquals(1, loads.get());
+    }
+
+    private RecoveryCode code(String email, String code, long validForMillis) {
+        return new RecoveryCode(null, code, email, new Timestamp(clock.millis() + validForMillis));
+    }
+
+    private void advanceMillis(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,86 @@
+package com.empoweru.empowerupasswordrecoveryservice.codes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefilledCodeGeneratorTest {
+
+    private final AtomicLong drawn = new AtomicLong();
+    private final CodeGenerator source = () -> String.valueOf(drawn.incrementAndGet());
+
+    @Test
+    void fillsTheRingInTheBackground() throws Exception {
+        try (PrefilledCodeGenerator generator = new PrefilledCodeGenerator(source, 100)) {
+            assertEquals(128, generator.getCapacity());
+            waitUntil(() -> generator.getAvailable() == 128);
+
+            assertEquals("1", generator.next());
+            assertEquals("2", generator.next());
+            assertEquals(2, generator.getPrefilledTakeCount());
+            assertEquals(0, generator.getInlineDrawCount());
+        }
+    }
+
+    @Test
+    void concurrentCallersNeverShareACode() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService callers = Executors.newFixedThreadPool(threads);
+        try (PrefilledCodeGenerator generator = new PrefilledCodeGenerator(source, 64)) {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(callers.submit(() -> {
+                    List<String> codes = new ArrayList<>(perThread);
+                    for (int j = 0; j < perThread; j++) {
+                        codes.add(generator.next());
+                    }
+                    return codes;
+                }));
+            }
+            Set<String> codes = new HashSet<>();
+            for (Future<List<String>> result : results) {
+                codes.addAll(result.get(30, TimeUnit.SECONDS));
+            }
+
+            assertEquals(threads * perThread, codes.size());
+            assertEquals(threads * perThread, generator.getPrefilledTakeCount() + generator.getInlineDrawCount());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void drawsInlineOnceTheRefillThreadIsStopped() throws Exception {
+        PrefilledCodeGenerator generator = new PrefilledCodeGenerator(source, 4);
+        waitUntil(() -> generator.getAvailable() == 4);
+        generator.close();
+
+        for (int i = 0; i < 10; i++) {
+            generator.next();
+        }
+        assertEquals(4, generator.getPrefilledTakeCount());
+        assertEquals(6, generator.getInlineDrawCount());
+        assertTrue(drawn.get() >= 10);
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the ring to fill");
+            Thread.sleep(5);
+        }
+    }
+}
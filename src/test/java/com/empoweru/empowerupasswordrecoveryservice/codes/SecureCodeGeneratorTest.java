@@ -0,0 +1,46 @@
+package com.empoweru.empowerupasswordrecoveryservice.codes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SecureCodeGeneratorTest {
+
+    private static final int DRAWS = 1_000_000;
+
+    @Test
+    void codesHaveTheConfiguredLengthAndAlphabet() {
+        SecureCodeGenerator generator = new SecureCodeGenerator(8, "ABCDEFGHJKLMNPQRSTUVWXYZ23456789");
+        for (int i = 0; i < 1000; i++) {
+            String code = generator.next();
+            assertEquals(8, code.length());
+            assertTrue(code.chars().allMatch(c -> "ABCDEFGHJKLMNPQRSTUVWXYZ23456789".indexOf(c) >= 0), code);
+        }
+    }
+
+    @Test
+    void everySymbolIsEquallyLikely() {
+        SecureCodeGenerator generator = new SecureCodeGenerator(1, "0123456789");
+        int[] counts = new int[10];
+        for (int i = 0; i < DRAWS; i++) {
+            counts[generator.next().charAt(0) - '0']++;
+        }
+        double expected = DRAWS / 10.0;
+        double chiSquare = 0;
+        for (int count : counts) {
+            chiSquare += (count - expected) * (count - expected) / expected;
+        }
+        // The 0.01% critical value for 9 degrees of freedom. Taking each byte modulo 10 instead of rejecting the
+        // bytes above 250 favours 0 to 5 and scores around 370 here.
+        assertTrue(chiSquare < 33.7, "chi-square " + chiSquare);
+    }
+
+    @Test
+    void rejectsInvalidFormats() {
+        assertThrows(IllegalArgumentException.class, () -> new SecureCodeGenerator(0, "0123456789"));
+        assertThrows(IllegalArgumentException.class, () -> new SecureCodeGenerator(6, "0"));
+        assertThrows(IllegalArgumentException.class, () -> new SecureCodeGenerator(6, "00123"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import jakarta.mail.MessagingException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchingEmailDispatcherTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private SmtpStubServer server;
+    private SmtpTransportPool pool;
+    private EmailSendExecutor executor;
+    private SmtpCircuitBreaker circuitBreaker;
+    private final List<OutgoingEmail> parked = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new SmtpStubServer();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.close();
+        pool.close();
+        server.close();
+    }
+
+    @Test
+    void coalescesBurstIntoFewBatches() throws Exception {
+        BatchingEmailDispatcher dispatcher = newDispatcher(50);
+
+        for (int i = 0; i < 500; i++) {
+            dispatcher.enqueue(new OutgoingEmail("user" + i + "@empoweru.test", "Your code is: 123456", "<b>123456</b>"));
+        }
+        dispatcher.close();
+        executor.close();
+
+        EmailBatchStatistics.Snapshot statistics = dispatcher.getStatistics().snapshot();
+        assertEquals(500, server.getMessageCount());
+        assertEquals(500, statistics.messages());
+        assertEquals(0, statistics.failures());
+        assertTrue(statistics.batches() <= 20, "Expected at most 20 batches but got " + statistics.batches());
+        assertTrue(server.getConnectionCount() <= 4, "Expected at most 4 connections but got " + server.getConnectionCount());
+        assertEquals(500, stageTimerCount("email-queue-wait", "ok"));
+        assertEquals(500, stageTimerCount("smtp-send", "ok"));
+    }
+
+    @Test
+    void sendsSynchronouslyOutsideTheQueue() throws Exception {
+        BatchingEmailDispatcher dispatcher = newDispatcher(50);
+
+        dispatcher.send(new OutgoingEmail("user@empoweru.test", "Password Recovered Successfully!", "<b>ok</b>"));
+
+        assertEquals(1, server.getMessageCount());
+        assertEquals(0, dispatcher.getQueueSize());
+        dispatcher.close();
+    }
+
+    @Test
+    void retriesFailedConnectionsAfterBackoff() throws Exception {
+        BatchingEmailDispatcher dispatcher = newDispatcher(50, 3, 5);
+        server.refuseConnections(2);
+
+        dispatcher.send(new OutgoingEmail("user@empoweru.test", "Your code is: 123456", "<b>123456</b>"));
+
+        assertEquals(1, server.getMessageCount());
+        assertEquals(3, server.getConnectionCount());
+        assertEquals(SmtpCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        dispatcher.close();
+    }
+
+    @Test
+    void failsFastAndParksQueuedEmailsOnceTheBreakerOpens() throws Exception {
+        BatchingEmailDispatcher dispatcher = newDispatcher(50, 2, 2);
+        server.refuseConnections(Integer.MAX_VALUE);
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.enqueue(new OutgoingEmail("user" + i + "@empoweru.test", "Your code is: 123456", "<b>123456</b>"));
+        }
+        dispatcher.close();
+        executor.close();
+
+        assertEquals(SmtpCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(5, parked.size());
+        assertEquals(5, dispatcher.getParkedCount());
+        int connections = server.getConnectionCount();
+
+        BatchingEmailDispatcher.Delivery delivery = dispatcher.deliver(List.of(
+                new OutgoingEmail("user@empoweru.test", "Your code is: 123456", "<b>123456</b>")));
+        assertEquals(1, delivery.deferred().size());
+        assertEquals(connections, server.getConnectionCount());
+        assertEquals(1, circuitBreaker.getShortCircuitedCount());
+    }
+
+    @Test
+    void timesOutOnStalledServer() throws Exception {
+        BatchingEmailDispatcher dispatcher = newDispatcher(50, 1, 5);
+        server.setStalled(true);
+
+        long start = System.nanoTime();
+        assertThrows(MessagingException.class,
+                () -> dispatcher.send(new OutgoingEmail("user@empoweru.test", "Your code is: 123456", "<b>123456</b>")));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toSeconds() < 5, "Expected the send to time out");
+        assertEquals(0, server.getMessageCount());
+        server.setStalled(false);
+        dispatcher.close();
+    }
+
+    private BatchingEmailDispatcher newDispatcher(int maxBatchSize) {
+        return newDispatcher(maxBatchSize, 3, 5);
+    }
+
+    private BatchingEmailDispatcher newDispatcher(int maxBatchSize, int maxAttempts, int failureThreshold) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(server.getPort());
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "500");
+        mailSender.getJavaMailProperties().put("mail.smtp.timeout", "500");
+        pool = new SmtpTransportPool(mailSender.getSession(), "localhost", server.getPort(), null, null,
+                4, Duration.ofMinutes(1), Duration.ofMinutes(5), Duration.ofSeconds(10), Duration.ofSeconds(5));
+        executor = new EmailSendExecutor(4, true, Duration.ofSeconds(30));
+        circuitBreaker = new SmtpCircuitBreaker(failureThreshold, Duration.ofMinutes(1));
+        SmtpRouter router = new SmtpRouter(List.of(new SmtpProvider("stub", 1, pool, circuitBreaker, null)));
+        return new BatchingEmailDispatcher(mailSender, router, executor, maxBatchSize, Duration.ofMillis(200),
+                1000, OverflowPolicy.REJECT, maxAttempts, new RetryBackoff(Duration.ofMillis(10), Duration.ofMillis(50)),
+                Duration.ZERO, (emails, reason) -> parked.addAll(emails), new RecoveryMetrics(registry, false));
+    }
+
+    private long stageTimerCount(String stage, String outcome) {
+        return registry.get(RecoveryMetrics.STAGE_TIMER).tag("stage", stage).tag("outcome", outcome).timer().count();
+    }
+}
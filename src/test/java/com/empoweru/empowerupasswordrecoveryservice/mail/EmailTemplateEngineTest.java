@@ -0,0 +1,54 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailTemplateEngineTest {
+
+    private EmailTemplateEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        engine = EmailTemplateEngine.load(new PathMatchingResourcePatternResolver(), "classpath:templates/email");
+    }
+
+    @Test
+    void rendersDefaultVariantWithPlainTextAlternative() {
+        OutgoingEmail email = engine.render("recovery-code", null, "user@empoweru.test", Map.of("code", "123456"));
+
+        assertEquals("user@empoweru.test", email.to());
+        assertEquals("Your code is: 123456", email.subject());
+        assertTrue(email.htmlContent().contains("<b>123456</b>"));
+        assertTrue(email.textContent().contains("Your password reset code is: 123456"));
+    }
+
+    @Test
+    void fallsBackToVariantInSameLanguageAndThenToDefault() {
+        Map<String, String> values = Map.of("code", "123456");
+
+        assertEquals("Seu código é: 123456", engine.render("recovery-code", Locale.forLanguageTag("pt-BR"), "u", values).subject());
+        assertEquals("Seu código é: 123456", engine.render("recovery-code", Locale.forLanguageTag("pt-PT"), "u", values).subject());
+        assertEquals("Your code is: 123456", engine.render("recovery-code", Locale.GERMAN, "u", values).subject());
+    }
+
+    @Test
+    void escapesValuesInHtmlOnly() {
+        OutgoingEmail email = engine.render("recovery-code", null, "u", Map.of("code", "<a&b>"));
+
+        assertEquals("Your code is: <a&b>", email.subject());
+        assertTrue(email.htmlContent().contains("<b>&lt;a&amp;b&gt;</b>"));
+    }
+
+    @Test
+    void rejectsUnknownTemplate() {
+        assertThrows(IllegalArgumentException.class, () -> engine.render("missing", null, "u", Map.of()));
+    }
+}
@@ -0,0 +1,78 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmtpCircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        SmtpCircuitBreaker breaker = new SmtpCircuitBreaker(3, Duration.ofMinutes(1));
+
+        fail(breaker, 2);
+        breaker.recordSuccess();
+        fail(breaker, 2);
+        assertEquals(SmtpCircuitBreaker.State.CLOSED, breaker.getState());
+
+        fail(breaker, 1);
+        assertEquals(SmtpCircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getShortCircuitedCount());
+        assertEquals(1, breaker.getOpenedCount());
+    }
+
+    @Test
+    void letsOneTrialThroughAfterTheOpenDuration() throws InterruptedException {
+        SmtpCircuitBreaker breaker = new SmtpCircuitBreaker(1, Duration.ofMillis(20));
+        fail(breaker, 1);
+        Thread.sleep(30);
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(SmtpCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.recordSuccess();
+        assertEquals(SmtpCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void reopensWhenTheTrialFails() throws InterruptedException {
+        SmtpCircuitBreaker breaker = new SmtpCircuitBreaker(1, Duration.ofMillis(20));
+        fail(breaker, 1);
+        Thread.sleep(30);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.recordFailure();
+
+        assertEquals(SmtpCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(2, breaker.getOpenedCount());
+    }
+
+    @Test
+    void releasedTrialLetsAnotherOneThrough() throws InterruptedException {
+        SmtpCircuitBreaker breaker = new SmtpCircuitBreaker(1, Duration.ofMillis(20));
+        fail(breaker, 1);
+        Thread.sleep(30);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.release();
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(SmtpCircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    private static void fail(SmtpCircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.recordFailure();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics;
+import com.empoweru.empowerupasswordrecoveryservice.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmtpRouterTest {
+
+    private final List<SmtpStubServer> servers = new ArrayList<>();
+    private final List<SmtpProvider> providers = new ArrayList<>();
+    private final JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        providers.forEach(SmtpProvider::close);
+        for (SmtpStubServer server : servers) {
+            server.close();
+        }
+    }
+
+    @Test
+    void splitsEmailsByWeight() throws Exception {
+        SmtpRouter router = new SmtpRouter(List.of(provider("heavy", 3, null), provider("light", 1, null)));
+
+        int heavy = 0;
+        for (int i = 0; i < 4000; i++) {
+            SmtpRouter.Route route = router.route(1, Set.of());
+            route.provider().getCircuitBreaker().recordSuccess();
+            if (route.provider().getName().equals("heavy")) {
+                heavy++;
+            }
+        }
+
+        assertTrue(heavy > 2800 && heavy < 3200, "Expected about 3000 routes to the heavy provider but got " + heavy);
+    }
+
+    @Test
+    void limitsEachProviderToItsQuota() throws Exception {
+        SmtpRouter router = new SmtpRouter(List.of(provider("limited", 1, new RateLimiter(5, Duration.ofHours(1)))));
+
+        SmtpRouter.Route first = router.route(8, Set.of());
+        first.provider().getCircuitBreaker().recordSuccess();
+        SmtpRouter.Route second = router.route(3, Set.of());
+
+        assertEquals(5, first.messages());
+        assertNull(second.provider());
+        assertTrue(second.retryAfter().compareTo(Duration.ofMinutes(11)) > 0);
+    }
+
+    @Test
+    void failsOverToAHealthyProviderAndReadmitsTheFailedOneOnceItRecovers() throws Exception {
+        SmtpProvider failing = provider("failing", 1, null);
+        SmtpProvider healthy = provider("healthy", 1, null);
+        BatchingEmailDispatcher dispatcher = dispatcher(new SmtpRouter(List.of(failing, healthy)), Duration.ZERO);
+        servers.get(0).refuseConnections(Integer.MAX_VALUE);
+
+        for (int i = 0; i < 20; i++) {
+            dispatcher.send(email(i));
+        }
+        assertEquals(0, servers.get(0).getMessageCount());
+        assertEquals(20, servers.get(1).getMessageCount());
+        assertEquals(SmtpCircuitBreaker.State.OPEN, failing.getCircuitBreaker().getState());
+
+        servers.get(0).refuseConnections(0);
+        Thread.sleep(250);
+        for (int i = 0; i < 40; i++) {
+            dispatcher.send(email(i));
+        }
+        assertEquals(SmtpCircuitBreaker.State.CLOSED, failing.getCircuitBreaker().getState());
+        assertTrue(servers.get(0).getMessageCount() > 0, "Expected the recovered provider to get emails again");
+        dispatcher.close();
+    }
+
+    @Test
+    void favoursTheFasterProvider() throws Exception {
+        SmtpProvider slow = provider("slow", 1, null);
+        SmtpProvider fast = provider("fast", 1, null);
+        BatchingEmailDispatcher dispatcher = dispatcher(new SmtpRouter(List.of(slow, fast)), Duration.ZERO);
+        servers.get(0).setResponseDelay(Duration.ofMillis(20));
+
+        for (int i = 0; i < 60; i++) {
+            dispatcher.send(email(i));
+        }
+
+        assertTrue(slow.getLatencyNanos() > fast.getLatencyNanos());
+        assertTrue(servers.get(1).getMessageCount() > 2 * servers.get(0).getMessageCount(),
+                "Expected most emails to go to the fast provider but got " + servers.get(0).getMessageCount()
+                        + " slow and " + servers.get(1).getMessageCount() + " fast");
+        dispatcher.close();
+    }
+
+    @Test
+    void splitsABatchAcrossProviderQuotas() throws Exception {
+        SmtpProvider first = provider("first", 1, new RateLimiter(4, Duration.ofHours(1)));
+        SmtpProvider second = provider("second", 1, new RateLimiter(4, Duration.ofHours(1)));
+        BatchingEmailDispatcher dispatcher = dispatcher(new SmtpRouter(List.of(first, second)), Duration.ZERO);
+
+        List<OutgoingEmail> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(email(i));
+        }
+        BatchingEmailDispatcher.Delivery delivery = dispatcher.deliver(batch);
+
+        assertEquals(4, servers.get(0).getMessageCount());
+        assertEquals(4, servers.get(1).getMessageCount());
+        assertEquals(2, delivery.deferred().size());
+        dispatcher.close();
+    }
+
+    private SmtpProvider provider(String name, int weight, RateLimiter quota) throws Exception {
+        SmtpStubServer server = new SmtpStubServer();
+        servers.add(server);
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "500");
+        mailSender.getJavaMailProperties().put("mail.smtp.timeout", "500");
+        SmtpTransportPool pool = new SmtpTransportPool(mailSender.getSession(), "localhost", server.getPort(), null, null,
+                2, Duration.ofMinutes(1), Duration.ofMinutes(5), Duration.ofSeconds(10), Duration.ofSeconds(5));
+        SmtpProvider provider = new SmtpProvider(name, weight, pool, new SmtpCircuitBreaker(2, Duration.ofMillis(200)), quota);
+        providers.add(provider);
+        return provider;
+    }
+
+    private BatchingEmailDispatcher dispatcher(SmtpRouter router, Duration maxQuotaWait) {
+        return new BatchingEmailDispatcher(mailSender, router, Runnable::run, 50, Duration.ofMillis(200), 100,
+                OverflowPolicy.REJECT, 3, new RetryBackoff(Duration.ofMillis(10), Duration.ofMillis(50)), maxQuotaWait,
+                (emails, reason) -> { }, new RecoveryMetrics(new SimpleMeterRegistry(), false));
+    }
+
+    private static OutgoingEmail email(int i) {
+        return new OutgoingEmail("user" + i + "@empoweru.test", "Your code is: 123456", "<b>123456</b>");
+    }
+}
@@ -0,0 +1,171 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal in-process SMTP server for tests.
+ * Accepts every command without authentication and counts connections and received messages.
+ * It can also refuse connections, stall or answer slowly, to test how clients handle a failing server.
+ */
+public class SmtpStubServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<Socket> clients = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger messages = new AtomicInteger();
+    private final AtomicInteger noops = new AtomicInteger();
+    private final AtomicInteger connectionsToRefuse = new AtomicInteger();
+    private volatile boolean stalled;
+    private volatile long responseDelayMillis;
+
+    public SmtpStubServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor.submit(this::acceptLoop);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    public int getMessageCount() {
+        return messages.get();
+    }
+
+    public int getNoopCount() {
+        return noops.get();
+    }
+
+    /**
+     * Answers the next connections with {@code 421} and closes them, as a server that is shutting down does.
+     *
+     * @param count The number of connections to refuse.
+     */
+    public void refuseConnections(int count) {
+        connectionsToRefuse.set(count);
+    }
+
+    /**
+     * While stalled, new connections are accepted but never greeted, as by a server that hangs.
+     */
+    public void setStalled(boolean stalled) {
+        this.stalled = stalled;
+    }
+
+    /**
+     * Delays every reply, as a slow or overloaded server does.
+     */
+    public void setResponseDelay(Duration delay) {
+        this.responseDelayMillis = delay.toMillis();
+    }
+
+    /**
+     * Drops every open client connection, simulating a server-side idle timeout.
+     */
+    public void dropConnections() throws IOException {
+        for (Socket client : clients) {
+            client.close();
+        }
+        clients.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        dropConnections();
+        executor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                connections.incrementAndGet();
+                clients.add(client);
+                executor.submit(() -> handle(client));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII))) {
+            OutputStream out = client.getOutputStream();
+            while (stalled) {
+                Thread.sleep(10);
+            }
+            if (connectionsToRefuse.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                reply(out, "421 localhost Service not available");
+                return;
+            }
+            reply(out, "220 localhost ESMTP stub");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-localhost\r\n250 OK");
+                    case "HELO", "MAIL", "RCPT", "RSET" -> reply(out, "250 OK");
+                    case "NOOP" -> {
+                        noops.incrementAndGet();
+                        reply(out, "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // Discard the message content.
+                        }
+                        messages.incrementAndGet();
+                        reply(out, "250 OK");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // Connection dropped by the client or by dropConnections().
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clients.remove(client);
+        }
+    }
+
+    private void reply(OutputStream out, String response) {
+        try {
+            if (responseDelayMillis > 0) {
+                Thread.sleep(responseDelayMillis);
+            }
+            out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException());
+        }
+    }
+}
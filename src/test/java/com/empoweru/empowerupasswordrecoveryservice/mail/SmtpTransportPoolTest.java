@@ -0,0 +1,91 @@
+package com.empoweru.empowerupasswordrecoveryservice.mail;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmtpTransportPoolTest {
+
+    private SmtpStubServer server;
+    private Session session;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new SmtpStubServer();
+        Properties props = new Properties();
+        props.put("mail.transport.protocol", "smtp");
+        session = Session.getInstance(props);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void reusesConnectionAcrossSends() throws Exception {
+        try (SmtpTransportPool pool = newPool(Duration.ofMinutes(1))) {
+            for (int i = 0; i < 5; i++) {
+                send(pool);
+            }
+
+            assertEquals(5, server.getMessageCount());
+            assertEquals(1, server.getConnectionCount());
+            assertEquals(1, pool.getCreatedCount());
+            assertEquals(5, pool.getLeaseCount());
+        }
+    }
+
+    @Test
+    void reconnectsWhenValidationDetectsDroppedConnection() throws Exception {
+        try (SmtpTransportPool pool = newPool(Duration.ZERO)) {
+            send(pool);
+            server.dropConnections();
+            send(pool);
+
+            assertEquals(2, server.getMessageCount());
+            assertEquals(2, server.getConnectionCount());
+            assertEquals(2, pool.getCreatedCount());
+        }
+    }
+
+    @Test
+    void validatesIdleConnectionWithNoop() throws Exception {
+        try (SmtpTransportPool pool = newPool(Duration.ZERO)) {
+            send(pool);
+            send(pool);
+
+            assertEquals(1, server.getConnectionCount());
+            assertTrue(server.getNoopCount() >= 1);
+        }
+    }
+
+    private SmtpTransportPool newPool(Duration validationInterval) {
+        return new SmtpTransportPool(session, "localhost", server.getPort(), null, null,
+                2, Duration.ofMinutes(1), Duration.ofMinutes(5), validationInterval, Duration.ofSeconds(5));
+    }
+
+    private void send(SmtpTransportPool pool) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("noreply@empoweru.test"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress("user@empoweru.test"));
+        message.setSubject("Your code is: 123456");
+        message.setText("123456");
+        message.saveChanges();
+
+        try (SmtpTransportPool.Lease lease = pool.lease()) {
+            lease.transport().sendMessage(message, message.getAllRecipients());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.empoweru.empowerupasswordrecoveryservice.metrics;
+
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecordingAnalyzer.Summary;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Function;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Outcome;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Stage;
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordingAnalyzerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void summarizesRecordedEventsPerStageAndOutcome() throws Exception {
+        Path file = directory.resolve("recovery.jfr");
+        try (Recording recording = new Recording(RecoveryFlightRecorder.settings())) {
+            recording.start();
+            for (int i = 0; i < 4; i++) {
+                RecoveryRequestEvent request = RecoveryRequestEvent.start(Function.VERIFY_CODE);
+                request.setEmail("user" + i + "@x.com");
+                RecoveryStageEvent hash = RecoveryStageEvent.start(Stage.PASSWORD_HASH, "user" + i + "@x.com");
+                hash.setQueueTime(Duration.ofMillis(2).toNanos());
+                Thread.sleep(i == 3 ? 20 : 1);
+                hash.finish(Outcome.OK);
+                request.finish(Outcome.OK);
+            }
+            RecoveryStageEvent rejected = RecoveryStageEvent.start(Stage.PASSWORD_HASH, "user@x.com");
+            rejected.finish(Outcome.REJECTED);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<Summary> summaries = RecordingAnalyzer.analyze(file);
+
+        assertEquals(List.of("verify-code ok", "password-hash ok", "password-hash rejected"),
+                summaries.stream().map(s -> s.name() + " " + s.outcome()).toList());
+        Summary hashed = summaries.get(1);
+        assertEquals(RecoveryStageEvent.NAME, hashed.event());
+        assertEquals(4, hashed.count());
+        assertEquals(Duration.ofMillis(2), hashed.meanQueueTime());
+        assertTrue(hashed.max().compareTo(Duration.ofMillis(20)) >= 0);
+        assertTrue(hashed.p50().compareTo(hashed.max()) < 0);
+        assertEquals(1, hashed.slow());
+        assertEquals(4, Arrays.stream(hashed.histogram()).sum());
+        assertEquals(1, hashed.histogram()[RecordingAnalyzer.bucketOf(hashed.max())]);
+        assertEquals(Duration.ZERO, summaries.get(0).meanQueueTime());
+
+        String report = RecordingAnalyzer.format(summaries);
+        assertTrue(report.contains("stage password-hash ok: count=4"), report);
+        assertTrue(report.contains("16-32 ms |"), report);
+    }
+
+    @Test
+    void bucketsDurationsByPowersOfTwoMilliseconds() {
+        assertEquals(0, RecordingAnalyzer.bucketOf(Duration.ofNanos(999_999)));
+        assertEquals(1, RecordingAnalyzer.bucketOf(Duration.ofMillis(1)));
+        assertEquals(2, RecordingAnalyzer.bucketOf(Duration.ofMillis(3)));
+        assertEquals(5, RecordingAnalyzer.bucketOf(Duration.ofMillis(20)));
+        assertEquals(RecordingAnalyzer.HISTOGRAM_BUCKETS - 1, RecordingAnalyzer.bucketOf(Duration.ofHours(1)));
+    }
+
+    @Test
+    void bucketsEmailsWithoutCaseOrSurroundingSpace() {
+        int bucket = RecoveryEvent.emailBucket("User@X.com");
+        assertEquals(bucket, RecoveryEvent.emailBucket(" user@x.com "));
+        assertTrue(bucket >= 0 && bucket < RecoveryEvent.EMAIL_BUCKETS);
+        assertEquals(-1, RecoveryEvent.emailBucket(null));
+    }
+}
@@ -0,0 +1,46 @@
+package com.empoweru.empowerupasswordrecoveryservice.metrics;
+
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Outcome;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics.Stage;
+import com.empoweru.empowerupasswordrecoveryservice.models.PasswordResetStatus;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecoveryMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RecoveryMetrics recoveryMetrics = new RecoveryMetrics(registry, true);
+
+    @Test
+    void recordsStagesByOutcomeWithPercentiles() {
+        for (int i = 1; i <= 100; i++) {
+            recoveryMetrics.recordStage(Stage.PASSWORD_HASH, Outcome.OK, i, TimeUnit.MILLISECONDS);
+        }
+        recoveryMetrics.recordStage(Stage.PASSWORD_RESET, Outcome.of(PasswordResetStatus.EXPIRED_CODE), 3, TimeUnit.MILLISECONDS);
+
+        Timer hash = registry.get(RecoveryMetrics.STAGE_TIMER).tag("stage", "password-hash").tag("outcome", "ok").timer();
+        assertEquals(100, hash.count());
+        ValueAtPercentile[] percentiles = hash.takeSnapshot().percentileValues();
+        assertEquals(3, percentiles.length);
+        assertEquals(0.99, percentiles[2].percentile());
+        assertTrue(percentiles[2].value(TimeUnit.MILLISECONDS) >= 90, "p99 was " + percentiles[2].value(TimeUnit.MILLISECONDS));
+        assertEquals(1, registry.get(RecoveryMetrics.STAGE_TIMER).tag("stage", "password-reset").tag("outcome", "expired").timer().count());
+    }
+
+    @Test
+    void recordsRequestsByFunctionAndOutcome() {
+        recoveryMetrics.recordRequest(RecoveryMetrics.Function.VERIFY_CODE, Outcome.INVALID, System.nanoTime());
+        recoveryMetrics.recordRequest(RecoveryMetrics.Function.SEND_CODE, Outcome.THROTTLED, System.nanoTime());
+        recoveryMetrics.logSummary();
+
+        assertEquals(1, registry.get(RecoveryMetrics.REQUEST_TIMER).tag("function", "verify-code").tag("outcome", "invalid").timer().count());
+        assertEquals(1, registry.get(RecoveryMetrics.REQUEST_TIMER).tag("function", "send-code").tag("outcome", "throttled").timer().count());
+    }
+}
@@ -0,0 +1,168 @@
+package com.empoweru.empowerupasswordrecoveryservice.ratelimit;
+
+import com.empoweru.empowerupasswordrecoveryservice.ratelimit.AttemptCounters.Attempts;
+import com.empoweru.empowerupasswordrecoveryservice.ratelimit.AttemptCounters.Change;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AttemptCountersTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(15);
+    private static final Duration LOCKOUT = Duration.ofMinutes(10);
+
+    private final AtomicLong millis = new AtomicLong(1_000_000);
+    private final AttemptCounters counters = new AttemptCounters(3, WINDOW, LOCKOUT, millis::get);
+
+    @Test
+    void locksOutAfterTheMaximumFailuresWithinTheWindow() {
+        assertTrue(counters.recordFailure("a@x.com").isZero());
+        assertTrue(counters.recordFailure("a@x.com").isZero());
+        assertEquals(LOCKOUT, counters.recordFailure("a@x.com"));
+        assertEquals(LOCKOUT, counters.lockedFor("a@x.com"));
+        assertTrue(counters.lockedFor("b@x.com").isZero());
+
+        millis.addAndGet(Duration.ofMinutes(4).toMillis());
+        assertEquals(Duration.ofMinutes(6), counters.recordFailure("a@x.com"));
+
+        millis.addAndGet(Duration.ofMinutes(6).toMillis());
+        assertTrue(counters.lockedFor("a@x.com").isZero());
+        assertTrue(counters.recordFailure("a@x.com").isZero(), "a lockout that has ended starts a new window");
+    }
+
+    @Test
+    void startsANewWindowOnceTheOldOnePassed() {
+        counters.recordFailure("a@x.com");
+        counters.recordFailure("a@x.com");
+
+        millis.addAndGet(WINDOW.toMillis());
+        assertTrue(counters.recordFailure("a@x.com").isZero());
+        assertTrue(counters.recordFailure("a@x.com").isZero());
+        assertEquals(LOCKOUT, counters.recordFailure("a@x.com"));
+    }
+
+    @Test
+    void resetClearsTheFailures() {
+        counters.recordFailure("a@x.com");
+        counters.recordFailure("a@x.com");
+        counters.reset("a@x.com");
+
+        assertTrue(counters.recordFailure("a@x.com").isZero());
+        assertTrue(counters.recordFailure("a@x.com").isZero());
+    }
+
+    @Test
+    void drainsEachChangedKeyOnceWithTheFailuresCountedSince() {
+        counters.recordFailure("a@x.com");
+        counters.recordFailure("a@x.com");
+        counters.recordFailure("b@x.com");
+        counters.reset("b@x.com");
+        counters.reset("unknown@x.com");
+
+        Map<String, Change> drained = new HashMap<>();
+        counters.drainChanged().forEach(change -> drained.put(change.key(), change));
+        assertEquals(2, drained.size());
+        assertEquals(new Change("a@x.com", new Attempts(2, 1_000_000, 0), 2, false), drained.get("a@x.com"));
+        assertEquals(new Change("b@x.com", null, 0, true), drained.get("b@x.com"));
+        assertTrue(counters.drainChanged().isEmpty());
+
+        counters.recordFailure("a@x.com");
+        assertEquals(1, counters.drainChanged().get(0).newFailures());
+    }
+
+    @Test
+    void changesHandedBackAreDrainedAgainWithTheLaterOnes() {
+        counters.recordFailure("a@x.com");
+        counters.recordFailure("b@x.com");
+        List<Change> failed = counters.drainChanged();
+
+        counters.recordFailure("a@x.com");
+        counters.reset("b@x.com");
+        counters.recordFailure("b@x.com");
+        counters.markChanged(failed);
+
+        Map<String, Change> drained = new HashMap<>();
+        counters.drainChanged().forEach(change -> drained.put(change.key(), change));
+        assertEquals(2, drained.get("a@x.com").newFailures());
+        assertEquals(1, drained.get("b@x.com").newFailures(), "failures before a reset are dropped");
+        assertTrue(drained.get("b@x.com").reset());
+    }
+
+    @Test
+    void attemptsWhileLockedOutAreNotCountedAsNewFailures() {
+        for (int i = 0; i < 3; i++) {
+            counters.recordFailure("a@x.com");
+        }
+        counters.drainChanged();
+
+        counters.recordFailure("a@x.com");
+        assertTrue(counters.drainChanged().isEmpty());
+    }
+
+    @Test
+    void mergeKeepsTheStricterCounterAndSkipsExpiredOnes() {
+        long now = millis.get();
+        counters.recordFailure("a@x.com");
+        counters.merge("a@x.com", new Attempts(2, now - 1000, 0));
+        assertEquals(LOCKOUT, counters.recordFailure("a@x.com"));
+
+        counters.merge("b@x.com", new Attempts(3, now - 1000, now + 5000));
+        assertEquals(Duration.ofSeconds(5), counters.lockedFor("b@x.com"));
+
+        counters.merge("c@x.com", new Attempts(3, now - WINDOW.toMillis(), now - 1));
+        assertEquals(2, counters.getTrackedKeyCount());
+        assertTrue(counters.drainChanged().stream().noneMatch(change -> change.key().equals("b@x.com")),
+                "merged counters are not written back");
+    }
+
+    @Test
+    void evictsCountersOnceTheirWindowAndLockoutPassed() {
+        counters.recordFailure("a@x.com");
+        for (int i = 0; i < 3; i++) {
+            counters.recordFailure("b@x.com");
+        }
+        assertEquals(1, counters.getLockedKeyCount());
+
+        millis.addAndGet(Duration.ofMinutes(14).toMillis());
+        counters.recordFailure("c@x.com");
+        assertEquals(0, counters.getLockedKeyCount());
+        assertEquals(0, counters.evictExpired());
+
+        millis.addAndGet(Duration.ofMinutes(1).toMillis());
+        assertEquals(2, counters.evictExpired());
+        assertEquals(1, counters.getTrackedKeyCount());
+    }
+
+    @Test
+    void countsConcurrentFailuresExactly() throws Exception {
+        AttemptCounters unlimited = new AttemptCounters(Integer.MAX_VALUE, WINDOW, LOCKOUT, millis::get);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        unlimited.recordFailure("a@x.com");
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(8000, unlimited.drainChanged().get(0).newFailures());
+    }
+}
@@ -0,0 +1,126 @@
+package com.empoweru.empowerupasswordrecoveryservice.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static final int THREADS = 16;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void allowsABurstAndThenRefillsOverThePeriod() {
+        RateLimiter limiter = new RateLimiter(3, Duration.ofMinutes(15), nanos::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("a@x.com").isZero());
+        }
+        assertEquals(Duration.ofMinutes(5), limiter.tryAcquire("a@x.com"));
+        assertTrue(limiter.tryAcquire("b@x.com").isZero());
+
+        nanos.addAndGet(Duration.ofMinutes(5).toNanos());
+        assertTrue(limiter.tryAcquire("a@x.com").isZero());
+        assertEquals(Duration.ofMinutes(5), limiter.tryAcquire("a@x.com"));
+    }
+
+    @Test
+    void grantsPartOfABatchUpToWhatIsAvailable() {
+        RateLimiter limiter = new RateLimiter(10, Duration.ofSeconds(10), nanos::get);
+
+        assertEquals(4, limiter.tryAcquireUpTo("smtp", 4));
+        assertEquals(6, limiter.tryAcquireUpTo("smtp", 50));
+        assertEquals(0, limiter.tryAcquireUpTo("smtp", 1));
+        assertEquals(Duration.ofSeconds(1), limiter.timeUntilAvailable("smtp"));
+
+        nanos.addAndGet(Duration.ofMillis(2500).toNanos());
+        assertEquals(Duration.ZERO, limiter.timeUntilAvailable("smtp"));
+        assertEquals(2, limiter.tryAcquireUpTo("smtp", 50));
+        assertTrue(limiter.tryAcquire("smtp").compareTo(Duration.ZERO) > 0);
+    }
+
+    @Test
+    void evictsOnlyRefilledBuckets() {
+        RateLimiter limiter = new RateLimiter(2, Duration.ofMinutes(1), nanos::get);
+        limiter.tryAcquire("a@x.com");
+        nanos.addAndGet(Duration.ofSeconds(20).toNanos());
+        limiter.tryAcquire("b@x.com");
+
+        nanos.addAndGet(Duration.ofSeconds(15).toNanos());
+        assertEquals(1, limiter.evictIdle());
+        assertEquals(1, limiter.getTrackedKeyCount());
+
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertEquals(1, limiter.evictIdle());
+        assertEquals(0, limiter.getTrackedKeyCount());
+    }
+
+    @Test
+    void grantsExactlyTheCapacityToConcurrentCallersOfOneKey() throws Exception {
+        RateLimiter limiter = new RateLimiter(1000, Duration.ofHours(1), nanos::get);
+
+        long granted = hammer(THREADS, 10_000, thread -> limiter.tryAcquire("victim@x.com").isZero());
+
+        assertEquals(1000, granted);
+        assertEquals((long) THREADS * 10_000 - 1000, limiter.getRejectedCount());
+    }
+
+    @Test
+    void grantsEachConcurrentCallerItsOwnKeysCapacity() throws Exception {
+        RateLimiter limiter = new RateLimiter(5, Duration.ofMinutes(1), nanos::get);
+        String[] clients = new String[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            clients[t] = "10.0.0." + t;
+        }
+
+        long granted = hammer(THREADS, 10_000, thread -> limiter.tryAcquire(clients[thread]).isZero());
+
+        assertEquals(THREADS * 5L, granted);
+        assertEquals(THREADS, limiter.getTrackedKeyCount());
+    }
+
+    private static long hammer(int threads, int perThread, Decision decision) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    long granted = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        if (decision.allowed(thread)) {
+                            granted++;
+                        }
+                    }
+                    return granted;
+                }));
+            }
+            start.countDown();
+            long granted = 0;
+            for (Future<Long> result : results) {
+                granted += result.get(60, TimeUnit.SECONDS);
+            }
+            return granted;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private interface Decision {
+        boolean allowed(int thread);
+    }
+}
@@ -0,0 +1,92 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingServiceTest {
+
+    @Test
+    void hashesOnThePoolAndRecordsMetrics() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (PasswordHashingService service = new PasswordHashingService(new SlowEncoder(null), registry, 2, 4, Duration.ofSeconds(5))) {
+            assertEquals("hashed:secret", service.hash("secret"));
+        }
+
+        assertEquals(1, registry.get("password.hash.duration").timer().count());
+        assertEquals(1, registry.get("password.hash.queue.wait").timer().count());
+    }
+
+    @Test
+    void rejectsPasswordsOnceTheQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try (PasswordHashingService service = new PasswordHashingService(new SlowEncoder(release), registry, 1, 1, Duration.ofSeconds(5))) {
+            List<Future<String>> accepted = new ArrayList<>();
+            accepted.add(callers.submit(() -> service.hash("first")));
+            accepted.add(callers.submit(() -> service.hash("second")));
+            waitUntilQueued(registry);
+
+            assertThrows(RejectedExecutionException.class, () -> service.hash("third"));
+
+            release.countDown();
+            for (Future<String> future : accepted) {
+                assertTrue(future.get(5, TimeUnit.SECONDS).startsWith("hashed:"));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void timesOutSlowHashes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (PasswordHashingService service = new PasswordHashingService(new SlowEncoder(release), new SimpleMeterRegistry(), 1, 1, Duration.ofMillis(100))) {
+            assertThrows(RejectedExecutionException.class, () -> service.hash("secret"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void waitUntilQueued(SimpleMeterRegistry registry) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("password.hash.queue.depth").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private record SlowEncoder(CountDownLatch release) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
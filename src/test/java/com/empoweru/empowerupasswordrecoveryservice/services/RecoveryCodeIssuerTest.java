@@ -0,0 +1,103 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import com.empoweru.empowerupasswordrecoveryservice.cache.RecoveryCodeCache;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics;
+import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecoveryCodeIssuerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RecoveryCodeCache cache = new RecoveryCodeCache(email -> Optional.empty(), 100, Clock.systemUTC());
+    private final RecoveryMetrics recoveryMetrics = new RecoveryMetrics(registry, false);
+    private final CodeGeneratorService generator = mock(CodeGeneratorService.class);
+    private final AtomicInteger generations = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Test
+    void concurrentRequestsShareOneGeneration() throws Exception {
+        when(generator.generate(anyString(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return issue(invocation.getArgument(0));
+        });
+        RecoveryCodeIssuer issuer = new RecoveryCodeIssuer(generator, cache, recoveryMetrics, registry, Duration.ofSeconds(30), 100);
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<RecoveryCodeIssuer.Issuance>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> issuer.issue("a@x.com", null)));
+            }
+            while (registry.get("recovery-code.coalesced").tag("reason", "in-flight").counter().count() < 7) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            RecoveryCode first = results.get(0).get(5, TimeUnit.SECONDS).code();
+            int issued = 0;
+            for (Future<RecoveryCodeIssuer.Issuance> result : results) {
+                RecoveryCodeIssuer.Issuance issuance = result.get(5, TimeUnit.SECONDS);
+                assertSame(first, issuance.code());
+                if (issuance.isIssued()) {
+                    issued++;
+                } else {
+                    assertEquals("in-flight", issuance.coalesced());
+                }
+            }
+            assertEquals(1, issued);
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, generations.get());
+    }
+
+    @Test
+    void repeatedRequestsWithinTheWindowReuseTheActiveCode() {
+        when(generator.generate(anyString(), any())).thenAnswer(invocation -> issue(invocation.getArgument(0)));
+        RecoveryCodeIssuer issuer = new RecoveryCodeIssuer(generator, cache, recoveryMetrics, registry, Duration.ofSeconds(30), 100);
+
+        RecoveryCodeIssuer.Issuance first = issuer.issue("a@x.com", null);
+        assertTrue(first.isIssued());
+        RecoveryCodeIssuer.Issuance repeated = issuer.issue("a@x.com", null);
+        assertSame(first.code(), repeated.code());
+        assertEquals("recently-issued", repeated.coalesced());
+        assertEquals(1, generations.get());
+        assertEquals(1, registry.get("recovery-code.coalesced").tag("reason", "recently-issued").counter().count());
+
+        cache.invalidate("a@x.com");
+        RecoveryCodeIssuer.Issuance reissued = issuer.issue("a@x.com", null);
+        assertTrue(reissued.isIssued());
+        assertNotEquals(first.code().getCode(), reissued.code().getCode());
+        assertEquals(2, generations.get());
+    }
+
+    private RecoveryCode issue(String email) {
+        RecoveryCode code = new RecoveryCode((long) generations.incrementAndGet(), "code-" + generations.get(), email,
+                new Timestamp(System.currentTimeMillis() + 600_000));
+        cache.put(code);
+        return code;
+    }
+}
@@ -0,0 +1,114 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import com.empoweru.empowerupasswordrecoveryservice.cache.RecoveryCodeCache;
+import com.empoweru.empowerupasswordrecoveryservice.metrics.RecoveryMetrics;
+import com.empoweru.empowerupasswordrecoveryservice.models.PasswordResetStatus;
+import com.empoweru.empowerupasswordrecoveryservice.models.RecoveryCode;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.RecoverCodeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RecoveryCodeServiceTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2024-07-01T12:00:00Z"), ZoneOffset.UTC);
+    private final RecoverCodeRepository repository = mock(RecoverCodeRepository.class);
+    private final PasswordHashingService hasher = mock(PasswordHashingService.class);
+    private final VerificationLockout lockout = mock(VerificationLockout.class);
+    private final RecoveryCodeCache cache = new RecoveryCodeCache(repository::findByEmail, 100, clock);
+    private final RecoveryCodeService service = new RecoveryCodeService(repository, hasher, cache,
+            new RecoveryMetrics(new SimpleMeterRegistry(), false), lockout, clock);
+
+    @BeforeEach
+    void setUp() {
+        when(lockout.lockedFor(anyString())).thenReturn(Duration.ZERO);
+        when(hasher.hash(anyString(), any())).thenReturn("hashed");
+        when(repository.verifyAndResetPassword(anyString(), anyString(), anyString())).thenReturn("OK");
+    }
+
+    @Test
+    void wrongCodeOnAColdCacheIsRejectedWithoutHashing() {
+        when(repository.findByEmail("a@x.com")).thenReturn(Optional.of(code("123456", Duration.ofMinutes(5))));
+
+        assertEquals(PasswordResetStatus.INVALID_CODE, service.verifyAndResetPassword("a@x.com", "000000", "secret"));
+
+        verify(hasher, never()).hash(anyString(), any());
+        verify(repository, never()).verifyAndResetPassword(anyString(), anyString(), anyString());
+        verify(lockout).recordFailure("a@x.com");
+    }
+
+    @Test
+    void emailWithoutACodeIsRejectedWithoutHashing() {
+        when(repository.findByEmail("a@x.com")).thenReturn(Optional.empty());
+
+        assertEquals(PasswordResetStatus.INVALID_CODE, service.verifyAndResetPassword("a@x.com", "123456", "secret"));
+
+        verify(hasher, never()).hash(anyString(), any());
+        verify(lockout).recordFailure("a@x.com");
+    }
+
+    @Test
+    void expiredCodeIsRejectedWithoutHashing() {
+        when(repository.findByEmail("a@x.com")).thenReturn(Optional.of(code("123456", Duration.ofMinutes(-1))));
+
+        assertEquals(PasswordResetStatus.EXPIRED_CODE, service.verifyAndResetPassword("a@x.com", "123456", "secret"));
+
+        verify(hasher, never()).hash(anyString(), any());
+        verify(lockout, never()).recordFailure(anyString());
+    }
+
+    @Test
+    void rightCodeIsLoadedOnceAndCheckedAgainByTheStatement() {
+        when(repository.findByEmail("a@x.com")).thenReturn(Optional.of(code("123456", Duration.ofMinutes(5))));
+
+        assertEquals(PasswordResetStatus.OK, service.verifyAndResetPassword("a@x.com", "123456", "secret"));
+
+        verify(repository, times(1)).findByEmail("a@x.com");
+        verify(repository).verifyAndResetPassword("a@x.com", "123456", "hashed");
+        verify(lockout).recordSuccess("a@x.com");
+    }
+
+    @Test
+    void retriedVerificationIsServedFromTheCache() {
+        when(repository.findByEmail("a@x.com")).thenReturn(Optional.of(code("123456", Duration.ofMinutes(5))));
+        when(hasher.hash(anyString(), any())).thenThrow(new RejectedExecutionException("full")).thenReturn("hashed");
+
+        assertThrows(RejectedExecutionException.class, () -> service.verifyAndResetPassword("a@x.com", "123456", "secret"));
+        assertEquals(PasswordResetStatus.OK, service.verifyAndResetPassword("a@x.com", "123456", "secret"));
+
+        verify(repository, times(1)).findByEmail("a@x.com");
+    }
+
+    @Test
+    void staleCachedCodeIsReadAgainBeforeRejecting() {
+        when(repository.findByEmail("a@x.com")).thenReturn(Optional.of(code("111111", Duration.ofMinutes(5))),
+                Optional.of(code("222222", Duration.ofMinutes(5))));
+        cache.get("a@x.com");
+
+        assertEquals(PasswordResetStatus.OK, service.verifyAndResetPassword("a@x.com", "222222", "secret"));
+
+        verify(repository, times(2)).findByEmail("a@x.com");
+    }
+
+    private RecoveryCode code(String code, Duration expiresIn) {
+        return new RecoveryCode(1L, code, "a@x.com", new Timestamp(clock.millis() + expiresIn.toMillis()));
+    }
+}
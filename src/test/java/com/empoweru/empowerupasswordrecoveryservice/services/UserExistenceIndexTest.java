@@ -0,0 +1,116 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import com.empoweru.empowerupasswordrecoveryservice.repositories.JdbcUserRepository;
+import com.empoweru.empowerupasswordrecoveryservice.repositories.UserRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserExistenceIndexTest {
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @BeforeAll
+    static void startDatabase() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        dataSource = postgres.getPostgresDatabase();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (id uuid PRIMARY KEY DEFAULT gen_random_uuid(), "
+                + "name varchar(100), email varchar(100) UNIQUE, password varchar(100), gender varchar(1))");
+        // Executed whole, as the trigger function body contains semicolons.
+        jdbcTemplate.execute(new ClassPathResource("db/migration/V7__create_user_registration.sql")
+                .getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void clearTables() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM user_registration");
+        register("a@x.com");
+    }
+
+    @Test
+    void definiteMissesAreAnsweredWithoutAQuery() {
+        UserExistenceIndex index = instance();
+        index.refresh();
+
+        assertFalse(index.exists("unknown@x.com"));
+        assertEquals(0, queries.get());
+        assertEquals(1, index.getDefiniteMissCount());
+
+        assertTrue(index.exists("a@x.com"));
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void refreshReadsTheRegistrationsLoggedSinceThePreviousOne() {
+        UserExistenceIndex index = instance();
+        index.refresh();
+        register("new@x.com");
+        assertFalse(index.exists("new@x.com"), "until the next refresh");
+
+        index.refresh();
+        assertTrue(index.exists("new@x.com"));
+
+        new JdbcTemplate(dataSource).update("UPDATE users SET email = 'renamed@x.com' WHERE email = 'a@x.com'");
+        index.refresh();
+        assertTrue(index.exists("renamed@x.com"));
+    }
+
+    @Test
+    void refreshPicksUpRegistrationsCommittedAfterALaterOne() {
+        UserExistenceIndex index = instance();
+        index.refresh();
+        index.refresh();
+
+        // Logged before the previous read started, but committed after it.
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("ALTER TABLE users DISABLE TRIGGER users_log_registration");
+        register("late@x.com");
+        jdbcTemplate.update("ALTER TABLE users ENABLE TRIGGER users_log_registration");
+        jdbcTemplate.update("INSERT INTO user_registration (email, registered_at) "
+                + "VALUES ('late@x.com', clock_timestamp() - interval '30 seconds')");
+
+        index.refresh();
+        assertTrue(index.mightExist("late@x.com"));
+    }
+
+    private UserExistenceIndex instance() {
+        UserRepository jdbcUserRepository = new JdbcUserRepository(JdbcClient.create(dataSource));
+        UserRepository counting = email -> {
+            queries.incrementAndGet();
+            return jdbcUserRepository.existsByEmail(email);
+        };
+        return new UserExistenceIndex(counting, dataSource, new DataSourceTransactionManager(dataSource),
+                0.01, Duration.ofHours(1));
+    }
+
+    private void register(String email) {
+        new JdbcTemplate(dataSource).update("INSERT INTO users (name, email, password, gender) VALUES ('A', ?, 'old', 'F')", email);
+    }
+}
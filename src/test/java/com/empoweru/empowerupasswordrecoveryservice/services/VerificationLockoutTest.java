@@ -0,0 +1,150 @@
+package com.empoweru.empowerupasswordrecoveryservice.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerificationLockoutTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(15);
+    private static final Duration LOCKOUT = Duration.ofMinutes(10);
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    private final AtomicLong millis = new AtomicLong(Instant.parse("2024-07-01T12:00:00Z").toEpochMilli());
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    };
+
+    @BeforeAll
+    static void startDatabase() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        dataSource = postgres.getPostgresDatabase();
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V5__create_verification_attempt.sql"))
+                .execute(dataSource);
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void clearTable() {
+        new JdbcTemplate(dataSource).update("DELETE FROM verification_attempt");
+    }
+
+    @Test
+    void failuresSpreadOverInstancesAddUp() {
+        VerificationLockout first = instance();
+        VerificationLockout second = instance();
+
+        first.recordFailure("a@x.com");
+        first.recordFailure("a@x.com");
+        second.recordFailure("a@x.com");
+        assertTrue(first.lockedFor("a@x.com").isZero());
+        assertTrue(second.lockedFor("a@x.com").isZero());
+
+        first.flush();
+        second.flush();
+        assertEquals(3, storedFailures("a@x.com"));
+        assertEquals(LOCKOUT, second.lockedFor("a@x.com"), "the flush that reaches the maximum locks the email");
+
+        first.flush();
+        assertEquals(LOCKOUT, first.lockedFor("a@x.com"), "the next flush brings the lockout to the other instance");
+    }
+
+    @Test
+    void failuresCountedElsewhereCountTowardsTheLocalLockout() {
+        VerificationLockout first = instance();
+        VerificationLockout second = instance();
+
+        first.recordFailure("a@x.com");
+        first.recordFailure("a@x.com");
+        first.flush();
+        second.flush();
+
+        assertEquals(LOCKOUT, second.recordFailure("a@x.com"));
+    }
+
+    @Test
+    void lockoutsSurviveARestart() {
+        VerificationLockout first = instance();
+        for (int i = 0; i < 3; i++) {
+            first.recordFailure("a@x.com");
+        }
+        first.close();
+
+        millis.addAndGet(Duration.ofMinutes(4).toMillis());
+        VerificationLockout restarted = instance();
+        restarted.flush();
+        assertEquals(Duration.ofMinutes(6), restarted.lockedFor("a@x.com"));
+    }
+
+    @Test
+    void successDeletesTheCounterAndAnEndedLockoutStartsANewWindow() {
+        VerificationLockout first = instance();
+        first.recordFailure("a@x.com");
+        first.recordFailure("b@x.com");
+        first.flush();
+
+        first.recordSuccess("a@x.com");
+        first.flush();
+        assertEquals(0, storedFailures("a@x.com"));
+
+        first.recordFailure("b@x.com");
+        first.recordFailure("b@x.com");
+        first.flush();
+        millis.addAndGet(LOCKOUT.toMillis());
+
+        VerificationLockout second = instance();
+        second.recordFailure("b@x.com");
+        second.flush();
+        assertEquals(1, storedFailures("b@x.com"));
+        assertTrue(second.lockedFor("b@x.com").isZero());
+    }
+
+    private VerificationLockout instance() {
+        return new VerificationLockout(dataSource, new DataSourceTransactionManager(dataSource), clock,
+                new SimpleMeterRegistry(), 3, WINDOW, LOCKOUT);
+    }
+
+    private int storedFailures(String email) {
+        return new JdbcTemplate(dataSource).queryForList(
+                        "SELECT failures FROM verification_attempt WHERE email = ?", Integer.class, email)
+                .stream().findFirst().orElse(0);
+    }
+}